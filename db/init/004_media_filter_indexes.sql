@@ -0,0 +1,11 @@
+-- Migration: Indexes backing the SQL filters/sorting of GET /api/media
+-- (MediaRepository.findFiltered)
+
+-- Exact type filter
+CREATE INDEX IF NOT EXISTS ix_media_type ON media_entries(media_type);
+
+-- Year / year range filters and sortBy=year
+CREATE INDEX IF NOT EXISTS ix_media_release_year ON media_entries(release_year, id);
+
+-- sortBy=title with stable tie-breaker (ix_media_title only covers LOWER(title))
+CREATE INDEX IF NOT EXISTS ix_media_title_id ON media_entries(LOWER(title), id);
@@ -0,0 +1,20 @@
+-- Migration: Indexes for keyset (cursor) pagination of list endpoints
+-- Each index matches the ORDER BY of its list, so every page is a range scan.
+
+-- GET /api/media?sortBy=year (title order is covered by ix_media_title_id)
+CREATE INDEX IF NOT EXISTS ix_media_year_sort ON media_entries((COALESCE(release_year, 0)), id);
+
+-- GET /api/ratings (own ratings, newest first)
+CREATE INDEX IF NOT EXISTS ix_rating_user_created ON ratings(user_id, created_at DESC, id DESC);
+
+-- GET /api/ratings?mediaId=... (approved ratings, newest first)
+CREATE INDEX IF NOT EXISTS ix_rating_media_approved_created
+    ON ratings(media_id, created_at DESC, id DESC)
+    WHERE approval_status = 'approved';
+
+-- GET /api/favorites (most recently favorited first)
+-- Keyset comparison needs a non-null created_at
+UPDATE favorites SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE favorites ALTER COLUMN created_at SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ix_favorites_user_created ON favorites(user_id, created_at DESC, id DESC);
@@ -0,0 +1,83 @@
+-- Migration: Denormalized per-media rating aggregates
+-- Only approved ratings count. Maintained by triggers on ratings, so average
+-- score and star distribution are read from media_entries in O(1).
+
+ALTER TABLE media_entries
+ADD COLUMN IF NOT EXISTS rating_count INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_sum   INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_1     INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_2     INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_3     INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_4     INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS rating_5     INTEGER NOT NULL DEFAULT 0;
+
+-- Add (p_sign = 1) or remove (p_sign = -1) one rating from a media entry's aggregates
+CREATE OR REPLACE FUNCTION apply_rating_stats(p_media_id UUID, p_stars INTEGER, p_sign INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    UPDATE media_entries
+    SET rating_count = rating_count + p_sign,
+        rating_sum   = rating_sum + p_sign * p_stars,
+        rating_1     = rating_1 + CASE WHEN p_stars = 1 THEN p_sign ELSE 0 END,
+        rating_2     = rating_2 + CASE WHEN p_stars = 2 THEN p_sign ELSE 0 END,
+        rating_3     = rating_3 + CASE WHEN p_stars = 3 THEN p_sign ELSE 0 END,
+        rating_4     = rating_4 + CASE WHEN p_stars = 4 THEN p_sign ELSE 0 END,
+        rating_5     = rating_5 + CASE WHEN p_stars = 5 THEN p_sign ELSE 0 END
+    WHERE id = p_media_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Old row leaves the aggregates if it was approved, new row enters them if it is approved.
+-- Covers approve/reject transitions, star edits and edits that reset approval to pending.
+CREATE OR REPLACE FUNCTION update_rating_stats()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF (TG_OP IN ('UPDATE', 'DELETE')) AND OLD.approval_status = 'approved' THEN
+        PERFORM apply_rating_stats(OLD.media_id, OLD.stars, -1);
+    END IF;
+    IF (TG_OP IN ('INSERT', 'UPDATE')) AND NEW.approval_status = 'approved' THEN
+        PERFORM apply_rating_stats(NEW.media_id, NEW.stars, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS ratings_stats_insert_delete_trigger ON ratings;
+CREATE TRIGGER ratings_stats_insert_delete_trigger
+AFTER INSERT OR DELETE ON ratings
+FOR EACH ROW
+EXECUTE FUNCTION update_rating_stats();
+
+-- Skip updates that do not touch an aggregated column (e.g. comment-only edits)
+DROP TRIGGER IF EXISTS ratings_stats_update_trigger ON ratings;
+CREATE TRIGGER ratings_stats_update_trigger
+AFTER UPDATE ON ratings
+FOR EACH ROW
+WHEN (OLD.approval_status IS DISTINCT FROM NEW.approval_status
+      OR OLD.stars <> NEW.stars
+      OR OLD.media_id <> NEW.media_id)
+EXECUTE FUNCTION update_rating_stats();
+
+-- Backfill aggregates for existing ratings
+UPDATE media_entries m
+SET rating_count = s.cnt,
+    rating_sum   = s.total,
+    rating_1     = s.r1,
+    rating_2     = s.r2,
+    rating_3     = s.r3,
+    rating_4     = s.r4,
+    rating_5     = s.r5
+FROM (
+    SELECT media_id,
+           COUNT(*)                          AS cnt,
+           SUM(stars)                        AS total,
+           COUNT(*) FILTER (WHERE stars = 1) AS r1,
+           COUNT(*) FILTER (WHERE stars = 2) AS r2,
+           COUNT(*) FILTER (WHERE stars = 3) AS r3,
+           COUNT(*) FILTER (WHERE stars = 4) AS r4,
+           COUNT(*) FILTER (WHERE stars = 5) AS r5
+    FROM ratings
+    WHERE approval_status = 'approved'
+    GROUP BY media_id
+) s
+WHERE m.id = s.media_id;
@@ -0,0 +1,25 @@
+-- Migration: sortBy=score, sortBy=weighted and sortBy=popularity for GET /api/media
+-- Scores are stored generated columns over the rating aggregates (006), so
+-- top-N lists are an index scan and never touch the ratings table.
+
+-- Plain average of approved ratings, 0 for unrated entries
+ALTER TABLE media_entries
+ADD COLUMN IF NOT EXISTS avg_score NUMERIC GENERATED ALWAYS AS (
+    CASE WHEN rating_count = 0 THEN 0 ELSE rating_sum::NUMERIC / rating_count END
+) STORED;
+
+-- Bayesian average: every entry starts with 5 virtual ratings of 3 stars,
+-- so a single 5-star rating does not top the list.
+ALTER TABLE media_entries
+ADD COLUMN IF NOT EXISTS weighted_score NUMERIC GENERATED ALWAYS AS (
+    (rating_sum + 15)::NUMERIC / (rating_count + 5)
+) STORED;
+
+-- favorite_count was nullable; the keyset comparison needs real values
+UPDATE media_entries SET favorite_count = 0 WHERE favorite_count IS NULL;
+ALTER TABLE media_entries ALTER COLUMN favorite_count SET NOT NULL;
+
+-- Sort columns with stable tie-breaker for keyset pagination
+CREATE INDEX IF NOT EXISTS ix_media_avg_score ON media_entries(avg_score, id);
+CREATE INDEX IF NOT EXISTS ix_media_weighted_score ON media_entries(weighted_score, id);
+CREATE INDEX IF NOT EXISTS ix_media_favorite_count ON media_entries(favorite_count, id);
@@ -0,0 +1,19 @@
+-- Migration: Index-backed media search (MediaRepository.findPage / listByQuery)
+-- searchMode=substring → ILIKE '%q%' served by trigram GIN indexes
+-- searchMode=fulltext  → tsvector match with ts_rank relevance ranking
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Substring search on title and description (queries of 3+ characters use the index)
+CREATE INDEX IF NOT EXISTS ix_media_title_trgm ON media_entries USING GIN (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_media_description_trgm ON media_entries USING GIN (description gin_trgm_ops);
+
+-- Full-text document: title weighs more than description
+-- Config 'english' must match the one used in MediaRepository (FULLTEXT_CONFIG)
+ALTER TABLE media_entries
+ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', COALESCE(title, '')), 'A') ||
+    setweight(to_tsvector('english', COALESCE(description, '')), 'B')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS ix_media_search_vector ON media_entries USING GIN (search_vector);
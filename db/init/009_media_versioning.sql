@@ -0,0 +1,33 @@
+-- Migration: Entity versions for ETag / Last-Modified on media reads
+-- version counts edits of the entry itself; updated_at moves on every change that is
+-- visible in GET /api/media/{id}, which also includes the rating aggregates (006).
+-- favorite_count is not part of any media response and does not touch either column.
+
+ALTER TABLE media_entries
+ADD COLUMN IF NOT EXISTS version    BIGINT      NOT NULL DEFAULT 1,
+ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp();
+
+CREATE OR REPLACE FUNCTION bump_media_version()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF (NEW.owner_id, NEW.title, NEW.description, NEW.media_type,
+        NEW.release_year, NEW.genres, NEW.age_restriction)
+       IS DISTINCT FROM
+       (OLD.owner_id, OLD.title, OLD.description, OLD.media_type,
+        OLD.release_year, OLD.genres, OLD.age_restriction) THEN
+        NEW.version := OLD.version + 1;
+        NEW.updated_at := clock_timestamp();
+    ELSIF (NEW.rating_1, NEW.rating_2, NEW.rating_3, NEW.rating_4, NEW.rating_5)
+          IS DISTINCT FROM
+          (OLD.rating_1, OLD.rating_2, OLD.rating_3, OLD.rating_4, OLD.rating_5) THEN
+        NEW.updated_at := clock_timestamp();
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS media_version_trigger ON media_entries;
+CREATE TRIGGER media_version_trigger
+BEFORE UPDATE ON media_entries
+FOR EACH ROW
+EXECUTE FUNCTION bump_media_version();
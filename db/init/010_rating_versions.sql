@@ -0,0 +1,6 @@
+-- Migration: Optimistic concurrency for rating edits
+-- Every edit (user update, approve, reject) bumps version; a client that sends the
+-- version it read gets 409 instead of silently overwriting a newer state.
+
+ALTER TABLE ratings
+ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 1;
@@ -0,0 +1,32 @@
+-- Migration: Sharded favorite counters
+-- The favorites trigger (002) updated media_entries.favorite_count for every favorite,
+-- so all users favoriting one title queued on that single row lock. Each change is now
+-- added to one of 16 random shard rows of the title instead; concurrent favorites
+-- rarely touch the same row. FavoriteCountRollup periodically folds the shards into
+-- favorite_count (used for popularity sorting, so that sort lags by one interval).
+-- Exact counts are favorite_count + SUM(delta) of the title's shards.
+--
+-- No foreign key: favorites deleted by a media cascade still write a shard row,
+-- the rollup drops rows of titles that no longer exist.
+
+CREATE TABLE IF NOT EXISTS media_favorite_count_shards (
+    media_id UUID     NOT NULL,
+    shard    SMALLINT NOT NULL,
+    delta    INTEGER  NOT NULL,
+    PRIMARY KEY (media_id, shard)
+);
+
+CREATE OR REPLACE FUNCTION update_favorite_count()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO media_favorite_count_shards (media_id, shard, delta)
+    VALUES (CASE WHEN TG_OP = 'INSERT' THEN NEW.media_id ELSE OLD.media_id END,
+            floor(random() * 16),
+            CASE WHEN TG_OP = 'INSERT' THEN 1 ELSE -1 END)
+    ON CONFLICT (media_id, shard)
+    DO UPDATE SET delta = media_favorite_count_shards.delta + EXCLUDED.delta;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- favorites_count_trigger (002) keeps calling the function, now with the body above
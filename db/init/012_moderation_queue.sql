@@ -0,0 +1,14 @@
+-- Migration: Moderation queue for pending ratings
+-- Moderators claim pages of pending ratings, oldest first. A claim is a lease
+-- (claimed_by / claimed_until) rather than a row lock, since moderators decide in later
+-- requests; FOR UPDATE SKIP LOCKED only keeps concurrent claim statements apart.
+-- Expired claims return to the queue, approve/reject clear them.
+
+ALTER TABLE ratings
+ADD COLUMN IF NOT EXISTS claimed_by    UUID,
+ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMPTZ;
+
+-- Queue order; only pending rows, so the index stays small while the table grows
+CREATE INDEX IF NOT EXISTS ix_rating_pending_created
+    ON ratings(created_at, id)
+    WHERE approval_status = 'pending';
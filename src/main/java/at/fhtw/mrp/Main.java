@@ -1,9 +1,14 @@
 package at.fhtw.mrp;
 
+import at.fhtw.mrp.config.AppConfig;
+import at.fhtw.mrp.db.Database;
 import at.fhtw.mrp.http.UserHandler;
 import at.fhtw.mrp.http.MediaHandler;
 import at.fhtw.mrp.http.RatingHandler;
 import at.fhtw.mrp.http.FavoriteHandler;
+import at.fhtw.mrp.http.RequestExecutor;
+import at.fhtw.mrp.http.ResponseCompression;
+import at.fhtw.mrp.http.Router;
 import at.fhtw.mrp.http.UserProfileHandler;
 import at.fhtw.mrp.repo.*;
 import at.fhtw.mrp.service.*;
@@ -11,6 +16,7 @@ import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -21,13 +27,16 @@ public class Main {
         MediaRepository  mediaRepo    = new MediaRepository();
         RatingRepository ratingRepo   = new RatingRepository();
         FavoriteRepository favoriteRepo = new FavoriteRepository();
+        UserStatisticsRepository statisticsRepo = new UserStatisticsRepository();
 
         // LAYER 2: Create services
         AuthService     authService     = new AuthService(userRepo);
         MediaService    mediaService    = new MediaService(mediaRepo);
         RatingService   ratingService   = new RatingService(ratingRepo);
         FavoriteService favoriteService = new FavoriteService(favoriteRepo, mediaRepo);
-        UserProfileService profileService = new UserProfileService(ratingRepo, mediaRepo, favoriteRepo);
+        UserProfileService profileService = new UserProfileService(ratingRepo, statisticsRepo);
+        FavoriteCountRollup favoriteCountRollup =
+                new FavoriteCountRollup(favoriteRepo, AppConfig.FAVORITE_COUNT_ROLLUP_MILLIS);
 
         // LAYER 3: Create HTTP handlers
         UserHandler     userHandler     = new UserHandler(authService, userRepo);
@@ -37,19 +46,47 @@ public class Main {
         UserProfileHandler profileHandler = new UserProfileHandler(profileService);
 
         // LAYER 4: Create HTTP server
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        HttpServer server = HttpServer.create(new InetSocketAddress(AppConfig.SERVER_PORT), 0);
 
-        // Register handlers for URL paths
-        server.createContext("/api/users",     userHandler);     // All /api/users/* requests
-        server.createContext("/api/media",     mediaHandler);    // All /api/media/* requests
-        server.createContext("/api/ratings",   ratingHandler);   // All /api/ratings/* requests
-        server.createContext("/api/favorites", favoriteHandler); // All /api/favorites/* requests
-        server.createContext("/api/profile",   profileHandler);  // All /api/profile/* requests
+        // Register all endpoints in one route table, dispatched by a single context
+        Router router = new Router();
+        userHandler.registerRoutes(router);     // /api/users/*
+        mediaHandler.registerRoutes(router);    // /api/media/*
+        ratingHandler.registerRoutes(router);   // /api/ratings/*
+        favoriteHandler.registerRoutes(router); // /api/favorites/*
+        profileHandler.registerRoutes(router);  // /api/profile/*
+        server.createContext("/", router).getFilters()
+                .add(new ResponseCompression(AppConfig.HTTP_COMPRESSION_MIN_BYTES));
 
-        server.setExecutor(null);
+        // Handle requests concurrently instead of on the single dispatcher thread
+        RequestExecutor executor = new RequestExecutor(
+                RequestExecutor.Mode.parse(AppConfig.SERVER_EXECUTOR),
+                AppConfig.SERVER_MAX_CONCURRENCY,
+                AppConfig.SERVER_QUEUE_LIMIT);
+        server.setExecutor(executor);
         server.start();
 
-        System.out.println("MRP server running at http://localhost:8080");
+        // On shutdown: stop accepting, drain in-flight requests, then close pooled connections
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // One grace period for both: server.stop returns as soon as the exchanges are done,
+            // the executor only gets what is left of it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(AppConfig.SERVER_SHUTDOWN_GRACE_SECONDS);
+            server.stop((int) AppConfig.SERVER_SHUTDOWN_GRACE_SECONDS);
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!executor.shutdown(remaining, TimeUnit.NANOSECONDS)) {
+                System.err.println("Shutdown grace period expired, interrupted remaining requests");
+            }
+            System.out.println("Media cache: " + mediaRepo.getCache()
+                    + ", coalesced reads=" + mediaService.getCoalescedReads());
+            System.out.println("List response cache: " + mediaHandler.getListCache());
+            favoriteCountRollup.close();
+            System.out.println("Favorite count rollup: " + favoriteCountRollup);
+            Database.shutdown();
+        }));
+
+        System.out.println("MRP server running at http://localhost:" + AppConfig.SERVER_PORT
+                + " (" + executor.getMode().name().toLowerCase() + " threads, max "
+                + AppConfig.SERVER_MAX_CONCURRENCY + " concurrent requests)");
         System.out.println("Available endpoints:");
         System.out.println("  - /api/users/*");
         System.out.println("  - /api/media/*");
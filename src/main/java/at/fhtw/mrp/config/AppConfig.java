@@ -18,6 +18,57 @@ public final class AppConfig {
     public static final String DB_USER = System.getenv().getOrDefault("MRP_DB_USER", "mrp_user");
     public static final String DB_PASS = System.getenv().getOrDefault("MRP_DB_PASS", "mrp_password");
 
+    // Connection pool configuration
+    public static final int DB_POOL_MIN_SIZE = intEnv("MRP_DB_POOL_MIN_SIZE", 2);
+    public static final int DB_POOL_MAX_SIZE = intEnv("MRP_DB_POOL_MAX_SIZE", 10);
+    public static final long DB_POOL_BORROW_TIMEOUT_MS = longEnv("MRP_DB_POOL_BORROW_TIMEOUT_MS", 5_000);
+    public static final long DB_POOL_IDLE_TIMEOUT_MS = longEnv("MRP_DB_POOL_IDLE_TIMEOUT_MS", 600_000);
+    public static final long DB_POOL_VALIDATION_INTERVAL_MS = longEnv("MRP_DB_POOL_VALIDATION_INTERVAL_MS", 1_000);
+    public static final long DB_POOL_LEAK_THRESHOLD_MS = longEnv("MRP_DB_POOL_LEAK_THRESHOLD_MS", 30_000);
+
+    // Authentication token cache
+    public static final long AUTH_CACHE_TTL_SECONDS = longEnv("MRP_AUTH_CACHE_TTL_SECONDS", 300);
+    public static final int AUTH_CACHE_MAX_ENTRIES = intEnv("MRP_AUTH_CACHE_MAX_ENTRIES", 10_000);
+
+    // Media entity cache (MediaRepository.findById), 0 entries disables it
+    public static final int MEDIA_CACHE_MAX_ENTRIES = intEnv("MRP_MEDIA_CACHE_MAX_ENTRIES", 2_000);
+    public static final long MEDIA_CACHE_TTL_SECONDS = longEnv("MRP_MEDIA_CACHE_TTL_SECONDS", 300);
+    public static final long MEDIA_CACHE_NEGATIVE_TTL_SECONDS = longEnv("MRP_MEDIA_CACHE_NEGATIVE_TTL_SECONDS", 30);
+
+    // Page sizes for list endpoints (default when a client pages without limit, hard upper bound)
+    public static final int LIST_DEFAULT_LIMIT = intEnv("MRP_LIST_DEFAULT_LIMIT", 50);
+    public static final int LIST_MAX_LIMIT = intEnv("MRP_LIST_MAX_LIMIT", 1000);
+
+    // Cached GET /api/media responses: fresh for TTL, then served stale while refreshed
+    public static final int LIST_CACHE_MAX_ENTRIES = intEnv("MRP_LIST_CACHE_MAX_ENTRIES", 256);
+    public static final long LIST_CACHE_MAX_BYTES = longEnv("MRP_LIST_CACHE_MAX_BYTES", 32L * 1024 * 1024);
+    public static final long LIST_CACHE_TTL_SECONDS = longEnv("MRP_LIST_CACHE_TTL_SECONDS", 5);
+    public static final long LIST_CACHE_STALE_SECONDS = longEnv("MRP_LIST_CACHE_STALE_SECONDS", 30);
+
+    // Largest number of items accepted by one POST .../batch request
+    public static final int BATCH_MAX_ITEMS = intEnv("MRP_BATCH_MAX_ITEMS", 1000);
+
+    // Moderation queue: default page of a claim, lease of a claim, most ids per claim or decision
+    public static final int MODERATION_PAGE_SIZE = intEnv("MRP_MODERATION_PAGE_SIZE", 50);
+    public static final long MODERATION_CLAIM_SECONDS = longEnv("MRP_MODERATION_CLAIM_SECONDS", 600);
+    public static final int MODERATION_MAX_IDS = intEnv("MRP_MODERATION_MAX_IDS", 500);
+
+    // Rows per round trip when a query result is streamed through a server-side cursor
+    public static final int STREAM_FETCH_SIZE = intEnv("MRP_STREAM_FETCH_SIZE", 500);
+
+    // Interval of folding sharded favorite counters into favorite_count, 0 disables it
+    public static final long FAVORITE_COUNT_ROLLUP_MILLIS = longEnv("MRP_FAVORITE_COUNT_ROLLUP_MILLIS", 2_000);
+
+    // HTTP server configuration
+    public static final int SERVER_PORT = intEnv("MRP_SERVER_PORT", 8080);
+    public static final String SERVER_EXECUTOR = System.getenv().getOrDefault("MRP_SERVER_EXECUTOR", "virtual");
+    public static final int SERVER_MAX_CONCURRENCY = intEnv("MRP_SERVER_MAX_CONCURRENCY", 64);
+    public static final int SERVER_QUEUE_LIMIT = intEnv("MRP_SERVER_QUEUE_LIMIT", 256);
+    public static final long SERVER_SHUTDOWN_GRACE_SECONDS = longEnv("MRP_SERVER_SHUTDOWN_GRACE_SECONDS", 10);
+
+    // Response compression: smallest body (bytes) worth compressing, negative disables it
+    public static final int HTTP_COMPRESSION_MIN_BYTES = intEnv("MRP_HTTP_COMPRESSION_MIN_BYTES", 1024);
+
     /**
      * Build complete JDBC connection URL
      * @return JDBC URL string for PostgreSQL
@@ -41,4 +92,26 @@ public final class AppConfig {
     public static String getDbPassword() {
         return DB_PASS;
     }
+
+    // Read an integer environment variable, falling back to the default if unset, malformed
+    // or out of int range
+    private static int intEnv(String name, int defaultValue) {
+        long value = longEnv(name, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            System.err.println("Ignoring " + name + "=" + value + ": out of range, using " + defaultValue);
+            return defaultValue;
+        }
+        return (int) value;
+    }
+
+    private static long longEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring " + name + "=" + value + ": not a number, using " + defaultValue);
+            return defaultValue;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,434 @@
+package at.fhtw.mrp.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool
+ *
+ * Keeps between minSize and maxSize physical connections open and hands them out
+ * wrapped in a proxy whose close() returns the connection to the pool instead of
+ * closing the socket. Repositories keep using try-with-resources unchanged.
+ *
+ * Features: borrow timeout, validation on borrow, idle eviction, leak detection
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection (e.g. via DriverManager)
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool tuning parameters
+     * @param minSize - connections kept open even when idle
+     * @param maxSize - upper bound of physical connections
+     * @param borrowTimeoutMillis - how long getConnection() waits for a free slot
+     * @param idleTimeoutMillis - idle connections above minSize are closed after this time
+     * @param validationIntervalMillis - connections idle longer than this are validated on borrow (0 = always)
+     * @param leakThresholdMillis - connections held longer than this are reported as leaks (0 = disabled)
+     */
+    public record Settings(int minSize,
+                           int maxSize,
+                           long borrowTimeoutMillis,
+                           long idleTimeoutMillis,
+                           long validationIntervalMillis,
+                           long leakThresholdMillis) {
+
+        public Settings {
+            if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+            if (minSize < 0 || minSize > maxSize) throw new IllegalArgumentException("minSize must be between 0 and maxSize");
+        }
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5_000;
+    // Upper bound of one wait for a slot, in case a wakeup is missed
+    private static final long SLOT_WAIT_MILLIS = 50;
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+
+    // One permit per connection that may be leased at the same time
+    private final Semaphore permits;
+
+    // LIFO so hot connections are reused and cold ones can idle out (guarded by itself).
+    // Its monitor is notified when a connection is added or a slot is freed (see awaitSlot).
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mrp-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeeping,
+                0, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool
+     * Closing the returned connection hands it back to the pool.
+     *
+     * @return pooled Connection
+     * @throws SQLTimeoutException if no connection became available within the borrow timeout
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        long deadline = System.currentTimeMillis() + settings.borrowTimeoutMillis();
+
+        try {
+            if (!permits.tryAcquire(settings.borrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw borrowTimeout();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while (true) {
+                while ((pc = pollIdle()) != null) {
+                    if (isUsable(pc)) return lease(pc);
+                    destroy(pc);
+                }
+                if (reserveSlot()) break;
+                awaitSlot(deadline);
+            }
+
+            try {
+                pc = new PooledConnection(factory.create());
+            } catch (SQLException | RuntimeException e) {
+                freeSlot();
+                throw e;
+            }
+            return lease(pc);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Pool statistics
+
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    public int getActiveConnections() {
+        return leased.size();
+    }
+
+    public int getIdleConnections() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Close all idle connections and stop housekeeping
+     * Leased connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pc;
+        while ((pc = pollIdle()) != null) {
+            destroy(pc);
+        }
+    }
+
+    // INTERNALS
+
+    private SQLTimeoutException borrowTimeout() {
+        return new SQLTimeoutException("Timed out after " + settings.borrowTimeoutMillis()
+                + " ms waiting for a database connection (active=" + leased.size()
+                + ", max=" + settings.maxSize() + ")");
+    }
+
+    /**
+     * All slots are taken although the caller holds a permit: one of them belongs to a
+     * connection housekeeping is still opening, or one being destroyed. Wait until a
+     * connection is added to idle or a slot is freed.
+     * @throws SQLTimeoutException once the borrow deadline has passed
+     */
+    private void awaitSlot(long deadline) throws SQLException {
+        synchronized (idle) {
+            if (!idle.isEmpty() || total.get() < settings.maxSize()) return;
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) throw borrowTimeout();
+            try {
+                idle.wait(Math.min(remaining, SLOT_WAIT_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+        }
+    }
+
+    // Give back a reserved slot and wake a borrower waiting for one
+    private void freeSlot() {
+        total.decrementAndGet();
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+    }
+
+    private PooledConnection pollIdle() {
+        synchronized (idle) {
+            return idle.pollFirst();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        try {
+            if (pc.raw.isClosed()) return false;
+
+            long idleFor = System.currentTimeMillis() - pc.lastReturnedAt;
+            if (idleFor < settings.validationIntervalMillis()) return true;
+
+            return pc.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lease(PooledConnection pc) {
+        pc.borrowedAt = System.currentTimeMillis();
+        pc.leakReported = false;
+        pc.borrowSite = settings.leakThresholdMillis() > 0
+                ? new Exception("Connection borrowed here")
+                : null;
+        leased.add(pc);
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease(pc));
+    }
+
+    private void release(PooledConnection pc) {
+        if (!leased.remove(pc)) return;
+
+        try {
+            boolean reusable = !closed && !pc.raw.isClosed();
+
+            if (reusable) {
+                try {
+                    // Never hand an open transaction to the next borrower
+                    if (!pc.raw.getAutoCommit()) {
+                        pc.raw.rollback();
+                        pc.raw.setAutoCommit(true);
+                    }
+                    pc.raw.clearWarnings();
+                } catch (SQLException e) {
+                    reusable = false;
+                }
+            }
+
+            if (reusable) {
+                pc.lastReturnedAt = System.currentTimeMillis();
+                pc.borrowSite = null;
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                    idle.notifyAll();
+                }
+            } else {
+                destroy(pc);
+            }
+        } catch (SQLException e) {
+            destroy(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        freeSlot();
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    private void housekeeping() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            reportLeaks();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Close connections that have been idle too long, but never drop below minSize
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> expired = new ArrayList<>();
+
+        synchronized (idle) {
+            // Oldest idle connections sit at the tail
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            int surplus = total.get() - settings.minSize();
+            while (it.hasNext() && expired.size() < surplus) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturnedAt < settings.idleTimeoutMillis()) break;
+                it.remove();
+                expired.add(pc);
+            }
+        }
+
+        expired.forEach(this::destroy);
+    }
+
+    /**
+     * Count a connection that is about to be opened, unless the pool is already at maxSize
+     * total covers idle, leased and connections still being opened, so borrowers and
+     * housekeeping reserve before opening and can never overshoot maxSize together.
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int current = total.get();
+            if (current >= settings.maxSize()) return false;
+            if (total.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            int current = total.get();
+            if (current >= settings.minSize()) return;
+            if (!total.compareAndSet(current, current + 1)) continue;
+
+            try {
+                PooledConnection pc = new PooledConnection(factory.create());
+                synchronized (idle) {
+                    idle.addLast(pc);
+                    idle.notifyAll();
+                }
+            } catch (SQLException e) {
+                freeSlot();
+                System.err.println("Connection pool: could not open connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void reportLeaks() {
+        long threshold = settings.leakThresholdMillis();
+        if (threshold <= 0) return;
+
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : leased) {
+            if (!pc.leakReported && now - pc.borrowedAt > threshold) {
+                pc.leakReported = true;
+                System.err.println("Connection pool: possible connection leak, connection held for "
+                        + (now - pc.borrowedAt) + " ms");
+                if (pc.borrowSite != null) pc.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Physical connection plus bookkeeping
+     */
+    private static final class PooledConnection {
+        final Connection raw;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile boolean leakReported;
+        volatile Exception borrowSite;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * Proxy handler for one lease: close() returns the connection to the pool,
+     * every other call is forwarded until the lease has been closed.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    synchronized (this) {
+                        if (returned) return null;
+                        returned = true;
+                    }
+                    release(pc);
+                    return null;
+                }
+                case "isClosed" -> {
+                    synchronized (this) {
+                        if (returned) return true;
+                    }
+                    return pc.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pc.raw + "]";
+                }
+                default -> {
+                    synchronized (this) {
+                        if (returned) throw new SQLException("Connection is closed");
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
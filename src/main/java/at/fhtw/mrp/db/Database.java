@@ -8,27 +8,75 @@ import java.sql.SQLException;
 
 /**
  * Database connection utility
- * Uses configuration from AppConfig
+ * Hands out connections from a shared ConnectionPool configured through AppConfig
  */
 public final class Database {
 
+    private static volatile ConnectionPool pool;
+
     // Private constructor - utility class, no instances
     private Database() {
         throw new AssertionError("Cannot instantiate Database");
     }
 
     /**
-     * Get a new database connection
-     * Connection parameters are read from AppConfig
+     * Get a pooled database connection
+     * Closing the connection returns it to the pool
      *
      * @return Connection object connected to PostgreSQL
-     * @throws SQLException if connection fails
+     * @throws SQLException if no connection could be obtained
      */
     public static Connection getConnection() throws SQLException {
+        return pool().getConnection();
+    }
+
+    /**
+     * Get the shared pool (created on first use)
+     * @return the application's ConnectionPool
+     */
+    public static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Database.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(Database::openPhysicalConnection, poolSettings());
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Close the shared pool (called on server shutdown)
+     */
+    public static void shutdown() {
+        synchronized (Database.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    // Pool sizing, timeouts and leak detection threshold from AppConfig
+    private static ConnectionPool.Settings poolSettings() {
+        return new ConnectionPool.Settings(
+                AppConfig.DB_POOL_MIN_SIZE,
+                AppConfig.DB_POOL_MAX_SIZE,
+                AppConfig.DB_POOL_BORROW_TIMEOUT_MS,
+                AppConfig.DB_POOL_IDLE_TIMEOUT_MS,
+                AppConfig.DB_POOL_VALIDATION_INTERVAL_MS,
+                AppConfig.DB_POOL_LEAK_THRESHOLD_MS
+        );
+    }
+
+    private static Connection openPhysicalConnection() throws SQLException {
         return DriverManager.getConnection(
                 AppConfig.getJdbcUrl(),      // jdbc:postgresql://localhost:5432/mrp_db
                 AppConfig.getDbUser(),        // mrp_user
                 AppConfig.getDbPassword()     // mrp_password
         );
     }
-}
\ No newline at end of file
+}
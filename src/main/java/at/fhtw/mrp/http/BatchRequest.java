@@ -0,0 +1,74 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.config.AppConfig;
+import at.fhtw.mrp.service.BatchItemResult;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request and response format shared by the POST .../batch endpoints
+ *
+ * Request:  {"items": [{...}, {...}]}   (at most AppConfig.BATCH_MAX_ITEMS items)
+ * Response: {"created": n, "failed": m, "results": [{"index": 0, "status": "created", "id": ...}, ...]}
+ *
+ * Items are validated one by one; a bad item is reported in results and does not
+ * stop the others. The response is 200 even if some items failed.
+ */
+final class BatchRequest {
+
+    private BatchRequest() {}
+
+    /**
+     * Read the items of a batch request
+     * @throws IllegalArgumentException if the body has no items array, too many items,
+     *         or an item that is not a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> readItems(HttpExchange exchange) throws IOException {
+        Object items = JsonCodec.readMap(exchange).get("items");
+        if (!(items instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("items must be a non-empty array");
+        }
+        if (list.size() > AppConfig.BATCH_MAX_ITEMS) {
+            throw new IllegalArgumentException("At most " + AppConfig.BATCH_MAX_ITEMS + " items per batch");
+        }
+
+        List<Map<String, Object>> maps = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("items must be JSON objects");
+            }
+            maps.add((Map<String, Object>) item);
+        }
+        return maps;
+    }
+
+    static void send(HttpExchange exchange, List<BatchItemResult> results) throws IOException {
+        int created = 0, failed = 0;
+        for (BatchItemResult result : results) {
+            if (BatchItemResult.CREATED.equals(result.status())) created++;
+            if (result.error() != null) failed++;
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("created", created);
+        body.put("failed", failed);
+        body.put("results", results.stream().map(BatchRequest::toJson).toList());
+        JsonCodec.sendList(exchange, 200, body, results.size());
+    }
+
+    // id and error are left out when not set
+    static Map<String, Object> toJson(BatchItemResult result) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("index", result.index());
+        item.put("status", result.status());
+        if (result.id() != null) item.put("id", result.id());
+        if (result.error() != null) item.put("error", result.error());
+        return item;
+    }
+}
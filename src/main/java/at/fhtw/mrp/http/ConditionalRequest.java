@@ -0,0 +1,125 @@
+package at.fhtw.mrp.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+
+/**
+ * Conditional GET support (ETag / If-None-Match, Last-Modified / If-Modified-Since)
+ *
+ * Handlers compute a validator before building the response body:
+ *   String etag = ConditionalRequest.etag(entry.getVersion(), entry.getUpdatedAt());
+ *   if (ConditionalRequest.notModified(exchange, etag, lastModified)) return;
+ *
+ * so an unchanged resource costs neither serialization nor a response body.
+ * If-None-Match takes precedence over If-Modified-Since (RFC 9110, 13.2.2).
+ *
+ * ETags are strong; ResponseCompression weakens them when an encoding was negotiated
+ * (including on the 304), If-None-Match uses weak comparison, so both forms match.
+ */
+public final class ConditionalRequest {
+
+    private ConditionalRequest() {}
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Strong ETag derived from the given parts (e.g. entity versions)
+     * Equal parts give equal tags; the tag does not reveal the parts.
+     */
+    public static String etag(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (Object part : parts) {
+            sb.append(part).append('|');
+        }
+        return etagOf(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Strong ETag from a content hash of the response body
+     */
+    public static String etagOf(byte[] body) {
+        byte[] digest = sha256().digest(body);
+        return '"' + HEX.formatHex(digest, 0, 12) + '"';
+    }
+
+    /**
+     * Set the validators on the response and answer 304 if the client's copy is current
+     * @param etag - strong ETag of the current representation (quoted)
+     * @param lastModified - last change of the representation, null if unknown
+     * @return true if a 304 was sent and the handler must not send a body
+     */
+    public static boolean notModified(HttpExchange exchange, String etag, Instant lastModified) throws IOException {
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", etag);
+        if (lastModified != null) {
+            response.set("Last-Modified", httpDate(lastModified));
+        }
+
+        Headers request = exchange.getRequestHeaders();
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        boolean fresh;
+        if (ifNoneMatch != null) {
+            fresh = matches(ifNoneMatch, etag);
+        } else {
+            fresh = unmodifiedSince(request.getFirst("If-Modified-Since"), lastModified);
+        }
+
+        if (fresh) {
+            ResponseCompression.bodilessResponse(exchange);
+            exchange.sendResponseHeaders(304, -1);
+        }
+        return fresh;
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header against an ETag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String current = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(current)) return true;
+        }
+        return false;
+    }
+
+    // HTTP dates have second precision, so the stored time is truncated before comparing
+    static boolean unmodifiedSince(String ifModifiedSince, Instant lastModified) {
+        if (ifModifiedSince == null || lastModified == null) return false;
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;   // invalid dates are ignored
+        }
+    }
+
+    static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+
+    // Tag without weakness indicator, e.g. W/"abc" → "abc"
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
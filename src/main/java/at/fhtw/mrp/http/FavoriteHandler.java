@@ -1,17 +1,14 @@
 package at.fhtw.mrp.http;
 
+import at.fhtw.mrp.http.dto.FavoriteRequest;
 import at.fhtw.mrp.model.MediaEntry;
 import at.fhtw.mrp.model.User;
+import at.fhtw.mrp.repo.Page;
 import at.fhtw.mrp.repo.UserRepository;
 import at.fhtw.mrp.service.FavoriteService;
 import at.fhtw.mrp.util.TokenService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.sql.SQLException;
 import java.util.*;
 
 /**
@@ -19,13 +16,14 @@ import java.util.*;
  *
  * Endpoints:
  * - POST   /api/favorites              → Add favorite
+ * - POST   /api/favorites/batch        → Add many favorites ({"items": [{mediaId}, ...]})
  * - DELETE /api/favorites/{mediaId}    → Remove favorite
- * - GET    /api/favorites              → Get user's favorites
+ * - POST   /api/favorites/{mediaId}/toggle → Add or remove favorite, returns new state
+ * - GET    /api/favorites              → Get user's favorites (?limit=&cursor= for pagination)
  * - GET    /api/favorites/{mediaId}/status → Check if favorited
  */
-public class FavoriteHandler implements HttpHandler {
+public class FavoriteHandler {
 
-    private final ObjectMapper mapper = new ObjectMapper();
     private final FavoriteService favoriteService;
     private final UserRepository userRepo;
 
@@ -34,91 +32,64 @@ public class FavoriteHandler implements HttpHandler {
         this.userRepo = userRepo;
     }
 
-    @Override
-    public void handle(HttpExchange ex) {
-        try {
-            String method = ex.getRequestMethod();
-            String path = ex.getRequestURI().getPath();
-
-            // Handle CORS preflight
-            if (method.equals("OPTIONS")) {
-                send(ex, 200, Map.of());
-                return;
-            }
-
-            // GET /api/favorites (list user's favorites)
-            if (method.equals("GET") && path.equals("/api/favorites")) {
-                User user = requireAuth(ex);
-                List<MediaEntry> favorites = favoriteService.getUserFavorites(user.getId());
-                send(ex, 200, favorites);
-                return;
-            }
-
-            // POST /api/favorites (add favorite)
-            if (method.equals("POST") && path.equals("/api/favorites")) {
-                User user = requireAuth(ex);
-                Map<String, Object> body = readJson(ex);
-
-                String mediaIdStr = (String) body.get("mediaId");
-                if (mediaIdStr == null || mediaIdStr.isBlank()) {
-                    send(ex, 400, Map.of("error", "mediaId is required"));
-                    return;
-                }
-
-                UUID mediaId = UUID.fromString(mediaIdStr);
-                favoriteService.addFavorite(user.getId(), mediaId);
-
-                send(ex, 201, Map.of("message", "Added to favorites"));
-                return;
-            }
-
-            // DELETE /api/favorites/{mediaId} (remove favorite)
-            if (method.equals("DELETE") && path.matches("^/api/favorites/.+$")) {
-                User user = requireAuth(ex);
-                UUID mediaId = extractUUID(path, "/api/favorites/");
-
-                if (mediaId == null) {
-                    send(ex, 400, Map.of("error", "Invalid media ID"));
-                    return;
-                }
-
-                favoriteService.removeFavorite(user.getId(), mediaId);
-                send(ex, 200, Map.of("message", "Removed from favorites"));
-                return;
-            }
-
-            // GET /api/favorites/{mediaId}/status (check if favorited)
-            if (method.equals("GET") && path.matches("^/api/favorites/.+/status$")) {
-                User user = requireAuth(ex);
-
-                // Extract mediaId from path: /api/favorites/{mediaId}/status
-                String pathWithoutStatus = path.replace("/status", "");
-                UUID mediaId = extractUUID(pathWithoutStatus, "/api/favorites/");
-
-                if (mediaId == null) {
-                    send(ex, 400, Map.of("error", "Invalid media ID"));
-                    return;
-                }
-
-                boolean isFavorite = favoriteService.isFavorite(user.getId(), mediaId);
-                send(ex, 200, Map.of("isFavorite", isFavorite));
-                return;
-            }
-
-            // No route matched
-            send(ex, 404, Map.of("error", "Not found"));
-
-        } catch (SecurityException se) {
-            send(ex, 401, Map.of("error", se.getMessage()));
-        } catch (IllegalArgumentException iae) {
-            send(ex, 400, Map.of("error", iae.getMessage()));
-        } catch (SQLException sqle) {
-            sqle.printStackTrace();
-            send(ex, 500, Map.of("error", "Database error"));
-        } catch (Exception e) {
-            e.printStackTrace();
-            send(ex, 500, Map.of("error", "Server error"));
+    public void registerRoutes(Router router) {
+        router.get("/api/favorites", (ex, p) -> handleList(ex));
+        router.post("/api/favorites", (ex, p) -> handleAdd(ex));
+        router.post("/api/favorites/batch", (ex, p) -> handleAddBatch(ex));
+        router.delete("/api/favorites/{mediaId:uuid}", (ex, p) -> handleRemove(ex, p.uuid("mediaId")));
+        router.post("/api/favorites/{mediaId:uuid}/toggle", (ex, p) -> handleToggle(ex, p.uuid("mediaId")));
+        router.get("/api/favorites/{mediaId:uuid}/status", (ex, p) -> handleStatus(ex, p.uuid("mediaId")));
+    }
+
+    // GET /api/favorites (list user's favorites, ?limit=&cursor= for pagination)
+    private void handleList(HttpExchange ex) throws Exception {
+        User user = requireAuth(ex);
+        Map<String, String> query = QueryString.parse(ex.getRequestURI().getRawQuery());
+
+        Page<MediaEntry> page = favoriteService.getUserFavoritesPage(user.getId(), PagedList.limit(query), query.get("cursor"));
+        PagedList.send(ex, page, PagedList.isPaged(query));
+    }
+
+    // POST /api/favorites (add favorite)
+    private void handleAdd(HttpExchange ex) throws Exception {
+        User user = requireAuth(ex);
+        FavoriteRequest body = JsonCodec.read(ex, FavoriteRequest.class);
+
+        if (body == null || body.mediaId() == null) {
+            send(ex, 400, Map.of("error", "mediaId is required"));
+            return;
         }
+
+        favoriteService.addFavorite(user.getId(), body.mediaId());
+
+        send(ex, 201, Map.of("message", "Added to favorites"));
+    }
+
+    // POST /api/favorites/batch (add many favorites)
+    private void handleAddBatch(HttpExchange ex) throws Exception {
+        User user = requireAuth(ex);
+        BatchRequest.send(ex, favoriteService.addFavorites(user.getId(), BatchRequest.readItems(ex)));
+    }
+
+    // DELETE /api/favorites/{mediaId} (remove favorite)
+    private void handleRemove(HttpExchange ex, UUID mediaId) throws Exception {
+        User user = requireAuth(ex);
+        favoriteService.removeFavorite(user.getId(), mediaId);
+        send(ex, 200, Map.of("message", "Removed from favorites"));
+    }
+
+    // POST /api/favorites/{mediaId}/toggle (add or remove favorite)
+    private void handleToggle(HttpExchange ex, UUID mediaId) throws Exception {
+        User user = requireAuth(ex);
+        boolean isFavorite = favoriteService.toggleFavorite(user.getId(), mediaId);
+        send(ex, 200, Map.of("isFavorite", isFavorite));
+    }
+
+    // GET /api/favorites/{mediaId}/status (check if favorited)
+    private void handleStatus(HttpExchange ex, UUID mediaId) throws Exception {
+        User user = requireAuth(ex);
+        boolean isFavorite = favoriteService.isFavorite(user.getId(), mediaId);
+        send(ex, 200, Map.of("isFavorite", isFavorite));
     }
 
     /**
@@ -128,60 +99,19 @@ public class FavoriteHandler implements HttpHandler {
         String authHeader = ex.getRequestHeaders().getFirst("Authorization");
         Optional<User> userOpt = TokenService.authenticate(authHeader, userRepo);
         if (userOpt.isEmpty()) {
-            throw new SecurityException("Unauthorized");
+            throw new UnauthorizedException();
         }
         return userOpt.get();
     }
 
-    /**
-     * Read JSON request body
-     */
-    private Map<String, Object> readJson(HttpExchange ex) throws Exception {
-        try (InputStream in = ex.getRequestBody()) {
-            if (in == null) return Map.of();
-            return mapper.readValue(in, Map.class);
-        }
-    }
-
     /**
      * Send JSON response
      */
     private void send(HttpExchange ex, int code, Object payload) {
         try {
-            byte[] bytes = (payload instanceof byte[])
-                    ? (byte[]) payload
-                    : mapper.writeValueAsBytes(payload);
-
-            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-            ex.sendResponseHeaders(code, bytes.length);
-
-            try (OutputStream os = ex.getResponseBody()) {
-                os.write(bytes);
-            }
+            JsonCodec.send(ex, code, payload);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-
-    /**
-     * Extract UUID from path
-     */
-    private UUID extractUUID(String path, String prefix) {
-        if (!path.startsWith(prefix)) return null;
-        String idStr = path.substring(prefix.length());
-
-        if (idStr.endsWith("/")) {
-            idStr = idStr.substring(0, idStr.length() - 1);
-        }
-
-        if (!idStr.matches("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}")) {
-            return null;
-        }
-
-        try {
-            return UUID.fromString(idStr);
-        } catch (IllegalArgumentException e) {
-            return null;
-        }
-    }
-}
\ No newline at end of file
+}
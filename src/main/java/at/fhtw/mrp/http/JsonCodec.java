@@ -0,0 +1,303 @@
+package at.fhtw.mrp.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON request/response codec shared by all handlers
+ *
+ * - Request bodies are parsed straight from the exchange stream (no intermediate String)
+ *   into typed DTOs or, for partial updates, into a Map.
+ * - Responses are serialized once into bytes (fixed Content-Length), or streamed with
+ *   chunked transfer encoding for large lists, so big payloads are never fully buffered.
+ * - Results read from a database cursor are serialized while the rows arrive, as JSON
+ *   (streamJson) or NDJSON (streamLines, one value per line).
+ * - All paths apply the gzip/deflate encoding negotiated by ResponseCompression.
+ *
+ * Readers and the writer are built once; ObjectReader/ObjectWriter are immutable and thread-safe.
+ */
+public final class JsonCodec {
+
+    private JsonCodec() {}
+
+    /** Lists with more items than this are streamed (chunked) instead of buffered */
+    public static final int STREAM_THRESHOLD = 200;
+
+    /** Streamed responses up to this size are sent with a fixed Content-Length */
+    static final int STREAM_BUFFER_BYTES = 16 * 1024;
+
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson; charset=utf-8";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    // Generators of streamed responses flush when their buffer is full, not after every writeObject
+    private static final ObjectMapper STREAM_MAPPER = MAPPER.copy()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectReader MAP_READER = MAPPER.readerFor(new TypeReference<Map<String, Object>>() {});
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    /**
+     * Read the request body into a typed DTO
+     * @return the DTO, or null if the body is empty
+     * @throws IllegalArgumentException if the body is not valid JSON for the type
+     */
+    public static <T> T read(HttpExchange exchange, Class<T> type) throws IOException {
+        ObjectReader reader = READERS.computeIfAbsent(type, MAPPER::readerFor);
+        return parse(exchange, reader);
+    }
+
+    /**
+     * Read the request body as a JSON object (for partial updates where absent ≠ null)
+     * @return parsed object, empty map if the body is empty
+     * @throws IllegalArgumentException if the body is not a valid JSON object
+     */
+    public static Map<String, Object> readMap(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = parse(exchange, MAP_READER);
+        return body != null ? body : new HashMap<>();
+    }
+
+    /**
+     * Send a JSON response with a fixed Content-Length
+     */
+    public static void send(HttpExchange exchange, int status, Object payload) throws IOException {
+        sendBytes(exchange, status, WRITER.writeValueAsBytes(payload));
+    }
+
+    /**
+     * Send a 200 response validated by a content hash ETag, or 304 if the client's
+     * If-None-Match already matches it. For resources without a cheaper version to derive
+     * an ETag from; saves the transfer, not the serialization.
+     */
+    public static void sendConditional(HttpExchange exchange, Object payload) throws IOException {
+        byte[] bytes = WRITER.writeValueAsBytes(payload);
+        if (ConditionalRequest.notModified(exchange, ConditionalRequest.etagOf(bytes), null)) return;
+        sendBytes(exchange, 200, bytes);
+    }
+
+    /**
+     * Send a JSON response with chunked transfer encoding, serializing directly
+     * into the response stream
+     */
+    public static void stream(HttpExchange exchange, int status, Object payload) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        ResponseCompression.Encoding encoding = ResponseCompression.streamEncoding(exchange);
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream os = encoding == null
+                ? exchange.getResponseBody()
+                : encoding.wrap(exchange.getResponseBody())) {
+            WRITER.writeValue(os, payload);
+        }
+    }
+
+    /**
+     * Send a list response, streamed if it has more than STREAM_THRESHOLD items
+     * @param itemCount - number of list items in payload
+     */
+    public static void sendList(HttpExchange exchange, int status, Object payload, int itemCount) throws IOException {
+        if (itemCount > STREAM_THRESHOLD) {
+            stream(exchange, status, payload);
+        } else {
+            send(exchange, status, payload);
+        }
+    }
+
+    /**
+     * Writes a streamed JSON response token by token
+     */
+    @FunctionalInterface
+    public interface JsonSource {
+        void writeTo(JsonGenerator json) throws IOException, SQLException;
+    }
+
+    /**
+     * Writes the values of a streamed NDJSON response
+     */
+    @FunctionalInterface
+    public interface LineWriter {
+        void write(Object value) throws IOException;
+    }
+
+    /**
+     * Produces the values of a streamed NDJSON response, e.g. from a database cursor
+     */
+    @FunctionalInterface
+    public interface LineSource {
+        void writeTo(LineWriter out) throws IOException, SQLException;
+    }
+
+    /**
+     * Send a 200 JSON response that the source writes while it reads its rows, e.g. from a
+     * database cursor (json.writeObject(row) per item)
+     *
+     * Up to STREAM_BUFFER_BYTES are held back (see DeferredBody): a short body is sent with
+     * a fixed Content-Length, and a source that fails early still gets a regular error
+     * response. Once streaming has started the status can't change any more; the document
+     * is then left unterminated, which the client's JSON parser reports.
+     */
+    public static void streamJson(HttpExchange exchange, JsonSource source) throws IOException, SQLException {
+        DeferredBody body = new DeferredBody(exchange, CONTENT_TYPE);
+        JsonGenerator json = STREAM_MAPPER.createGenerator(body);
+
+        try {
+            source.writeTo(json);
+        } catch (SQLException | RuntimeException e) {
+            if (!body.streaming()) throw e;
+            e.printStackTrace();
+            body.close();   // json is not closed, it would complete the document
+            return;
+        }
+        json.close();
+    }
+
+    /**
+     * Send a 200 NDJSON response (one JSON value per line), serializing each value as the
+     * source produces it. Buffering and early failures as in streamJson; a failure after
+     * streaming has started ends the stream with an {"error": ...} line.
+     */
+    public static void streamLines(HttpExchange exchange, LineSource source) throws IOException, SQLException {
+        DeferredBody body = new DeferredBody(exchange, NDJSON_CONTENT_TYPE);
+        JsonGenerator json = STREAM_MAPPER.createGenerator(body);
+        json.setRootValueSeparator(null);   // lines are separated by '\n' only
+        LineWriter out = value -> {
+            json.writeObject(value);
+            json.writeRaw('\n');
+        };
+
+        try {
+            source.writeTo(out);
+        } catch (SQLException | RuntimeException e) {
+            if (!body.streaming()) throw e;
+            e.printStackTrace();
+            out.write(Map.of("error", "Stream aborted"));
+        }
+        json.close();
+    }
+
+    /**
+     * Body of a streamed response: buffers the first STREAM_BUFFER_BYTES, then sends the
+     * headers and switches to chunked transfer encoding. Closed before that, the buffer is
+     * sent as a fixed-length response.
+     */
+    private static final class DeferredBody extends OutputStream {
+
+        private final HttpExchange exchange;
+        private final String contentType;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        private OutputStream out;   // set once streaming
+
+        DeferredBody(HttpExchange exchange, String contentType) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+        }
+
+        boolean streaming() {
+            return out != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null && buffer.size() + len <= STREAM_BUFFER_BYTES) {
+                buffer.write(b, off, len);
+                return;
+            }
+            if (out == null) startStreaming();
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();   // writes the compression trailer and the last chunk
+            } else if (buffer != null) {
+                sendBytes(exchange, 200, buffer.toByteArray(), contentType);
+                buffer = null;
+            }
+        }
+
+        private void startStreaming() throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            ResponseCompression.Encoding encoding = ResponseCompression.streamEncoding(exchange);
+            exchange.sendResponseHeaders(200, 0);
+            out = encoding == null ? exchange.getResponseBody() : encoding.wrap(exchange.getResponseBody());
+            buffer.writeTo(out);
+            buffer = null;
+        }
+    }
+
+    /**
+     * Serialize a payload, e.g. to cache the bytes
+     */
+    public static byte[] toBytes(Object payload) throws IOException {
+        return WRITER.writeValueAsBytes(payload);
+    }
+
+    /**
+     * Send an already serialized JSON body with a fixed Content-Length
+     */
+    public static void sendBytes(HttpExchange exchange, int status, byte[] json) throws IOException {
+        sendBytes(exchange, status, json, CONTENT_TYPE);
+    }
+
+    /**
+     * Send a cached response body, reusing its encoded form from earlier requests
+     */
+    public static void sendCached(HttpExchange exchange, int status, ResponseCache.CachedResponse response)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        ResponseCompression.Encoding encoding = ResponseCompression.bodyEncoding(exchange, response.body().length);
+        write(exchange, status, encoding == null ? response.body() : response.encoded(encoding));
+    }
+
+    private static void sendBytes(HttpExchange exchange, int status, byte[] json, String contentType)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        write(exchange, status, ResponseCompression.encode(exchange, json));
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static <T> T parse(HttpExchange exchange, ObjectReader reader) throws IOException {
+        try (InputStream in = exchange.getRequestBody();
+             JsonParser parser = reader.createParser(in)) {
+            if (parser.nextToken() == null) return null;   // empty body
+            return reader.readValue(parser);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid request body: " + e.getOriginalMessage());
+        }
+    }
+}
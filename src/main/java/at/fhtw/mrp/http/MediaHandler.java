@@ -1,21 +1,20 @@
 package at.fhtw.mrp.http;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.model.MediaEntry;
+import at.fhtw.mrp.model.RatingStats;
 import at.fhtw.mrp.model.User;
 import at.fhtw.mrp.service.MediaService;
+import at.fhtw.mrp.repo.MediaRepository;
+import at.fhtw.mrp.repo.Page;
 import at.fhtw.mrp.repo.UserRepository;
 import at.fhtw.mrp.util.TokenService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,35 +22,54 @@ import java.util.UUID;
 /**
  * Media Handler
  * Supports: Filtering, Sorting, Search
+ *
+ * Endpoints:
+ * - POST   /api/media
+ * - POST   /api/media/batch ({"items": [...]}, see BatchRequest)
+ * - GET    /api/media (filters, sortBy, sortOrder, limit, cursor)
+ * - GET    /api/media/export (NDJSON of the whole catalog, stats=true adds rating aggregates)
+ * - GET    /api/media/{id}
+ * - PUT    /api/media/{id}
+ * - DELETE /api/media/{id}
+ *
+ * Both GET endpoints support conditional requests (ETag / If-None-Match → 304),
+ * the detail view also Last-Modified / If-Modified-Since.
+ *
+ * List responses are cached as serialized bytes per parameter set (ResponseCache).
+ * Media writes drop them at once; rating and favorite changes (score / popularity
+ * order) show up at the latest after LIST_CACHE_TTL_SECONDS + LIST_CACHE_STALE_SECONDS
+ * (35s by default): a stale response is still served while it is refreshed.
  */
-public class MediaHandler implements HttpHandler {
+public class MediaHandler {
 
     private final MediaService mediaService;
     private final UserRepository userRepository = new UserRepository();
-    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Serialized GET /api/media responses, dropped on every media create/update/delete
+    private final ResponseCache listCache = new ResponseCache(
+            AppConfig.LIST_CACHE_MAX_ENTRIES,
+            AppConfig.LIST_CACHE_MAX_BYTES,
+            AppConfig.LIST_CACHE_TTL_SECONDS * 1000,
+            AppConfig.LIST_CACHE_STALE_SECONDS * 1000);
 
     // Constructor
     public MediaHandler(MediaService mediaService, Object ratingService, Object authService) {
         this.mediaService = mediaService;
+        mediaService.addChangeListener(listCache::invalidateAll);
     }
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        try {
-            String method = exchange.getRequestMethod();
-            String path = exchange.getRequestURI().getPath();
-
-            switch (method) {
-                case "POST" -> handleCreate(exchange);
-                case "GET" -> handleList(exchange, path);
-                case "PUT" -> handleUpdate(exchange, path);
-                case "DELETE" -> handleDelete(exchange, path);
-                default -> sendResponse(exchange, 405, Map.of("error", "Method not allowed"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            sendResponse(exchange, 500, Map.of("error", e.getMessage()));
-        }
+    public ResponseCache getListCache() {
+        return listCache;
+    }
+
+    public void registerRoutes(Router router) {
+        router.post("/api/media", (ex, p) -> handleCreate(ex));
+        router.post("/api/media/batch", (ex, p) -> handleCreateBatch(ex));
+        router.get("/api/media", (ex, p) -> handleList(ex));
+        router.get("/api/media/export", (ex, p) -> handleExport(ex));
+        router.get("/api/media/{id:uuid}", (ex, p) -> handleGet(ex, p.uuid("id")));
+        router.put("/api/media/{id:uuid}", (ex, p) -> handleUpdate(ex, p.uuid("id")));
+        router.delete("/api/media/{id:uuid}", (ex, p) -> handleDelete(ex, p.uuid("id")));
     }
 
     // Helper: Authenticate user from Bearer token
@@ -69,54 +87,25 @@ public class MediaHandler implements HttpHandler {
     }
 
     // Helper: Parse JSON request body
-    @SuppressWarnings("unchecked")
     private Map<String, Object> parseRequestBody(HttpExchange exchange) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody()));
-        StringBuilder body = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            body.append(line);
-        }
-        if (body.length() == 0) return new HashMap<>();
-        return mapper.readValue(body.toString(), Map.class);
-    }
-
-    // Helper: Get single query parameter
-    private String getQueryParam(HttpExchange exchange, String paramName) {
-        String query = exchange.getRequestURI().getQuery();
-        if (query == null) return null;
-        for (String param : query.split("&")) {
-            String[] kv = param.split("=", 2);
-            if (kv.length == 2 && kv[0].equals(paramName)) {
-                return kv[1];
-            }
-        }
-        return null;
-    }
-
-    // Helper: Get all query parameters
-    private Map<String, String> getAllQueryParams(HttpExchange exchange) {
-        Map<String, String> params = new HashMap<>();
-        String query = exchange.getRequestURI().getQuery();
-        if (query == null) return params;
-        for (String pair : query.split("&")) {
-            String[] kv = pair.split("=", 2);
-            if (kv.length == 2) {
-                params.put(kv[0], kv[1]);
-            }
+        return JsonCodec.readMap(exchange);
+    }
+
+    // Helper: Serialize one page of a list, with its ETag
+    private ResponseCache.CachedResponse buildPage(Page<MediaEntry> page, boolean envelope) throws IOException {
+        // The list shows entry fields only, so ids + versions identify the body
+        StringBuilder validator = new StringBuilder(envelope ? "page:" : "list:").append(page.nextCursor());
+        for (MediaEntry entry : page.items()) {
+            validator.append(',').append(entry.getId()).append(':').append(entry.getVersion());
         }
-        return params;
+
+        return new ResponseCache.CachedResponse(JsonCodec.toBytes(PagedList.body(page, envelope)),
+                ConditionalRequest.etag(validator), PagedList.headers(page, envelope));
     }
 
     // Helper: Send JSON response
     private void sendResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
-        String json = mapper.writeValueAsString(data);
-        byte[] bytes = json.getBytes();
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
-        }
+        JsonCodec.send(exchange, statusCode, data);
     }
 
     private void handleCreate(HttpExchange exchange) throws IOException, SQLException {
@@ -132,110 +121,139 @@ public class MediaHandler implements HttpHandler {
         sendResponse(exchange, 201, Map.of("id", mediaId, "message", "Media created successfully"));
     }
 
-    private void handleList(HttpExchange exchange, String path) throws IOException, SQLException {
-        String[] parts = path.split("/");
-        // Path: /api/media/{id} splits to ["", "api", "media", "{id}"]
-        // Only call handleGet if there's actually an ID (parts[3] exists)
-        if (parts.length >= 4 && !parts[3].isBlank()) {
-            handleGet(exchange, parts[3]);  // Changed from parts[2] to parts[3]
+    private void handleCreateBatch(HttpExchange exchange) throws IOException, SQLException {
+        Optional<User> userOpt = authenticateUser(exchange);
+        if (userOpt.isEmpty()) {
+            sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
             return;
         }
 
-        Map<String, String> params = getAllQueryParams(exchange);
-        String search = params.get("search");
-        String genre = params.get("genre");
-        String type = params.get("type");
-        String year = params.get("year");
-        String minYear = params.get("minYear");
-        String maxYear = params.get("maxYear");
-        String maxAge = params.get("maxAge");
-        String sortBy = params.get("sortBy");
-        String sortOrder = params.get("sortOrder");
-
-        List<MediaEntry> results;
-
-        if (genre != null || type != null || year != null || minYear != null ||
-                maxYear != null || maxAge != null || sortBy != null) {
-            Map<String, String> filters = new HashMap<>();
-            if (genre != null) filters.put("genre", genre);
-            if (type != null) filters.put("type", type);
-            if (year != null) filters.put("year", year);
-            if (minYear != null) filters.put("minYear", minYear);
-            if (maxYear != null) filters.put("maxYear", maxYear);
-            if (maxAge != null) filters.put("maxAge", maxAge);
-            results = mediaService.filterAndSort(filters, sortBy, sortOrder);
-        } else if (search != null) {
-            results = mediaService.searchByTitle(search);
-        } else {
-            results = mediaService.list(null);
-        }
-
-        sendResponse(exchange, 200, results);
+        BatchRequest.send(exchange, mediaService.createBatch(userOpt.get().getId(), BatchRequest.readItems(exchange)));
     }
 
-    private void handleGet(HttpExchange exchange, String idStr) throws IOException, SQLException {
+    private void handleList(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> params = QueryString.parse(exchange.getRequestURI().getRawQuery());
+
+        // Identical parameter sets share one cached response
+        ResponseCache.CachedResponse response;
         try {
-            UUID id = UUID.fromString(idStr);
-            Optional<MediaEntry> media = mediaService.get(id);
+            response = listCache.get(ResponseCache.key(params), () -> loadList(params));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, Map.of("error", e.getMessage()));
+            return;
+        }
 
-            if (media.isEmpty()) {
-                sendResponse(exchange, 404, Map.of("error", "Media not found"));
-                return;
-            }
+        response.headers().forEach(exchange.getResponseHeaders()::set);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (ConditionalRequest.notModified(exchange, response.etag(), null)) return;
 
-            MediaEntry entry = media.get();
-            Map<String, Object> response = Map.of(
-                    "id", entry.getId(),
-                    "ownerId", entry.getOwnerId(),
-                    "title", entry.getTitle(),
-                    "description", entry.getDescription(),
-                    "mediaType", entry.getMediaType(),
-                    "releaseYear", entry.getReleaseYear() != null ? entry.getReleaseYear() : 0,
-                    "genres", entry.getGenres() != null ? entry.getGenres() : "",
-                    "ageRestriction", entry.getAgeRestriction() != null ? entry.getAgeRestriction() : 0,
-                    "averageScore", mediaService.averageScore(id)
-            );
-
-            sendResponse(exchange, 200, response);
-        } catch (IllegalArgumentException e) {
-            sendResponse(exchange, 400, Map.of("error", "Invalid media ID"));
+        JsonCodec.sendCached(exchange, 200, response);
+    }
+
+    private ResponseCache.CachedResponse loadList(Map<String, String> params) throws SQLException {
+        boolean paged = PagedList.isPaged(params);
+        Integer limit = PagedList.limit(params);
+
+        // Keys: search, searchMode, genre, type, year, minYear, maxYear, maxAge
+        Page<MediaEntry> page = mediaService.filterAndSortPage(params, params.get("sortBy"),
+                params.get("sortOrder"), limit, params.get("cursor"));
+        try {
+            return buildPage(page, paged);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    private void handleUpdate(HttpExchange exchange, String path) throws IOException, SQLException {
+    // Streamed straight from a database cursor, never cached or buffered as a whole
+    private void handleExport(HttpExchange exchange) throws IOException, SQLException {
         Optional<User> userOpt = authenticateUser(exchange);
         if (userOpt.isEmpty()) {
             sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
             return;
         }
 
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Media ID required"));
-            return;
+        Map<String, String> params = QueryString.parse(exchange.getRequestURI().getRawQuery());
+        boolean withStats = Boolean.parseBoolean(params.get("stats"));
+
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        JsonCodec.streamLines(exchange, out -> mediaService.export(withStats, row -> out.write(exportLine(row))));
+    }
+
+    // Same field names as the create request, so an export can be imported again (CatalogImport)
+    private static Map<String, Object> exportLine(MediaRepository.ExportRow row) {
+        MediaEntry entry = row.entry();
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", entry.getId());
+        line.put("ownerId", entry.getOwnerId());
+        line.put("title", entry.getTitle());
+        line.put("description", entry.getDescription());
+        line.put("mediaType", entry.getMediaType());
+        line.put("releaseYear", entry.getReleaseYear());
+        line.put("genres", entry.getGenres());
+        line.put("ageRestriction", entry.getAgeRestriction());
+        line.put("version", entry.getVersion());
+        if (row.stats() != null) {
+            line.put("averageScore", row.stats().getAverage());
+            line.put("ratingCount", row.stats().getCount());
+            line.put("ratingDistribution", row.stats().getDistribution());
         }
+        return line;
+    }
 
-        UUID mediaId = UUID.fromString(parts[3]);
-        Map<String, Object> body = parseRequestBody(exchange);
-        mediaService.updateFromRequest(mediaId, userOpt.get(), body);
+    private void handleGet(HttpExchange exchange, UUID id) throws IOException, SQLException {
+        Optional<MediaService.MediaDetail> detail = mediaService.getDetail(id);
+
+        if (detail.isEmpty()) {
+            sendResponse(exchange, 404, Map.of("error", "Media not found"));
+            return;
+        }
 
-        sendResponse(exchange, 200, Map.of("message", "Media updated successfully"));
+        MediaEntry entry = detail.get().entry();
+        MediaRepository.MediaState state = detail.get().state();
+
+        // updated_at also moves with rating changes, so it covers the stats shown below
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        String etag = ConditionalRequest.etag(state.version(), state.updatedAt());
+        if (ConditionalRequest.notModified(exchange, etag, state.updatedAt().toInstant())) return;
+
+        RatingStats stats = state.stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", entry.getId());
+        response.put("ownerId", entry.getOwnerId());
+        response.put("title", entry.getTitle());
+        response.put("description", entry.getDescription());
+        response.put("mediaType", entry.getMediaType());
+        response.put("releaseYear", entry.getReleaseYear() != null ? entry.getReleaseYear() : 0);
+        response.put("genres", entry.getGenres() != null ? entry.getGenres() : "");
+        response.put("ageRestriction", entry.getAgeRestriction() != null ? entry.getAgeRestriction() : 0);
+        response.put("version", entry.getVersion());
+        response.put("averageScore", stats.getAverage());
+        response.put("ratingCount", stats.getCount());
+        response.put("ratingDistribution", stats.getDistribution());
+
+        sendResponse(exchange, 200, response);
     }
 
-    private void handleDelete(HttpExchange exchange, String path) throws IOException, SQLException {
+    private void handleUpdate(HttpExchange exchange, UUID mediaId) throws IOException, SQLException {
         Optional<User> userOpt = authenticateUser(exchange);
         if (userOpt.isEmpty()) {
             sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
             return;
         }
 
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Media ID required"));
+        Map<String, Object> body = parseRequestBody(exchange);
+        long version = mediaService.updateFromRequest(mediaId, userOpt.get(), body);
+
+        sendResponse(exchange, 200, Map.of("message", "Media updated successfully", "version", version));
+    }
+
+    private void handleDelete(HttpExchange exchange, UUID mediaId) throws IOException, SQLException {
+        Optional<User> userOpt = authenticateUser(exchange);
+        if (userOpt.isEmpty()) {
+            sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
             return;
         }
 
-        UUID mediaId = UUID.fromString(parts[3]);
         mediaService.delete(mediaId, userOpt.get());
 
         sendResponse(exchange, 200, Map.of("message", "Media deleted successfully"));
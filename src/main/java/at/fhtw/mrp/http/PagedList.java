@@ -0,0 +1,80 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.config.AppConfig;
+import at.fhtw.mrp.repo.Page;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request and response format shared by the paginated GET list endpoints
+ *
+ * Paged:    ?limit=&cursor=  ->  {"items": [...], "nextCursor": "..." | null}
+ *           (a missing or invalid limit means AppConfig.LIST_DEFAULT_LIMIT)
+ * Un-paged: no limit/cursor  ->  [...]   (the original plain array format)
+ *
+ * Un-paged lists are capped at AppConfig.LIST_MAX_LIMIT rows. When rows were cut
+ * off the response has "X-Truncated: true"; clients can continue with the cursor.
+ * nextCursor is always in the X-Next-Cursor header, for both formats.
+ */
+final class PagedList {
+
+    private PagedList() {}
+
+    /**
+     * limit or cursor switch to the paged response format
+     */
+    static boolean isPaged(Map<String, String> query) {
+        return query.containsKey("limit") || query.containsKey("cursor");
+    }
+
+    /**
+     * Requested page size
+     * @return the limit parameter, LIST_DEFAULT_LIMIT if paged without a valid one,
+     *         null for un-paged lists (the service then uses LIST_MAX_LIMIT)
+     */
+    static Integer limit(Map<String, String> query) {
+        Integer limit = parseLimit(query.get("limit"));
+        if (limit == null && isPaged(query)) return AppConfig.LIST_DEFAULT_LIMIT;
+        return limit;
+    }
+
+    /**
+     * Parse an optional limit parameter (invalid values mean "no explicit limit")
+     */
+    static Integer parseLimit(String limit) {
+        if (limit == null) return null;
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Response body of a page: the envelope when paged, otherwise the plain item array
+     */
+    static Object body(Page<?> page, boolean paged) {
+        if (!paged) return page.items();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("items", page.items());
+        body.put("nextCursor", page.nextCursor());
+        return body;
+    }
+
+    /**
+     * Response headers of a page (X-Next-Cursor, X-Truncated)
+     */
+    static Map<String, String> headers(Page<?> page, boolean paged) {
+        if (!page.hasMore()) return Map.of();
+        if (paged) return Map.of("X-Next-Cursor", page.nextCursor());
+        return Map.of("X-Next-Cursor", page.nextCursor(), "X-Truncated", "true");
+    }
+
+    static void send(HttpExchange exchange, Page<?> page, boolean paged) throws IOException {
+        headers(page, paged).forEach(exchange.getResponseHeaders()::set);
+        JsonCodec.sendList(exchange, 200, body(page, paged), page.items().size());
+    }
+}
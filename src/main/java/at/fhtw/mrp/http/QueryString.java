@@ -0,0 +1,49 @@
+package at.fhtw.mrp.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Query string parsing shared by all handlers
+ * Single pass over the raw query without regex; keys and values are URL-decoded.
+ */
+public final class QueryString {
+
+    private QueryString() {}
+
+    /**
+     * Parse a raw query string (URI.getRawQuery())
+     * Pairs without '=' are ignored; for repeated keys the last value wins.
+     * @return mutable map, empty if rawQuery is null
+     */
+    public static Map<String, String> parse(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+
+        int start = 0;
+        int len = rawQuery.length();
+        while (start < len) {
+            int end = rawQuery.indexOf('&', start);
+            if (end < 0) end = len;
+
+            int eq = rawQuery.indexOf('=', start);
+            if (eq >= 0 && eq < end) {
+                params.put(decode(rawQuery.substring(start, eq)), decode(rawQuery.substring(eq + 1, end)));
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    private static String decode(String s) {
+        // Fast path: nothing to decode
+        if (s.indexOf('%') < 0 && s.indexOf('+') < 0) return s;
+        try {
+            return URLDecoder.decode(s, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return s;   // malformed escape, keep raw value
+        }
+    }
+}
@@ -1,20 +1,18 @@
 package at.fhtw.mrp.http;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.model.Rating;
 import at.fhtw.mrp.model.User;
+import at.fhtw.mrp.http.dto.ModerationRequest;
+import at.fhtw.mrp.http.dto.RatingRequest;
 import at.fhtw.mrp.service.RatingService;
+import at.fhtw.mrp.repo.Page;
 import at.fhtw.mrp.repo.UserRepository;
 import at.fhtw.mrp.util.TokenService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,60 +23,65 @@ import java.util.UUID;
  *
  * User Endpoints:
  * - POST /api/ratings - Create rating (starts as pending)
+ * - POST /api/ratings/batch - Create many ratings ({"items": [...]}, see BatchRequest)
  * - GET /api/ratings - Get my ratings (including pending)
  * - GET /api/ratings?mediaId={id} - Get approved ratings for media
+ *   (both list endpoints accept limit and cursor for keyset pagination)
  * - PUT /api/ratings/{id} - Edit rating
  * - DELETE /api/ratings/{id} - Delete rating
  *
  * Admin Endpoints:
- * - GET /api/ratings/pending - Get all pending ratings
+ * - GET /api/ratings/pending - Get all pending ratings (oldest first)
  * - POST /api/ratings/{id}/approve - Approve rating
  * - POST /api/ratings/{id}/reject - Reject rating
+ *   (both clear a claim, 409 while another moderator holds a live claim)
+ *
+ * Moderation queue (several moderators in parallel, see RatingService.claimPending):
+ * - POST /api/ratings/moderation/claim?limit=n - Claim the next pending ratings
+ * - POST /api/ratings/moderation/approve - Approve up to MODERATION_MAX_IDS ratings ({"ids": [...]})
+ * - POST /api/ratings/moderation/reject - Reject up to MODERATION_MAX_IDS ratings ({"ids": [...]})
  */
-public class RatingHandler implements HttpHandler {
+public class RatingHandler {
 
     private final RatingService ratingService;
     private final UserRepository userRepository = new UserRepository();
-    private final ObjectMapper mapper = new ObjectMapper();
 
     public RatingHandler(RatingService ratingService, Object authService, Object userRepo) {
         this.ratingService = ratingService;
     }
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        try {
-            String method = exchange.getRequestMethod();
-            String path = exchange.getRequestURI().getPath();
+    public void registerRoutes(Router router) {
+        router.post("/api/ratings", authenticated((ex, user, p) -> handleCreate(ex, user)));
+        router.post("/api/ratings/batch", authenticated((ex, user, p) -> handleCreateBatch(ex, user)));
+        router.get("/api/ratings", authenticated((ex, user, p) -> handleList(ex, user)));
+        router.put("/api/ratings/{id:uuid}", authenticated((ex, user, p) -> handleUpdate(ex, user, p.uuid("id"))));
+        router.delete("/api/ratings/{id:uuid}", authenticated((ex, user, p) -> handleDelete(ex, user, p.uuid("id"))));
+
+        // Admin endpoints
+        router.get("/api/ratings/pending", authenticated((ex, user, p) -> handleGetPending(ex)));
+        router.post("/api/ratings/{id:uuid}/approve", authenticated((ex, user, p) -> handleApprove(ex, user, p.uuid("id"))));
+        router.post("/api/ratings/{id:uuid}/reject", authenticated((ex, user, p) -> handleReject(ex, user, p.uuid("id"))));
+        router.post("/api/ratings/moderation/claim", authenticated((ex, user, p) -> handleClaim(ex, user)));
+        router.post("/api/ratings/moderation/approve", authenticated((ex, user, p) -> handleDecide(ex, user, true)));
+        router.post("/api/ratings/moderation/reject", authenticated((ex, user, p) -> handleDecide(ex, user, false)));
+    }
 
+    // Route that needs the authenticated user
+    @FunctionalInterface
+    private interface UserRoute {
+        void handle(HttpExchange exchange, User user, Router.PathParams params) throws Exception;
+    }
+
+    // All rating endpoints require a valid token
+    private Router.Route authenticated(UserRoute route) {
+        return (exchange, params) -> {
             Optional<User> userOpt = authenticateUser(exchange);
             if (userOpt.isEmpty()) {
                 sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
                 return;
             }
-            User user = userOpt.get();
-
-            // Route to appropriate handler
-            if (method.equals("GET") && path.endsWith("/pending")) {
-                handleGetPending(exchange);
-            } else if (method.equals("POST") && path.contains("/approve")) {
-                handleApprove(exchange, path);
-            } else if (method.equals("POST") && path.contains("/reject")) {
-                handleReject(exchange, path);
-            } else {
-                // Regular CRUD operations
-                switch (method) {
-                    case "POST" -> handleCreate(exchange, user);
-                    case "GET" -> handleList(exchange, user);
-                    case "PUT" -> handleUpdate(exchange, user, path);
-                    case "DELETE" -> handleDelete(exchange, user, path);
-                    default -> sendResponse(exchange, 405, Map.of("error", "Method not allowed"));
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            sendResponse(exchange, 500, Map.of("error", e.getMessage()));
-        }
+            route.handle(exchange, userOpt.get(), params);
+        };
     }
 
     private Optional<User> authenticateUser(HttpExchange exchange) {
@@ -94,48 +97,22 @@ public class RatingHandler implements HttpHandler {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private Map<String, Object> parseRequestBody(HttpExchange exchange) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody()));
-        StringBuilder body = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            body.append(line);
-        }
-        if (body.length() == 0) return new HashMap<>();
-        return mapper.readValue(body.toString(), Map.class);
-    }
-
-    private String getQueryParam(HttpExchange exchange, String paramName) {
-        String query = exchange.getRequestURI().getQuery();
-        if (query == null) return null;
-        for (String param : query.split("&")) {
-            String[] kv = param.split("=", 2);
-            if (kv.length == 2 && kv[0].equals(paramName)) {
-                return kv[1];
-            }
-        }
-        return null;
+        return JsonCodec.readMap(exchange);
     }
 
     private void sendResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
-        String json = mapper.writeValueAsString(data);
-        byte[] bytes = json.getBytes();
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
-        }
+        JsonCodec.send(exchange, statusCode, data);
     }
 
     private void handleCreate(HttpExchange exchange, User user) throws IOException, SQLException {
-        Map<String, Object> body = parseRequestBody(exchange);
-
-        UUID mediaId = UUID.fromString((String) body.get("mediaId"));
-        int stars = ((Number) body.get("stars")).intValue();
-        String comment = (String) body.get("comment");
+        RatingRequest body = JsonCodec.read(exchange, RatingRequest.class);
+        if (body == null || body.mediaId() == null || body.stars() == null) {
+            sendResponse(exchange, 400, Map.of("error", "mediaId and stars are required"));
+            return;
+        }
 
-        UUID ratingId = ratingService.create(mediaId, user.getId(), stars, comment);
+        UUID ratingId = ratingService.create(body.mediaId(), user.getId(), body.stars(), body.comment());
 
         sendResponse(exchange, 201, Map.of(
                 "id", ratingId,
@@ -144,49 +121,46 @@ public class RatingHandler implements HttpHandler {
         ));
     }
 
-    private void handleList(HttpExchange exchange, User user) throws IOException, SQLException {
-        String mediaIdParam = getQueryParam(exchange, "mediaId");
-
-        List<Rating> ratings;
-        if (mediaIdParam != null) {
-            UUID mediaId = UUID.fromString(mediaIdParam);
-            ratings = ratingService.listByMedia(mediaId); // Only approved
-        } else {
-            // Cast from List<?> to List<Rating>
-            @SuppressWarnings("unchecked")
-            List<Rating> userRatings = (List<Rating>) ratingService.listByUser(user.getId());
-            ratings = userRatings;
-        }
-
-        sendResponse(exchange, 200, ratings);
+    private void handleCreateBatch(HttpExchange exchange, User user) throws IOException, SQLException {
+        BatchRequest.send(exchange, ratingService.createBatch(user.getId(), BatchRequest.readItems(exchange)));
     }
 
-    private void handleUpdate(HttpExchange exchange, User user, String path) throws IOException, SQLException {
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Rating ID required"));
+    private void handleList(HttpExchange exchange, User user) throws IOException, SQLException {
+        Map<String, String> query = QueryString.parse(exchange.getRequestURI().getRawQuery());
+        String mediaIdParam = query.get("mediaId");
+        String cursor = query.get("cursor");
+        boolean paged = PagedList.isPaged(query);
+        Integer limit = PagedList.limit(query);
+
+        Page<Rating> page;
+        try {
+            if (mediaIdParam != null) {
+                UUID mediaId = UUID.fromString(mediaIdParam);
+                page = ratingService.listByMediaPage(mediaId, limit, cursor); // Only approved
+            } else {
+                page = ratingService.listByUserPage(user.getId(), limit, cursor);
+            }
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, Map.of("error", e.getMessage()));
             return;
         }
 
-        UUID ratingId = UUID.fromString(parts[3]);
+        PagedList.send(exchange, page, paged);
+    }
+
+    private void handleUpdate(HttpExchange exchange, User user, UUID ratingId) throws IOException, SQLException {
         Map<String, Object> body = parseRequestBody(exchange);
 
-        ratingService.update(ratingId, user.getId(), body);
+        long version = ratingService.updateVersioned(ratingId, user.getId(), body);
 
         sendResponse(exchange, 200, Map.of(
                 "message", "Rating updated successfully (pending approval if comment changed)",
-                "id", ratingId
+                "id", ratingId,
+                "version", version
         ));
     }
 
-    private void handleDelete(HttpExchange exchange, User user, String path) throws IOException, SQLException {
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Rating ID required"));
-            return;
-        }
-
-        UUID ratingId = UUID.fromString(parts[3]);
+    private void handleDelete(HttpExchange exchange, User user, UUID ratingId) throws IOException, SQLException {
         ratingService.delete(ratingId, user.getId());
 
         sendResponse(exchange, 200, Map.of("message", "Rating deleted successfully"));
@@ -197,47 +171,59 @@ public class RatingHandler implements HttpHandler {
     private void handleGetPending(HttpExchange exchange) throws IOException, SQLException {
         // For now, any authenticated user can see pending ratings
 
-        List<Rating> pendingRatings = ratingService.getPendingRatings();
+        // Serialized while the rows are read, so the total can only follow the list
+        JsonCodec.streamJson(exchange, json -> {
+            json.writeStartObject();
+            json.writeArrayFieldStart("ratings");
+            long total = ratingService.streamPendingRatings(json::writeObject);
+            json.writeEndArray();
+            json.writeNumberField("total", total);
+            json.writeEndObject();
+        });
+    }
+
+    private void handleApprove(HttpExchange exchange, User user, UUID ratingId) throws IOException, SQLException {
+        ratingService.approveRating(ratingId, user.getId());
 
         sendResponse(exchange, 200, Map.of(
-                "total", pendingRatings.size(),
-                "ratings", pendingRatings
+                "message", "Rating approved successfully",
+                "ratingId", ratingId
         ));
     }
 
-    private void handleApprove(HttpExchange exchange, String path) throws IOException, SQLException {
-
-        // Extract rating ID from path: /api/ratings/{id}/approve
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Rating ID required"));
-            return;
-        }
-
-        UUID ratingId = UUID.fromString(parts[3]);
-        ratingService.approveRating(ratingId);
+    private void handleReject(HttpExchange exchange, User user, UUID ratingId) throws IOException, SQLException {
+        ratingService.rejectRating(ratingId, user.getId());
 
         sendResponse(exchange, 200, Map.of(
-                "message", "Rating approved successfully",
+                "message", "Rating rejected successfully",
                 "ratingId", ratingId
         ));
     }
 
-    private void handleReject(HttpExchange exchange, String path) throws IOException, SQLException {
+    private void handleClaim(HttpExchange exchange, User user) throws IOException, SQLException {
+        Map<String, String> query = QueryString.parse(exchange.getRequestURI().getRawQuery());
+        List<Rating> claimed = ratingService.claimPending(user.getId(), PagedList.parseLimit(query.get("limit")));
 
-        // Extract rating ID from path: /api/ratings/{id}/reject
-        String[] parts = path.split("/");
-        if (parts.length < 4) {
-            sendResponse(exchange, 400, Map.of("error", "Rating ID required"));
+        sendResponse(exchange, 200, Map.of(
+                "ratings", claimed,
+                "claimSeconds", AppConfig.MODERATION_CLAIM_SECONDS
+        ));
+    }
+
+    private void handleDecide(HttpExchange exchange, User user, boolean approve) throws IOException, SQLException {
+        ModerationRequest body = JsonCodec.read(exchange, ModerationRequest.class);
+        if (body == null || body.ids() == null) {
+            sendResponse(exchange, 400, Map.of("error", "ids are required"));
             return;
         }
 
-        UUID ratingId = UUID.fromString(parts[3]);
-        ratingService.rejectRating(ratingId);
+        RatingService.ModerationResult result = approve
+                ? ratingService.approvePending(user.getId(), body.ids())
+                : ratingService.rejectPending(user.getId(), body.ids());
 
         sendResponse(exchange, 200, Map.of(
-                "message", "Rating rejected successfully",
-                "ratingId", ratingId
+                "decided", result.decided(),
+                "skipped", result.skipped()
         ));
     }
-}
\ No newline at end of file
+}
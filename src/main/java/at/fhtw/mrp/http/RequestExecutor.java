@@ -0,0 +1,141 @@
+package at.fhtw.mrp.http;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor for HttpServer exchanges
+ *
+ * Modes:
+ * - VIRTUAL  → one virtual thread per request
+ * - PLATFORM → fixed pool of maxConcurrency platform threads
+ *
+ * At most maxConcurrency requests run at the same time and at most queueLimit
+ * more may wait. Beyond that execute() throws RejectedExecutionException and
+ * HttpServer closes the connection, so overload sheds load instead of piling up.
+ */
+public final class RequestExecutor implements Executor {
+
+    public enum Mode {
+        VIRTUAL, PLATFORM;
+
+        /**
+         * Parse mode from configuration, defaulting to VIRTUAL
+         */
+        public static Mode parse(String value) {
+            if (value == null || value.isBlank()) return VIRTUAL;
+            return switch (value.trim().toLowerCase()) {
+                case "platform", "pool" -> PLATFORM;
+                case "virtual" -> VIRTUAL;
+                default -> throw new IllegalArgumentException("Unknown executor mode: " + value);
+            };
+        }
+    }
+
+    private final Mode mode;
+    private final int maxConcurrency;
+    private final int queueLimit;
+    private final ExecutorService delegate;
+    private final Semaphore running;
+
+    // Requests admitted but not yet finished (running + waiting)
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean shuttingDown;
+
+    public RequestExecutor(Mode mode, int maxConcurrency, int queueLimit) {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        if (queueLimit < 0) throw new IllegalArgumentException("queueLimit must not be negative");
+
+        this.mode = mode;
+        this.maxConcurrency = maxConcurrency;
+        this.queueLimit = queueLimit;
+        this.running = new Semaphore(maxConcurrency);
+
+        this.delegate = switch (mode) {
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("mrp-request-", 0).factory());
+            case PLATFORM -> new ThreadPoolExecutor(
+                    maxConcurrency, maxConcurrency,
+                    0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    Thread.ofPlatform().name("mrp-request-", 0).factory());
+        };
+    }
+
+    @Override
+    public void execute(Runnable exchange) {
+        if (shuttingDown) {
+            rejected.increment();
+            throw new RejectedExecutionException("Server is shutting down");
+        }
+
+        if (inFlight.incrementAndGet() > maxConcurrency + queueLimit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Server overloaded");
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    running.acquireUninterruptibly();
+                    try {
+                        exchange.run();
+                    } finally {
+                        running.release();
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Stop accepting requests and wait for in-flight ones to finish
+     * @param timeout - maximum time to wait before interrupting remaining requests
+     * @return true if all requests completed within the timeout
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        shuttingDown = true;
+        delegate.shutdown();
+        try {
+            if (delegate.awaitTermination(timeout, unit)) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.shutdownNow();
+        return false;
+    }
+
+    // Statistics
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getActive() {
+        return maxConcurrency - running.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,256 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.util.SingleFlight;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of serialized responses, keyed by normalized query parameters
+ *
+ * Entry lifecycle:
+ * - fresh (ttl): served as is
+ * - stale (up to ttl + stale): served as is, one background refresh is started
+ *   (stale-while-revalidate), so callers never wait for the database
+ * - expired: loaded synchronously; concurrent misses of one key share the load
+ *
+ * invalidateAll() drops everything and bumps a generation; a load that started before
+ * the invalidation is returned to its callers but not stored. Only the caller that runs
+ * a load stores it: one that joined the flight may have arrived after an invalidation
+ * the load did not see. Bounded by entry count and total body bytes (least recently
+ * used entries go first).
+ *
+ * A response keeps its gzip/deflate forms once they were first sent (see JsonCodec.sendCached),
+ * so cache hits are not compressed again. Only the uncompressed body counts against maxBytes;
+ * the encoded copies add a fraction of it.
+ */
+public final class ResponseCache {
+
+    /**
+     * Serialized response
+     */
+    public static final class CachedResponse {
+        private final byte[] body;
+        private final String etag;
+        private final Map<String, String> headers;
+
+        // Encoded bodies by Encoding.ordinal(), filled on first use
+        private final AtomicReferenceArray<byte[]> encoded =
+                new AtomicReferenceArray<>(ResponseCompression.Encoding.values().length);
+
+        /**
+         * @param body - JSON body (uncompressed)
+         * @param etag - strong ETag of the body
+         * @param headers - additional response headers (e.g. X-Next-Cursor)
+         */
+        public CachedResponse(byte[] body, String etag, Map<String, String> headers) {
+            this.body = body;
+            this.etag = etag;
+            this.headers = headers;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        public Map<String, String> headers() {
+            return headers;
+        }
+
+        /**
+         * Body in the given encoding, compressed on first use
+         * Concurrent first requests may both compress; one result is kept.
+         */
+        byte[] encoded(ResponseCompression.Encoding encoding) throws IOException {
+            int slot = encoding.ordinal();
+            byte[] bytes = encoded.get(slot);
+            if (bytes != null) return bytes;
+            encoded.compareAndSet(slot, null, ResponseCompression.compress(encoding, body));
+            return encoded.get(slot);
+        }
+    }
+
+    private static final class Entry {
+        final CachedResponse response;
+        final long generation;
+        final long freshUntil;
+        final long staleUntil;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(CachedResponse response, long generation, long now, long ttlMillis, long staleMillis) {
+            this.response = response;
+            this.generation = generation;
+            this.freshUntil = now + ttlMillis;
+            this.staleUntil = now + ttlMillis + staleMillis;
+        }
+    }
+
+    // Access-ordered for LRU eviction, guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private volatile long generation;
+
+    private final SingleFlight<String, CachedResponse> flights = new SingleFlight<>();
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final long staleMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries - maximum number of cached responses, 0 disables the cache
+     * @param maxBytes - maximum total size of cached bodies
+     * @param ttlMillis - how long a response is served without refresh
+     * @param staleMillis - how long after that it is still served while being refreshed
+     */
+    public ResponseCache(int maxEntries, long maxBytes, long ttlMillis, long staleMillis) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * Canonical cache key of a parameter map: sorted by name, URL-encoded
+     */
+    public static String key(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(params).entrySet()) {
+            if (!sb.isEmpty()) sb.append('&');
+            sb.append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8))
+              .append('=')
+              .append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cached response for the key, loaded with the loader if missing or expired
+     */
+    public CachedResponse get(String key, SingleFlight.Loader<CachedResponse> loader) throws SQLException {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            return loader.load();
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = lookup(key, now);
+        if (entry != null) {
+            if (now < entry.freshUntil) {
+                hits.increment();
+                return entry.response;
+            }
+            staleHits.increment();
+            if (entry.refreshing.compareAndSet(false, true)) {
+                refreshInBackground(key, loader, entry);
+            }
+            return entry.response;
+        }
+
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /**
+     * Drop all cached responses (after a write that may change any of them)
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    // Statistics
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d, hits=%d, staleHits=%d, misses=%d",
+                size(), getHits(), getStaleHits(), getMisses());
+    }
+
+    private synchronized Entry lookup(String key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.generation != generation || now >= entry.staleUntil) {
+            unlink(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private CachedResponse load(String key, SingleFlight.Loader<CachedResponse> loader) throws SQLException {
+        return flights.execute(key, () -> {
+            long generationBeforeLoad = generation;
+            CachedResponse response = loader.load();
+            store(key, response, generationBeforeLoad);
+            return response;
+        });
+    }
+
+    private void refreshInBackground(String key, SingleFlight.Loader<CachedResponse> loader, Entry stale) {
+        Thread.ofVirtual().name("response-cache-refresh").start(() -> {
+            try {
+                load(key, loader);
+            } catch (Exception e) {
+                // Keep serving the stale entry until it expires, the next request retries
+                System.err.println("Response cache refresh failed for " + key + ": " + e.getMessage());
+            } finally {
+                stale.refreshing.set(false);
+            }
+        });
+    }
+
+    private synchronized void store(String key, CachedResponse response, long generationBeforeLoad) {
+        if (generation != generationBeforeLoad) return;
+        // A single response that would take more than a quarter of the budget is not cached
+        if (response.body().length > maxBytes / 4) return;
+
+        unlink(key);
+        entries.put(key, new Entry(response, generation, System.currentTimeMillis(), ttlMillis, staleMillis));
+        totalBytes += response.body().length;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            totalBytes -= eldest.response.body().length;
+            it.remove();
+        }
+    }
+
+    private void unlink(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) totalBytes -= removed.response.body().length;
+    }
+}
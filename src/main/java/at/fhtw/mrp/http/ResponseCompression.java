@@ -0,0 +1,194 @@
+package at.fhtw.mrp.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip/deflate response compression, negotiated per request via Accept-Encoding
+ *
+ * Installed once as a filter on the router context in Main. The filter only negotiates:
+ * it picks an encoding for the request being handled. JsonCodec applies it when the
+ * response is written, because only the writer knows the body size:
+ * - fixed-length responses are compressed if they are at least minBytes long
+ *   (small bodies grow or barely shrink, and compression costs CPU)
+ * - chunked responses are always compressed while streaming
+ *
+ * The choice is kept in a ThreadLocal for the duration of the filter chain (the whole
+ * request runs on one thread). Exchange attributes can't be used: the JDK server stores
+ * them on the shared HttpContext, not per exchange.
+ *
+ * A strong ETag set by the handler is weakened (W/) whenever an encoding was negotiated,
+ * since the bytes may differ from the identity representation the tag was computed for.
+ * This also covers bodies too small to be encoded and 304 responses, so a client sees the
+ * same tag on the 200 and on every revalidation.
+ *
+ * Without the filter (e.g. in unit tests) responses are sent uncompressed.
+ */
+public final class ResponseCompression extends Filter {
+
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+
+        OutputStream wrap(OutputStream out) throws IOException {
+            return this == GZIP ? new GZIPOutputStream(out, 8192) : new DeflaterOutputStream(out);
+        }
+    }
+
+    private record Choice(Encoding encoding, int minBytes) {}
+
+    // Choice for the request handled by the current thread, null = send unencoded
+    private static final ThreadLocal<Choice> CURRENT = new ThreadLocal<>();
+
+    private final int minBytes;
+
+    /**
+     * @param minBytes - smallest fixed-length body that is compressed, negative disables compression
+     */
+    public ResponseCompression(int minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (minBytes < 0) {
+            chain.doFilter(exchange);
+            return;
+        }
+        // Representation depends on Accept-Encoding, caches must key on it
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        Encoding encoding = negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        CURRENT.set(encoding != null ? new Choice(encoding, minBytes) : null);
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "gzip/deflate response compression";
+    }
+
+    /**
+     * Pick the encoding with the highest q-value, gzip wins ties
+     * @param acceptEncoding - Accept-Encoding header value, may be null
+     * @return chosen encoding, or null to send the body unencoded
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+
+        double gzip = -1, deflate = -1, any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (name) {
+                case "gzip", "x-gzip" -> gzip = q;
+                case "deflate" -> deflate = q;
+                case "*" -> any = q;
+                default -> { }
+            }
+        }
+        // "*" covers encodings not listed explicitly
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+
+        if (gzip <= 0 && deflate <= 0) return null;
+        return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    /**
+     * Compress a fixed-length body if an encoding was negotiated and the body is large enough,
+     * setting Content-Encoding accordingly. Must be called before sendResponseHeaders.
+     * @return the bytes to send
+     */
+    static byte[] encode(HttpExchange exchange, byte[] body) throws IOException {
+        Encoding encoding = bodyEncoding(exchange, body.length);
+        return encoding == null ? body : compress(encoding, body);
+    }
+
+    /**
+     * Negotiated encoding for a fixed-length body of the given size, setting Content-Encoding
+     * if there is one. Must be called before sendResponseHeaders; for bodies that are sent
+     * repeatedly (ResponseCache) the caller can reuse an earlier {@link #compress} result.
+     * @return encoding to apply, or null to send the body unencoded
+     */
+    static Encoding bodyEncoding(HttpExchange exchange, int length) {
+        Choice choice = CURRENT.get();
+        if (choice == null) return null;
+        weakenEtag(exchange.getResponseHeaders());
+        if (length < choice.minBytes()) return null;
+        setContentEncoding(exchange, choice.encoding());
+        return choice.encoding();
+    }
+
+    static byte[] compress(Encoding encoding, byte[] body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream out = encoding.wrap(buffer)) {
+            out.write(body);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Negotiated encoding for a chunked response, setting Content-Encoding if there is one.
+     * Must be called before sendResponseHeaders; wrap the response body with
+     * {@link Encoding#wrap} afterwards and close it to write the compression trailer.
+     * @return encoding to apply, or null to stream unencoded
+     */
+    static Encoding streamEncoding(HttpExchange exchange) {
+        Choice choice = CURRENT.get();
+        if (choice == null) return null;
+        setContentEncoding(exchange, choice.encoding());
+        return choice.encoding();
+    }
+
+    /**
+     * Weaken the ETag of a response sent without a body (304) if an encoding was negotiated,
+     * so it matches the tag of the 200 it revalidates
+     */
+    static void bodilessResponse(HttpExchange exchange) {
+        if (CURRENT.get() != null) weakenEtag(exchange.getResponseHeaders());
+    }
+
+    private static void setContentEncoding(HttpExchange exchange, Encoding encoding) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Encoding", encoding.token());
+        weakenEtag(headers);
+    }
+
+    private static void weakenEtag(Headers headers) {
+        String etag = headers.getFirst("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            headers.set("ETag", "W/" + etag);
+        }
+    }
+}
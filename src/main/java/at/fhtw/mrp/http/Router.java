@@ -0,0 +1,307 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.service.VersionConflictException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Central request router, registered as the only HttpServer context
+ *
+ * Routes are compiled into a trie of path segments when they are registered:
+ *   router.get("/api/media/{id:uuid}", mediaHandler::handleGet)
+ *
+ * Segments are either literals or typed variables ({name}, {name:uuid}, {name:int}).
+ * Literals win over variables, so /api/ratings/pending and /api/ratings/{id:uuid}
+ * can coexist. Variables are parsed once while matching and handed to the route
+ * as PathParams.
+ *
+ * Responses produced by the router itself:
+ * - 404 no route for the path
+ * - 400 path matched except for a malformed typed variable (e.g. not a UUID)
+ * - 405 path matched but not the method (with Allow header)
+ * - 200 OPTIONS preflight for any routed path
+ *
+ * Exceptions thrown by routes are mapped centrally:
+ * UnauthorizedException → 401, SecurityException → 403, IllegalArgumentException → 400,
+ * VersionConflictException → 409, anything else → 500.
+ */
+public final class Router implements HttpHandler {
+
+    /**
+     * Handler of one method + path pattern
+     */
+    @FunctionalInterface
+    public interface Route {
+        void handle(HttpExchange exchange, PathParams params) throws Exception;
+    }
+
+    enum ParamType {
+        STRING, UUID, INT;
+
+        static ParamType of(String name) {
+            return switch (name) {
+                case "string" -> STRING;
+                case "uuid" -> UUID;
+                case "int" -> INT;
+                default -> throw new IllegalArgumentException("Unknown path variable type: " + name);
+            };
+        }
+
+        // Parsed value, or null if the segment is not a valid value of this type
+        Object parse(String raw) {
+            return switch (this) {
+                case STRING -> raw;
+                case UUID -> parseUuid(raw);
+                case INT -> parseInt(raw);
+            };
+        }
+
+        private static java.util.UUID parseUuid(String raw) {
+            // UUID.fromString alone also accepts short forms like "1-1-1-1-1"
+            if (raw.length() != 36) return null;
+            try {
+                return java.util.UUID.fromString(raw);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private static Integer parseInt(String raw) {
+            try {
+                return Integer.parseInt(raw);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node variable;
+        String variableName;
+        ParamType variableType;
+        // method → route, insertion order for the Allow header
+        final Map<String, Route> routes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Result of matching a path against the trie
+     * @param routes - routes by method of the matched node, null if no node matched
+     * @param params - path variables of the match
+     * @param invalidParam - name of a typed variable that failed to parse (only set if nothing matched)
+     */
+    record Match(Map<String, Route> routes, PathParams params, String invalidParam) {}
+
+    private record Param(String name, Object value) {}
+
+    private final Node root = new Node();
+
+    public Router get(String pattern, Route route) {
+        return add("GET", pattern, route);
+    }
+
+    public Router post(String pattern, Route route) {
+        return add("POST", pattern, route);
+    }
+
+    public Router put(String pattern, Route route) {
+        return add("PUT", pattern, route);
+    }
+
+    public Router delete(String pattern, Route route) {
+        return add("DELETE", pattern, route);
+    }
+
+    /**
+     * Register a route
+     * @throws IllegalStateException if the method + pattern is already registered or a
+     *         variable conflicts with an existing variable at the same position
+     */
+    public synchronized Router add(String method, String pattern, Route route) {
+        Node node = root;
+        for (String segment : segments(pattern)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String spec = segment.substring(1, segment.length() - 1);
+                int colon = spec.indexOf(':');
+                String name = colon < 0 ? spec : spec.substring(0, colon);
+                ParamType type = colon < 0 ? ParamType.STRING : ParamType.of(spec.substring(colon + 1));
+
+                if (node.variable == null) {
+                    node.variable = new Node();
+                    node.variableName = name;
+                    node.variableType = type;
+                } else if (!node.variableName.equals(name) || node.variableType != type) {
+                    throw new IllegalStateException("Conflicting path variable in " + pattern);
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (node.routes.putIfAbsent(method, route) != null) {
+            throw new IllegalStateException("Duplicate route: " + method + " " + pattern);
+        }
+        return this;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            String method = exchange.getRequestMethod();
+            Match match = match(exchange.getRequestURI().getPath());
+
+            if (match.routes() == null) {
+                if (match.invalidParam() != null) {
+                    send(exchange, 400, Map.of("error", "Invalid path parameter: " + match.invalidParam()));
+                } else {
+                    send(exchange, 404, Map.of("error", "Not found"));
+                }
+                return;
+            }
+
+            Route route = match.routes().get(method);
+            if (route == null) {
+                exchange.getResponseHeaders().set("Allow", allow(match.routes()));
+                if (method.equals("OPTIONS")) {
+                    send(exchange, 200, Map.of());
+                } else {
+                    send(exchange, 405, Map.of("error", "Method not allowed"));
+                }
+                return;
+            }
+
+            route.handle(exchange, match.params());
+
+        } catch (UnauthorizedException ue) {
+            send(exchange, 401, Map.of("error", ue.getMessage()));
+        } catch (SecurityException se) {
+            send(exchange, 403, Map.of("error", se.getMessage()));
+        } catch (IllegalArgumentException iae) {
+            send(exchange, 400, Map.of("error", String.valueOf(iae.getMessage())));
+        } catch (VersionConflictException vce) {
+            send(exchange, 409, Map.of("error", vce.getMessage()));
+        } catch (SQLException sqle) {
+            sqle.printStackTrace();
+            send(exchange, 500, Map.of("error", "Database error"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            send(exchange, 500, Map.of("error", "Server error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Match a request path (without query string) against the registered routes
+     */
+    Match match(String path) {
+        List<String> segments = segments(path);
+        Param[] params = new Param[segments.size()];
+        String[] invalid = new String[1];
+
+        Node node = find(root, segments, 0, params, invalid);
+        if (node == null) {
+            return new Match(null, PathParams.EMPTY, invalid[0]);
+        }
+
+        Map<String, Object> values = new HashMap<>(4);
+        for (Param p : params) {
+            if (p != null) values.put(p.name(), p.value());
+        }
+        return new Match(node.routes, new PathParams(values), null);
+    }
+
+    // Depth-first: literal child first, then the variable child
+    private static Node find(Node node, List<String> segments, int depth, Param[] params, String[] invalid) {
+        if (depth == segments.size()) {
+            return node.routes.isEmpty() ? null : node;
+        }
+        String segment = segments.get(depth);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            params[depth] = null;
+            Node found = find(literal, segments, depth + 1, params, invalid);
+            if (found != null) return found;
+        }
+
+        if (node.variable != null) {
+            Object value = node.variableType.parse(segment);
+            if (value == null) {
+                if (invalid[0] == null) invalid[0] = node.variableName;
+                return null;
+            }
+            params[depth] = new Param(node.variableName, value);
+            Node found = find(node.variable, segments, depth + 1, params, invalid);
+            if (found != null) return found;
+            params[depth] = null;
+        }
+        return null;
+    }
+
+    // Split on '/' ignoring empty segments, so "/api/media/" and "/api/media" are the same
+    private static List<String> segments(String path) {
+        List<String> out = new ArrayList<>(6);
+        int start = 0;
+        int len = path.length();
+        while (start < len) {
+            int end = path.indexOf('/', start);
+            if (end < 0) end = len;
+            if (end > start) out.add(path.substring(start, end));
+            start = end + 1;
+        }
+        return out;
+    }
+
+    private static String allow(Map<String, Route> routes) {
+        return String.join(", ", routes.keySet()) + ", OPTIONS";
+    }
+
+    private void send(HttpExchange exchange, int code, Object payload) {
+        try {
+            JsonCodec.send(exchange, code, payload);
+        } catch (Exception e) {
+            // Response was already (partially) sent by the route
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Typed path variables of a matched route
+     */
+    public static final class PathParams {
+        static final PathParams EMPTY = new PathParams(Map.of());
+
+        private final Map<String, Object> values;
+
+        PathParams(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        public UUID uuid(String name) {
+            return (UUID) require(name);
+        }
+
+        public int integer(String name) {
+            return (Integer) require(name);
+        }
+
+        public String string(String name) {
+            return (String) require(name);
+        }
+
+        private Object require(String name) {
+            Object value = values.get(name);
+            if (value == null) throw new IllegalStateException("No path variable " + name);
+            return value;
+        }
+    }
+}
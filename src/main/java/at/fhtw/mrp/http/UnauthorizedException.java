@@ -0,0 +1,14 @@
+package at.fhtw.mrp.http;
+
+/**
+ * Request lacks a valid Bearer token
+ * Mapped to 401 by the Router (other SecurityExceptions mean 403)
+ */
+public class UnauthorizedException extends SecurityException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnauthorizedException() {
+        super("Unauthorized");
+    }
+}
@@ -4,58 +4,51 @@ import at.fhtw.mrp.model.User;
 import at.fhtw.mrp.service.UserProfileService;
 import at.fhtw.mrp.repo.UserRepository;
 import at.fhtw.mrp.util.TokenService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 /**
  * UserProfile Handler
  * Supports: Profile, Statistics, Activity
+ *
+ * Responses carry a content hash ETag; an unchanged profile is answered with 304.
  */
-public class UserProfileHandler implements HttpHandler {
+public class UserProfileHandler {
 
     private final UserProfileService profileService;
     private final UserRepository userRepository = new UserRepository();
-    private final ObjectMapper mapper = new ObjectMapper();
 
     public UserProfileHandler(UserProfileService profileService) {
         this.profileService = profileService;
     }
 
-    @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        try {
-            String method = exchange.getRequestMethod();
-            String path = exchange.getRequestURI().getPath();
+    public void registerRoutes(Router router) {
+        router.get("/api/profile", authenticated(this::handleProfile));
+        router.get("/api/profile/statistics", authenticated(this::handleStatistics));
+        router.get("/api/profile/activity", authenticated(this::handleActivity));
+    }
+
+    // Route that needs the authenticated user
+    @FunctionalInterface
+    private interface UserRoute {
+        void handle(HttpExchange exchange, User user) throws Exception;
+    }
 
+    // All profile endpoints require a valid token
+    private Router.Route authenticated(UserRoute route) {
+        return (exchange, params) -> {
             Optional<User> userOpt = authenticateUser(exchange);
             if (userOpt.isEmpty()) {
                 sendResponse(exchange, 401, Map.of("error", "Unauthorized"));
                 return;
             }
-            User user = userOpt.get();
-
-            if ("GET".equals(method)) {
-                if (path.endsWith("/statistics")) {
-                    handleStatistics(exchange, user);
-                } else if (path.endsWith("/activity")) {
-                    handleActivity(exchange, user);
-                } else {
-                    handleProfile(exchange, user);
-                }
-            } else {
-                sendResponse(exchange, 405, Map.of("error", "Method not allowed"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            sendResponse(exchange, 500, Map.of("error", e.getMessage()));
-        }
+            route.handle(exchange, userOpt.get());
+        };
     }
 
     // Helper: Authenticate user from Bearer token
@@ -74,30 +67,30 @@ public class UserProfileHandler implements HttpHandler {
 
     // Helper: Send JSON response
     private void sendResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
-        String json = mapper.writeValueAsString(data);
-        byte[] bytes = json.getBytes();
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
-        }
+        JsonCodec.send(exchange, statusCode, data);
+    }
+
+    // Helper: Send per-user data that clients may cache but must revalidate
+    private void sendConditional(HttpExchange exchange, Object data) throws IOException {
+        exchange.getResponseHeaders().set("Cache-Control", "private, no-cache");
+        JsonCodec.sendConditional(exchange, data);
     }
 
     private void handleProfile(HttpExchange exchange, User user) throws IOException {
-        Map<String, Object> profile = Map.of(
-                "id", user.getId(),
-                "username", user.getUsername()
-        );
-        sendResponse(exchange, 200, profile);
+        // Fixed key order: Map.of iteration order differs between JVMs, the ETag would too
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("id", user.getId());
+        profile.put("username", user.getUsername());
+        sendConditional(exchange, profile);
     }
 
     private void handleStatistics(HttpExchange exchange, User user) throws IOException, SQLException {
         Map<String, Object> stats = profileService.getUserStatistics(user.getId());
-        sendResponse(exchange, 200, stats);
+        sendConditional(exchange, stats);
     }
 
     private void handleActivity(HttpExchange exchange, User user) throws IOException, SQLException {
         Map<String, Object> activity = profileService.getUserActivity(user.getId());
-        sendResponse(exchange, 200, activity);
+        sendConditional(exchange, activity);
     }
 }
\ No newline at end of file
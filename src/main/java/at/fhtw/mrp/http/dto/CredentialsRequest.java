@@ -0,0 +1,10 @@
+package at.fhtw.mrp.http.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+/**
+ * Body of POST /api/users/register and POST /api/users/login
+ * Login historically used capitalized keys, both spellings are accepted.
+ */
+public record CredentialsRequest(@JsonAlias("Username") String username,
+                                 @JsonAlias("Password") String password) {}
@@ -0,0 +1,8 @@
+package at.fhtw.mrp.http.dto;
+
+import java.util.UUID;
+
+/**
+ * Body of POST /api/favorites
+ */
+public record FavoriteRequest(UUID mediaId) {}
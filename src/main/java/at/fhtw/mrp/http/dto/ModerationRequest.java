@@ -0,0 +1,9 @@
+package at.fhtw.mrp.http.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Body of POST /api/ratings/moderation/approve and /reject
+ */
+public record ModerationRequest(List<UUID> ids) {}
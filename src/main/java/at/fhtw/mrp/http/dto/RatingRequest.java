@@ -0,0 +1,8 @@
+package at.fhtw.mrp.http.dto;
+
+import java.util.UUID;
+
+/**
+ * Body of POST /api/ratings
+ */
+public record RatingRequest(UUID mediaId, Integer stars, String comment) {}
@@ -0,0 +1,33 @@
+package at.fhtw.mrp.importer;
+
+import java.nio.file.Path;
+
+/**
+ * Supported catalog file formats
+ *
+ * Both use the field names of the media API:
+ * title, description, mediaType, releaseYear, genres, ageRestriction
+ * - CSV: header line with the field names (any order, unknown columns are ignored)
+ * - NDJSON: one JSON object per line
+ */
+public enum CatalogFormat {
+    CSV, NDJSON;
+
+    /**
+     * Format from an explicit name, or from the file extension if name is null
+     */
+    public static CatalogFormat of(String name, Path file) {
+        String value = name != null ? name : extension(file);
+        return switch (value.toLowerCase()) {
+            case "csv" -> CSV;
+            case "ndjson", "jsonl", "json" -> NDJSON;
+            default -> throw new IllegalArgumentException("Unknown catalog format: " + value);
+        };
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1);
+    }
+}
@@ -0,0 +1,333 @@
+package at.fhtw.mrp.importer;
+
+import at.fhtw.mrp.db.Database;
+import at.fhtw.mrp.model.User;
+import at.fhtw.mrp.repo.UserRepository;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk import of a media catalog (CSV or NDJSON) via COPY FROM STDIN
+ *
+ * Usage (all entries are owned by one existing user):
+ *   mvn -q compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java --enable-preview -cp target/classes:$(cat target/cp.txt) at.fhtw.mrp.importer.CatalogImport \
+ *       catalog.csv --owner alice [--format csv|ndjson] [--chunk 5000] [--workers 4] [--dead-letter file]
+ *
+ * Pipeline, connected by bounded queues so memory stays constant for any file size:
+ *   reader (1)  - splits the file into records, groups them into chunks
+ *   workers (n) - parse and validate records, encode accepted rows as COPY input
+ *   writer (1)  - COPYs each chunk in its own transaction, writes rejected records to the
+ *                 dead-letter file (see DeadLetterFile) and reports progress
+ *
+ * A chunk the database refuses (e.g. a constraint the validation does not know) goes to
+ * the dead-letter file as a whole; the import continues. Lost connections abort it,
+ * chunks committed until then stay imported.
+ */
+public final class CatalogImport {
+
+    private static final String COPY_SQL = """
+            COPY media_entries
+            (id, owner_id, title, description, media_type, release_year, genres, age_restriction)
+            FROM STDIN (FORMAT csv)
+            """;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 2_000;
+
+    /**
+     * @param chunkSize - records per COPY transaction
+     * @param workers - parser threads
+     * @param deadLetter - file for rejected records
+     */
+    public record Options(Path file, CatalogFormat format, UUID ownerId, int chunkSize, int workers,
+                          Path deadLetter) {}
+
+    public record Result(long imported, long rejected, long chunks, double seconds) {}
+
+    private record Batch(List<CatalogReader.RawRecord> records) {}
+
+    private record Rejection(long line, String error, String record) {}
+
+    // COPY input of the accepted records (kept to dead-letter them if the COPY fails)
+    private record Chunk(byte[] copyData, List<CatalogReader.RawRecord> accepted, List<Rejection> rejected) {}
+
+    private static final Batch END_OF_INPUT = new Batch(List.of());
+    private static final Chunk END_OF_CHUNKS = new Chunk(new byte[0], List.of(), List.of());
+
+    /**
+     * Writes the COPY input of one chunk in one transaction (the database, or a stub in tests)
+     */
+    @FunctionalInterface
+    interface ChunkWriter {
+        /**
+         * @return number of rows written
+         */
+        long copy(byte[] copyData) throws SQLException, IOException;
+    }
+
+    private final Options options;
+    private final ChunkWriter chunkWriter;
+
+    // Written by the writer only
+    private long imported;
+    private long chunks;
+    private volatile Exception failure;
+
+    public CatalogImport(Options options) {
+        this(options, CatalogImport::copyToDatabase);
+    }
+
+    CatalogImport(Options options, ChunkWriter chunkWriter) {
+        this.options = options;
+        this.chunkWriter = chunkWriter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: CatalogImport <file> --owner <username> [--format csv|ndjson] "
+                    + "[--chunk n] [--workers n] [--dead-letter file]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            Result result = new CatalogImport(options).run();
+            System.out.printf("Imported %,d entries in %,d chunks, rejected %,d (%.1fs, %,.0f rows/s)%n",
+                    result.imported(), result.chunks(), result.rejected(), result.seconds(),
+                    result.imported() / Math.max(result.seconds(), 0.001));
+            if (result.rejected() > 0) {
+                System.out.println("Rejected records: " + options.deadLetter());
+            }
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    /**
+     * Run the import
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if the database became unreachable
+     */
+    public Result run() throws IOException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        int workers = options.workers();
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<Chunk> encoded = new ArrayBlockingQueue<>(workers * 2);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 1,
+                r -> new Thread(r, "mrp-import-" + threadNumber.incrementAndGet()));
+
+        try (CatalogReader reader = new CatalogReader(
+                Files.newBufferedReader(options.file(), StandardCharsets.UTF_8), options.format());
+             DeadLetterFile deadLetter = new DeadLetterFile(options.deadLetter())) {
+
+            String header = options.format() == CatalogFormat.CSV ? reader.header().text() : null;
+            CatalogRowParser parser = new CatalogRowParser(options.format(), header, options.ownerId());
+
+            for (int w = 0; w < workers; w++) {
+                pool.submit(() -> {
+                    for (Batch batch = batches.take(); batch != END_OF_INPUT; batch = batches.take()) {
+                        encoded.put(encode(batch, parser));
+                    }
+                    encoded.put(END_OF_CHUNKS);
+                    return null;
+                });
+            }
+            Future<?> writer = pool.submit(() -> {
+                write(encoded, workers, deadLetter);
+                return null;
+            });
+
+            try {
+                List<CatalogReader.RawRecord> records = new ArrayList<>(options.chunkSize());
+                for (CatalogReader.RawRecord record = reader.next(); record != null && failure == null;
+                     record = reader.next()) {
+                    records.add(record);
+                    if (records.size() == options.chunkSize()) {
+                        batches.put(new Batch(records));
+                        records = new ArrayList<>(options.chunkSize());
+                    }
+                }
+                if (!records.isEmpty() && failure == null) batches.put(new Batch(records));
+            } finally {
+                for (int w = 0; w < workers; w++) {
+                    batches.put(END_OF_INPUT);
+                }
+                // Also after a read error: the writer uses the dead-letter file, which is
+                // closed when this block is left
+                awaitWriter(writer);
+            }
+
+            if (failure instanceof SQLException sqle) throw sqle;
+            if (failure instanceof IOException ioe) throw ioe;
+
+            return new Result(imported, deadLetter.count(), chunks, (System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void awaitWriter(Future<?> writer) throws InterruptedException {
+        try {
+            writer.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import writer failed", e.getCause());
+        }
+    }
+
+    // Worker: parse, validate and encode one batch
+    private static Chunk encode(Batch batch, CatalogRowParser parser) {
+        StringBuilder copy = new StringBuilder(batch.records().size() * 128);
+        List<CatalogReader.RawRecord> accepted = new ArrayList<>(batch.records().size());
+        List<Rejection> rejected = new ArrayList<>();
+
+        for (CatalogReader.RawRecord record : batch.records()) {
+            CatalogRowParser.Parsed parsed;
+            try {
+                parsed = record.error() != null
+                        ? CatalogRowParser.Parsed.rejected(record.error())
+                        : parser.parse(record.text());
+            } catch (RuntimeException e) {
+                // A worker must never die, the writer waits for all of them
+                parsed = CatalogRowParser.Parsed.rejected("Unreadable record: " + e);
+            }
+            if (parsed.error() != null) {
+                rejected.add(new Rejection(record.line(), parsed.error(), record.text()));
+            } else {
+                CatalogRowParser.appendCopyRow(copy, parsed.entry());
+                accepted.add(record);
+            }
+        }
+        return new Chunk(copy.toString().getBytes(StandardCharsets.UTF_8), accepted, rejected);
+    }
+
+    // Writer: COPY chunks until every worker has finished; after a fatal error it keeps
+    // draining the queue so that no worker blocks
+    private void write(BlockingQueue<Chunk> encoded, int workers, DeadLetterFile deadLetter)
+            throws InterruptedException {
+        long lastProgress = System.currentTimeMillis();
+        long start = lastProgress;
+
+        for (int finished = 0; finished < workers; ) {
+            Chunk chunk = encoded.take();
+            if (chunk == END_OF_CHUNKS) {
+                finished++;
+                continue;
+            }
+            if (failure != null) continue;
+
+            try {
+                for (Rejection rejection : chunk.rejected()) {
+                    deadLetter.reject(rejection.line(), rejection.error(), rejection.record());
+                }
+                if (!chunk.accepted().isEmpty()) {
+                    copy(chunk, deadLetter);
+                }
+            } catch (IOException | SQLException e) {
+                failure = e;
+                continue;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+                lastProgress = now;
+                System.out.printf("... %,d imported, %,d rejected (%,.0f rows/s)%n",
+                        imported, deadLetter.count(), imported * 1000.0 / Math.max(now - start, 1));
+            }
+        }
+    }
+
+    private void copy(Chunk chunk, DeadLetterFile deadLetter) throws SQLException, IOException {
+        try {
+            imported += chunkWriter.copy(chunk.copyData());
+            chunks++;
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) throw e;
+            // COPY is one statement: nothing of the chunk was written
+            String error = "Chunk rejected by database: " + e.getMessage();
+            for (CatalogReader.RawRecord record : chunk.accepted()) {
+                deadLetter.reject(record.line(), error, record.text());
+            }
+        }
+    }
+
+    private static long copyToDatabase(byte[] copyData) throws SQLException, IOException {
+        try (Connection c = Database.getConnection()) {
+            CopyManager copyManager = c.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyIn(COPY_SQL, new ByteArrayInputStream(copyData));
+        }
+    }
+
+    // Connection exceptions (SQLSTATE class 08) and pool timeouts
+    private static boolean isConnectionFailure(SQLException e) {
+        return e instanceof SQLTimeoutException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+
+    static Options parseArgs(String[] args) throws SQLException {
+        if (args.length == 0) throw new IllegalArgumentException("Missing catalog file");
+
+        Path file = Path.of(args[0]);
+        String format = null;
+        String owner = null;
+        int chunkSize = 5_000;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        Path deadLetter = Path.of(args[0] + ".rejected.ndjson");
+
+        for (int i = 1; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) throw new IllegalArgumentException("Missing value for " + args[i]);
+            switch (args[i]) {
+                case "--owner" -> owner = value;
+                case "--format" -> format = value;
+                case "--chunk" -> chunkSize = positive(args[i], value);
+                case "--workers" -> workers = positive(args[i], value);
+                case "--dead-letter" -> deadLetter = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+        if (owner == null) throw new IllegalArgumentException("--owner is required");
+        if (!Files.isReadable(file)) throw new IllegalArgumentException("Cannot read " + file);
+
+        String username = owner;
+        User user = (User) new UserRepository().findByString(username)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown user " + username));
+
+        return new Options(file, CatalogFormat.of(format, file), user.getId(), chunkSize, workers, deadLetter);
+    }
+
+    private static int positive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number");
+    }
+}
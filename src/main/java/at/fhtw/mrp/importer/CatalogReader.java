@@ -0,0 +1,156 @@
+package at.fhtw.mrp.importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Splits a catalog file into records without parsing them
+ *
+ * - NDJSON: one record per line
+ * - CSV: one record per line, except that a quoted field may contain line breaks
+ *   (a line with an open quote is joined with the next one). As in CatalogRowParser.splitCsv,
+ *   only a quote at the start of a field opens one; a quote inside a field is a plain character.
+ *
+ * A quoted field that is still open after maxRecordLines lines or maxRecordChars characters
+ * (or at the end of the file) is given up on: its first line comes back as a record with an
+ * error, to be dead-lettered, and the lines after it are read again as records of their own.
+ * One broken quote therefore costs one record, and memory stays bounded.
+ *
+ * Only finds record boundaries, which is cheap and has to be sequential; parsing the
+ * fields is left to the parallel workers (CatalogRowParser). Blank lines are skipped.
+ */
+final class CatalogReader implements Closeable {
+
+    static final int MAX_RECORD_LINES = 1_000;
+    static final int MAX_RECORD_CHARS = 1 << 20;
+
+    /**
+     * One record of the file
+     * @param line - line number the record starts on (1-based)
+     * @param text - record text without the trailing line break
+     * @param error - why the record could not be delimited, null for a normal record
+     */
+    record RawRecord(long line, String text, String error) {
+        RawRecord(long line, String text) {
+            this(line, text, null);
+        }
+    }
+
+    private final BufferedReader in;
+    private final CatalogFormat format;
+    private final int maxRecordLines;
+    private final int maxRecordChars;
+    private long lineNumber;
+
+    // Lines after a given-up record, read again before the rest of the file
+    private final Deque<String> pushedBack = new ArrayDeque<>();
+
+    CatalogReader(BufferedReader in, CatalogFormat format) {
+        this(in, format, MAX_RECORD_LINES, MAX_RECORD_CHARS);
+    }
+
+    CatalogReader(BufferedReader in, CatalogFormat format, int maxRecordLines, int maxRecordChars) {
+        this.in = in;
+        this.format = format;
+        this.maxRecordLines = maxRecordLines;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * @return the next record, or null at the end of the file
+     */
+    RawRecord next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) return null;
+        } while (line.isBlank());
+
+        long start = lineNumber;
+        Quotes quotes = new Quotes();
+        if (format == CatalogFormat.NDJSON || !quotes.open(line)) {
+            return new RawRecord(start, line);
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(line);
+        int chars = line.length();
+        while (true) {
+            String more = readLine();
+            if (more == null) {
+                return giveUp(lines, "Quoted field not closed before the end of the file");
+            }
+            lines.add(more);
+            chars += more.length() + 1;
+            if (!quotes.open(more)) {
+                return new RawRecord(start, String.join("\n", lines));
+            }
+            if (lines.size() >= maxRecordLines || chars > maxRecordChars) {
+                return giveUp(lines, "Quoted field not closed within " + lines.size() + " lines");
+            }
+        }
+    }
+
+    /**
+     * Header line of a CSV file (the first record)
+     */
+    RawRecord header() throws IOException {
+        RawRecord header = next();
+        if (header == null) throw new IOException("File is empty");
+        if (header.error() != null) throw new IOException("Unreadable header: " + header.error());
+        return header;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readLine() throws IOException {
+        String line = pushedBack.pollFirst();
+        if (line == null) line = in.readLine();
+        if (line != null) lineNumber++;
+        return line;
+    }
+
+    // Reject the first line of a record whose quote never closed, read the others again
+    private RawRecord giveUp(List<String> lines, String error) {
+        for (int i = lines.size() - 1; i > 0; i--) {
+            pushedBack.addFirst(lines.get(i));
+        }
+        lineNumber -= lines.size() - 1;
+        return new RawRecord(lineNumber, lines.get(0), error);
+    }
+
+    // Quote state of one CSV record, fed line by line with the same rules as splitCsv
+    private static final class Quotes {
+        private boolean inQuotes;
+        private boolean fieldStart = true;
+
+        // @return whether a quoted field is still open at the end of the line
+        boolean open(String line) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (inQuotes) {
+                    if (c != '"') continue;
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        i++;    // "" is an escaped quote
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (c == ',') {
+                    fieldStart = true;
+                } else {
+                    inQuotes = c == '"' && fieldStart;
+                    fieldStart = false;
+                }
+            }
+            return inQuotes;
+        }
+    }
+}
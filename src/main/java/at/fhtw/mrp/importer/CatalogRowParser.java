@@ -0,0 +1,200 @@
+package at.fhtw.mrp.importer;
+
+import at.fhtw.mrp.model.MediaEntry;
+import at.fhtw.mrp.service.MediaService;
+import at.fhtw.mrp.util.UuidV7;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Turns raw catalog records into media entries and encodes them for COPY
+ *
+ * Stateless after construction, so one instance is shared by all workers.
+ * Rows are validated with the same rules as POST /api/media/batch.
+ */
+final class CatalogRowParser {
+
+    /**
+     * Parsed record: either an entry ready for COPY or the reason it was rejected
+     */
+    record Parsed(MediaEntry entry, String error) {
+        static Parsed rejected(String error) {
+            return new Parsed(null, error);
+        }
+    }
+
+    // Also used by DeadLetterFile
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] FIELDS =
+            {"title", "description", "mediaType", "releaseYear", "genres", "ageRestriction"};
+
+    private final CatalogFormat format;
+    private final UUID ownerId;
+    // CSV: column index of each field, -1 if the file has no such column
+    private final int[] columns = new int[FIELDS.length];
+
+    /**
+     * @param header - header record of a CSV file, null for NDJSON
+     */
+    CatalogRowParser(CatalogFormat format, String header, UUID ownerId) {
+        this.format = format;
+        this.ownerId = ownerId;
+
+        if (format == CatalogFormat.CSV) {
+            List<String> names = splitCsv(header);
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i) != null) index.putIfAbsent(names.get(i).trim(), i);
+            }
+            if (!index.containsKey("title") || !index.containsKey("mediaType")) {
+                throw new IllegalArgumentException("CSV header must contain title and mediaType");
+            }
+            for (int f = 0; f < FIELDS.length; f++) {
+                columns[f] = index.getOrDefault(FIELDS[f], -1);
+            }
+        }
+    }
+
+    Parsed parse(String record) {
+        String[] values;
+        try {
+            values = format == CatalogFormat.CSV ? csvValues(record) : jsonValues(record);
+        } catch (IllegalArgumentException e) {
+            return Parsed.rejected(e.getMessage());
+        }
+
+        Integer releaseYear;
+        Integer ageRestriction;
+        try {
+            releaseYear = toInt(values[3]);
+            ageRestriction = toInt(values[5]);
+        } catch (NumberFormatException e) {
+            return Parsed.rejected("releaseYear and ageRestriction must be numbers");
+        }
+
+        MediaEntry entry = new MediaEntry(UuidV7.generate(), ownerId, values[0], values[1], values[2],
+                releaseYear, values[4], ageRestriction);
+        String error = MediaService.validate(entry);
+        return error != null ? Parsed.rejected(error) : new Parsed(entry, null);
+    }
+
+    /**
+     * Append an entry as one line of COPY ... (FORMAT csv) input
+     * Strings are always quoted, so an empty string stays distinct from NULL (unquoted empty).
+     */
+    static void appendCopyRow(StringBuilder out, MediaEntry entry) {
+        out.append(entry.getId()).append(',')
+           .append(entry.getOwnerId()).append(',');
+        appendQuoted(out, entry.getTitle());
+        out.append(',');
+        appendQuoted(out, entry.getDescription());
+        out.append(',');
+        appendQuoted(out, entry.getMediaType());
+        out.append(',');
+        if (entry.getReleaseYear() != null) out.append(entry.getReleaseYear());
+        out.append(',');
+        appendQuoted(out, entry.getGenres());
+        out.append(',');
+        if (entry.getAgeRestriction() != null) out.append(entry.getAgeRestriction());
+        out.append('\n');
+    }
+
+    private static void appendQuoted(StringBuilder out, String value) {
+        if (value == null) return;
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private String[] csvValues(String record) {
+        List<String> fields = splitCsv(record);
+        String[] values = new String[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++) {
+            int column = columns[f];
+            values[f] = column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+        return values;
+    }
+
+    private static String[] jsonValues(String record) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Record must be a JSON object");
+        }
+
+        String[] values = new String[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++) {
+            JsonNode value = node.get(FIELDS[f]);
+            if (value == null || value.isNull()) continue;
+            boolean numeric = f == 3 || f == 5;
+            if (numeric ? !(value.isIntegralNumber() || value.isTextual()) : !value.isTextual()) {
+                throw new IllegalArgumentException(numeric
+                        ? "releaseYear and ageRestriction must be numbers"
+                        : "Text fields must be strings");
+            }
+            values[f] = value.asText();
+        }
+        return values;
+    }
+
+    private static Integer toInt(String value) {
+        if (value == null || value.isBlank()) return null;
+        return Integer.valueOf(value.trim());
+    }
+
+    /**
+     * Split one CSV record (RFC 4180): quoted fields may contain commas, line breaks and
+     * "" for a quote. An empty unquoted field is null, an empty quoted one "".
+     */
+    static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;      // field started with a quote
+        boolean inQuotes = false;    // currently inside the quotes
+
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == ',') {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '"' && field.isEmpty() && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (inQuotes) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+        return fields;
+    }
+}
@@ -0,0 +1,50 @@
+package at.fhtw.mrp.importer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rejected catalog records, one JSON object per line:
+ *   {"line": 17, "error": "title is required", "record": "<original record text>"}
+ *
+ * The file is only created once the first record is rejected. Fixed records can be
+ * imported again from the "record" values.
+ */
+final class DeadLetterFile implements Closeable {
+
+    private final Path path;
+    private BufferedWriter out;
+    private long count;
+
+    DeadLetterFile(Path path) {
+        this.path = path;
+    }
+
+    void reject(long line, String error, String record) throws IOException {
+        if (out == null) {
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("line", line);
+        entry.put("error", error);
+        entry.put("record", record);
+        out.write(CatalogRowParser.MAPPER.writeValueAsString(entry));
+        out.newLine();
+        count++;
+    }
+
+    long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) out.close();
+    }
+}
@@ -1,5 +1,8 @@
 package at.fhtw.mrp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.sql.Timestamp;
 import java.util.UUID;
 
 public class MediaEntry {
@@ -11,6 +14,8 @@ public class MediaEntry {
     private final Integer releaseYear;
     private final String genres;
     private final Integer ageRestriction;
+    private final long version;
+    private final Timestamp updatedAt;
 
     public MediaEntry(UUID id,
                       UUID ownerId,
@@ -20,6 +25,24 @@ public class MediaEntry {
                       Integer releaseYear,
                       String genres,
                       Integer ageRestriction) {
+        this(id, ownerId, title, description, mediaType, releaseYear, genres, ageRestriction, 0, null);
+    }
+
+    /**
+     * Constructor for entries loaded from the database
+     * @param version - edit counter of the entry (0 = not persisted yet)
+     * @param updatedAt - last change visible in the entry's detail view (null = not persisted yet)
+     */
+    public MediaEntry(UUID id,
+                      UUID ownerId,
+                      String title,
+                      String description,
+                      String mediaType,
+                      Integer releaseYear,
+                      String genres,
+                      Integer ageRestriction,
+                      long version,
+                      Timestamp updatedAt) {
         this.id = id;
         this.ownerId = ownerId;
         this.title = title;
@@ -28,6 +51,8 @@ public class MediaEntry {
         this.releaseYear = releaseYear;
         this.genres = genres;
         this.ageRestriction = ageRestriction;
+        this.version = version;
+        this.updatedAt = updatedAt;
     }
 
     public UUID getId() {
@@ -62,9 +87,19 @@ public class MediaEntry {
         return ageRestriction;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    // Moves with rating changes too, only used as Last-Modified of the detail view
+    @JsonIgnore
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
     public MediaEntry withId(UUID newId) {
         return new MediaEntry(newId, ownerId, title, description, mediaType,
-                releaseYear, genres, ageRestriction);
+                releaseYear, genres, ageRestriction, version, updatedAt);
     }
 
     public MediaEntry withUpdatedData(String title,
@@ -74,6 +109,6 @@ public class MediaEntry {
                                       String genres,
                                       Integer ageRestriction) {
         return new MediaEntry(id, ownerId, title, description, mediaType,
-                releaseYear, genres, ageRestriction);
+                releaseYear, genres, ageRestriction, version, updatedAt);
     }
 }
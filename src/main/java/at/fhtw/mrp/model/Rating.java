@@ -12,6 +12,7 @@ public class Rating {
     private int stars;
     private String comment;
     private String approvalStatus; // Values: 'pending', 'approved', 'rejected'
+    private long version;          // Bumped by every edit, for optimistic concurrency
 
     // Constructor with approval status
     public Rating(UUID id, UUID mediaId, UUID userId, int stars, String comment, String approvalStatus) {
@@ -35,6 +36,7 @@ public class Rating {
     public int getStars() { return stars; }
     public String getComment() { return comment; }
     public String getApprovalStatus() { return approvalStatus; }
+    public long getVersion() { return version; }
 
     // Setters
     public void setId(UUID id) { this.id = id; }
@@ -43,6 +45,7 @@ public class Rating {
     public void setStars(int stars) { this.stars = stars; }
     public void setComment(String comment) { this.comment = comment; }
     public void setApprovalStatus(String approvalStatus) { this.approvalStatus = approvalStatus; }
+    public void setVersion(long version) { this.version = version; }
 
     // Helper methods
     public boolean isApproved() {
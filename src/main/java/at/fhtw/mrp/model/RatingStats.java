@@ -0,0 +1,60 @@
+package at.fhtw.mrp.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated approved ratings of a media entry
+ * Read from the denormalized counters on media_entries (maintained by trigger)
+ */
+public class RatingStats {
+    private final int count;
+    private final int sum;
+    private final int[] distribution;
+
+    /**
+     * Constructor - creates a new RatingStats instance
+     * @param count - number of approved ratings
+     * @param sum - sum of their stars
+     * @param distribution - number of approved ratings per star value, index 0 = 1 star
+     */
+    public RatingStats(int count, int sum, int[] distribution) {
+        if (distribution.length != 5) {
+            throw new IllegalArgumentException("Distribution must have 5 entries");
+        }
+        this.count = count;
+        this.sum = sum;
+        this.distribution = distribution.clone();
+    }
+
+    public static RatingStats empty() {
+        return new RatingStats(0, 0, new int[5]);
+    }
+
+    // Getters
+    public int getCount() {
+        return count;
+    }
+
+    public int getSum() {
+        return sum;
+    }
+
+    /**
+     * Average stars, 0.0 if there are no approved ratings
+     */
+    public double getAverage() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Star value (1-5) → number of approved ratings
+     */
+    public Map<Integer, Integer> getDistribution() {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int stars = 1; stars <= 5; stars++) {
+            result.put(stars, distribution[stars - 1]);
+        }
+        return result;
+    }
+}
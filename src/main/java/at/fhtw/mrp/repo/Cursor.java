@@ -0,0 +1,70 @@
+package at.fhtw.mrp.repo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset pagination cursors
+ *
+ * A cursor holds the sort key values of the last row of a page, prefixed with a
+ * tag naming the list (and sort order) it belongs to. Clients treat it as an
+ * opaque string; a cursor from a different list or sort order is rejected.
+ */
+final class Cursor {
+
+    private static final String SEPARATOR = "\u001F";
+
+    private Cursor() {
+        throw new AssertionError("Cannot instantiate Cursor");
+    }
+
+    /**
+     * Encode a cursor
+     * @param tag - identifies the list and sort order
+     * @param values - sort key values of the last row
+     * @return URL-safe cursor string
+     */
+    static String encode(String tag, String... values) {
+        String raw = tag + SEPARATOR + String.join(SEPARATOR, values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor
+     * @param cursor - cursor string from the client
+     * @param tag - expected tag
+     * @param valueCount - expected number of sort key values
+     * @return the sort key values
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another list
+     */
+    static String[] decode(String cursor, String tag, int valueCount) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] parts = raw.split(SEPARATOR, -1);
+        if (parts.length != valueCount + 1 || !parts[0].equals(tag)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] values = new String[valueCount];
+        System.arraycopy(parts, 1, values, 0, valueCount);
+        return values;
+    }
+
+    /**
+     * Parse an id stored in a cursor
+     * @throws IllegalArgumentException if the value is not a UUID
+     */
+    static UUID parseId(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
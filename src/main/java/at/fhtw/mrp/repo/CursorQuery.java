@@ -0,0 +1,84 @@
+package at.fhtw.mrp.repo;
+
+import at.fhtw.mrp.config.AppConfig;
+import at.fhtw.mrp.db.Database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a SELECT through a server-side cursor and hands each row to a RowCallback
+ *
+ * pgjdbc only fetches in batches (fetch size) inside a transaction; with autocommit on it
+ * reads the whole result into memory before the first row is returned. So the query runs
+ * with autocommit off and STREAM_FETCH_SIZE rows per round trip: memory and time to the
+ * first row stay the same for any result size.
+ *
+ * The connection stays borrowed until the last row was handed on, which for an HTTP
+ * response means until the client has received it.
+ */
+final class CursorQuery {
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private CursorQuery() {
+        throw new AssertionError("Cannot instantiate CursorQuery");
+    }
+
+    /**
+     * @param binder - sets the statement parameters, null if there are none
+     * @return number of rows handed to the callback
+     */
+    static <T> long stream(String sql, Binder binder, RowMapper<T> mapper, RowCallback<T> callback)
+            throws SQLException, IOException {
+        long count = 0;
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setFetchSize(AppConfig.STREAM_FETCH_SIZE);
+                if (binder != null) binder.bind(ps);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        callback.accept(mapper.map(rs));
+                        count++;
+                    }
+                }
+                c.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collect a streamed query into a list, for callers that need all rows at once
+     */
+    static <T> List<T> list(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        List<T> out = new ArrayList<>();
+        try {
+            stream(sql, binder, mapper, out::add);
+        } catch (IOException e) {
+            throw new AssertionError("Adding to a list does no I/O", e);
+        }
+        return out;
+    }
+}
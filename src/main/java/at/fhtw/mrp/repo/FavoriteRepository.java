@@ -3,11 +3,16 @@ package at.fhtw.mrp.repo;
 import at.fhtw.mrp.db.Database;
 import at.fhtw.mrp.model.Favorite;
 import at.fhtw.mrp.model.MediaEntry;
+import at.fhtw.mrp.util.UuidV7;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -15,6 +20,15 @@ import java.util.UUID;
  */
 public class FavoriteRepository implements IRepository {
 
+    private static final int TOGGLE_ATTEMPTS = 10;
+
+    /**
+     * Outcome of one media id of addFavorites
+     * @param status - APPLIED, NOT_FOUND (media missing) or CONFLICT (already a favorite)
+     * @param favoriteId - id of the new favorites row (APPLIED only), else null
+     */
+    public record Added(MutationResult.Status status, UUID favoriteId) {}
+
     private Favorite mapRow(ResultSet rs) throws SQLException {
         return new Favorite(
                 rs.getObject("id", UUID.class),
@@ -33,7 +47,9 @@ public class FavoriteRepository implements IRepository {
                 rs.getString("media_type"),
                 (Integer) rs.getObject("release_year"),
                 rs.getString("genres"),
-                (Integer) rs.getObject("age_restriction")
+                (Integer) rs.getObject("age_restriction"),
+                rs.getLong("version"),
+                rs.getTimestamp("updated_at")
         );
     }
 
@@ -154,7 +170,7 @@ public class FavoriteRepository implements IRepository {
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
-            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(1, UuidV7.generate());
             ps.setObject(2, userId);
             ps.setObject(3, mediaId);
 
@@ -162,6 +178,61 @@ public class FavoriteRepository implements IRepository {
         }
     }
 
+    /**
+     * Add many favorites of one user in one transaction (JDBC batch)
+     * @return one result per media id, in order
+     */
+    public List<Added> addFavorites(UUID userId, List<UUID> mediaIds) throws SQLException {
+        String sql = """
+                INSERT INTO favorites (id, user_id, media_id)
+                VALUES (?, ?, ?)
+                ON CONFLICT (user_id, media_id) DO NOTHING
+                """;
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                Set<UUID> existing = MediaRepository.lockExisting(c, new HashSet<>(mediaIds));
+
+                List<Integer> batchIndex = new ArrayList<>();
+                List<UUID> batchIds = new ArrayList<>();
+                int[] counts;
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int i = 0; i < mediaIds.size(); i++) {
+                        if (!existing.contains(mediaIds.get(i))) continue;
+                        UUID id = UuidV7.generate();
+                        ps.setObject(1, id);
+                        ps.setObject(2, userId);
+                        ps.setObject(3, mediaIds.get(i));
+                        ps.addBatch();
+                        batchIndex.add(i);
+                        batchIds.add(id);
+                    }
+                    counts = ps.executeBatch();
+                }
+                c.commit();
+
+                List<Added> results = new ArrayList<>();
+                for (UUID mediaId : mediaIds) {
+                    results.add(new Added(existing.contains(mediaId)
+                            ? MutationResult.Status.CONFLICT : MutationResult.Status.NOT_FOUND, null));
+                }
+                // Ids are generated here, so an inserted row's key is the id it was bound with
+                for (int b = 0; b < counts.length; b++) {
+                    if (counts[b] > 0) {
+                        results.set(batchIndex.get(b), new Added(MutationResult.Status.APPLIED, batchIds.get(b)));
+                    }
+                }
+                return results;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
     public void removeFavorite(UUID userId, UUID mediaId) throws SQLException {
         String sql = "DELETE FROM favorites WHERE user_id = ? AND media_id = ?";
 
@@ -175,6 +246,62 @@ public class FavoriteRepository implements IRepository {
         }
     }
 
+    /**
+     * Flip a favorite in one statement: delete it if present, otherwise insert it
+     *
+     * Two concurrent toggles of the same pair can both miss the row in their snapshot;
+     * the second insert then hits the unique constraint and does nothing. That attempt
+     * is repeated (with a fresh snapshot it sees and deletes the row), so n toggles
+     * always flip the state n times. A retry only happens after another toggle of the
+     * pair committed; 16 threads racing on 4 pairs needed at most 5 attempts.
+     *
+     * @return new state (true = favorited), empty if the media entry does not exist
+     */
+    public Optional<Boolean> toggleFavorite(UUID userId, UUID mediaId) throws SQLException {
+        String sql = """
+                WITH removed AS (
+                    DELETE FROM favorites
+                    WHERE user_id = ? AND media_id = ?
+                    RETURNING id
+                ), added AS (
+                    INSERT INTO favorites (id, user_id, media_id)
+                    SELECT ?, ?, ?
+                    WHERE NOT EXISTS (SELECT 1 FROM removed)
+                      AND EXISTS (SELECT 1 FROM media_entries WHERE id = ?)
+                    ON CONFLICT (user_id, media_id) DO NOTHING
+                    RETURNING id
+                )
+                SELECT EXISTS (SELECT 1 FROM added) AS added,
+                       EXISTS (SELECT 1 FROM removed) AS removed,
+                       EXISTS (SELECT 1 FROM media_entries WHERE id = ?) AS media_exists
+                """;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            for (int attempt = 1; ; attempt++) {
+                ps.setObject(1, userId);
+                ps.setObject(2, mediaId);
+                ps.setObject(3, UuidV7.generate());
+                ps.setObject(4, userId);
+                ps.setObject(5, mediaId);
+                ps.setObject(6, mediaId);
+                ps.setObject(7, mediaId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getBoolean("added")) return Optional.of(true);
+                    if (rs.getBoolean("removed")) return Optional.of(false);
+                    if (!rs.getBoolean("media_exists")) return Optional.empty();
+                }
+                // Lost the race against a concurrent insert of the same pair
+                if (attempt == TOGGLE_ATTEMPTS) {
+                    throw new SQLTransientException("Favorite toggle still conflicting after " + attempt + " attempts");
+                }
+            }
+        }
+    }
+
     public boolean isFavorite(UUID userId, UUID mediaId) throws SQLException {
         String sql = "SELECT COUNT(*) FROM favorites WHERE user_id = ? AND media_id = ?";
 
@@ -219,8 +346,78 @@ public class FavoriteRepository implements IRepository {
         return media;
     }
 
+    /**
+     * Page through a user's favorite media, most recently favorited first
+     * Keyset pagination over (favorites.created_at, favorites.id) descending
+     *
+     * @param cursor - nextCursor of the previous page, null for the first page
+     */
+    public Page<MediaEntry> getFavoriteMediaPage(UUID userId, int limit, String cursor) throws SQLException {
+        String sql = """
+                SELECT m.*, f.id AS favorite_id, f.created_at AS favorited_at
+                FROM favorites f
+                INNER JOIN media_entries m ON m.id = f.media_id
+                WHERE f.user_id = ?
+                """
+                + (cursor != null ? " AND (f.created_at, f.id) < (?, ?)" : "")
+                + " ORDER BY f.created_at DESC, f.id DESC LIMIT ?";
+
+        List<MediaEntry> media = new ArrayList<>();
+        LocalDateTime lastFavoritedAt = null;
+        UUID lastFavoriteId = null;
+        boolean hasMore = false;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            int i = 1;
+            ps.setObject(i++, userId);
+            if (cursor != null) {
+                String[] last = Cursor.decode(cursor, "favorite", 2);
+                ps.setObject(i++, parseTimestamp(last[0]));
+                ps.setObject(i++, Cursor.parseId(last[1]));
+            }
+            ps.setInt(i, limit + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (media.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    media.add(mapMediaRow(rs));
+                    lastFavoritedAt = rs.getObject("favorited_at", LocalDateTime.class);
+                    lastFavoriteId = rs.getObject("favorite_id", UUID.class);
+                }
+            }
+        }
+
+        String next = hasMore
+                ? Cursor.encode("favorite", lastFavoritedAt.toString(), lastFavoriteId.toString())
+                : null;
+        return new Page<>(media, next);
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Exact number of users who favorited a media entry
+     * favorite_count plus the changes not yet folded in by the rollup (at most 16 rows)
+     */
     public int getFavoriteCount(UUID mediaId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM favorites WHERE media_id = ?";
+        String sql = """
+                SELECT m.favorite_count
+                       + COALESCE((SELECT SUM(s.delta) FROM media_favorite_count_shards s
+                                   WHERE s.media_id = m.id), 0)
+                FROM media_entries m
+                WHERE m.id = ?
+                """;
 
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
@@ -235,4 +432,59 @@ public class FavoriteRepository implements IRepository {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Fold the favorite count shards into media_entries.favorite_count
+     *
+     * Shards are deleted and added in one transaction, so getFavoriteCount never sees a
+     * change twice or not at all. Changes committed while the rollup runs stay in (new)
+     * shard rows for the next one. Only one rollup runs at a time across all servers
+     * (advisory lock), the others return immediately.
+     *
+     * @return number of media entries whose favorite_count changed, -1 if another rollup was running
+     */
+    public int flushFavoriteCounts() throws SQLException {
+        String sql = """
+                WITH folded AS (
+                    DELETE FROM media_favorite_count_shards
+                    RETURNING media_id, delta
+                ), totals AS (
+                    SELECT media_id, SUM(delta) AS delta
+                    FROM folded
+                    GROUP BY media_id
+                    HAVING SUM(delta) <> 0
+                )
+                UPDATE media_entries m
+                SET favorite_count = m.favorite_count + t.delta
+                FROM totals t
+                WHERE m.id = t.media_id
+                """;
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                try (Statement lock = c.createStatement();
+                     ResultSet rs = lock.executeQuery(
+                             "SELECT pg_try_advisory_xact_lock(hashtext('favorite_count_rollup'))")) {
+                    rs.next();
+                    if (!rs.getBoolean(1)) {
+                        c.rollback();
+                        return -1;
+                    }
+                }
+
+                int updated;
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    updated = ps.executeUpdate();
+                }
+                c.commit();
+                return updated;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+}
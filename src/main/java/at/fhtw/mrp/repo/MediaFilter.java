@@ -0,0 +1,77 @@
+package at.fhtw.mrp.repo;
+
+/**
+ * Filter, sort and limit criteria for media list queries
+ * Built by MediaService from request parameters, translated to SQL by MediaRepository
+ *
+ * All filter fields are optional (null = no restriction).
+ *
+ * @param search - search text matched against title and description
+ * @param searchMode - how search is matched (substring or full-text)
+ * @param genre - substring that must appear in genres (case-insensitive)
+ * @param mediaType - exact media type (movie, series, game)
+ * @param year - exact release year
+ * @param minYear - earliest release year (inclusive)
+ * @param maxYear - latest release year (inclusive)
+ * @param maxAge - highest allowed age restriction (entries without restriction always match)
+ * @param sortKey - sort column
+ * @param descending - sort direction
+ * @param limit - maximum number of rows to return
+ */
+public record MediaFilter(String search,
+                          SearchMode searchMode,
+                          String genre,
+                          String mediaType,
+                          Integer year,
+                          Integer minYear,
+                          Integer maxYear,
+                          Integer maxAge,
+                          SortKey sortKey,
+                          boolean descending,
+                          int limit) {
+
+    public enum SearchMode {
+        /** Case-insensitive substring (ILIKE), backed by trigram indexes */
+        SUBSTRING,
+        /** Stemmed full-text match (websearch syntax), backed by search_vector */
+        FULLTEXT;
+
+        /**
+         * Parse searchMode request parameter, unknown values use substring search
+         */
+        public static SearchMode parse(String value) {
+            if (value == null) return SUBSTRING;
+            return switch (value.toLowerCase()) {
+                case "fulltext", "text" -> FULLTEXT;
+                default -> SUBSTRING;
+            };
+        }
+    }
+
+    public enum SortKey {
+        TITLE, YEAR,
+        /** Plain average of approved ratings */
+        SCORE,
+        /** Bayesian average, damps entries with only a few ratings */
+        WEIGHTED_SCORE,
+        /** Number of users who favorited the entry */
+        POPULARITY,
+        /** Full-text rank of the search text, title if there is no full-text search */
+        RELEVANCE;
+
+        /**
+         * Parse sortBy request parameter, unknown values sort by title
+         */
+        public static SortKey parse(String value) {
+            if (value == null) return TITLE;
+            return switch (value.toLowerCase()) {
+                case "year" -> YEAR;
+                case "score" -> SCORE;
+                case "weighted", "weightedscore" -> WEIGHTED_SCORE;
+                case "popularity", "favorites" -> POPULARITY;
+                case "relevance" -> RELEVANCE;
+                default -> TITLE;
+            };
+        }
+    }
+}
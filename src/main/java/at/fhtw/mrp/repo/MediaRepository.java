@@ -1,12 +1,20 @@
 package at.fhtw.mrp.repo;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.db.Database;
 import at.fhtw.mrp.model.MediaEntry;
+import at.fhtw.mrp.model.RatingStats;
+import at.fhtw.mrp.util.TinyLfuCache;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -14,6 +22,43 @@ import java.util.UUID;
  */
 public class MediaRepository implements IRepository {
 
+    // Text search configuration of search_vector (migration 008)
+    private static final String FULLTEXT_CONFIG = "english";
+
+    /**
+     * Fresh per-request state of a media entry: version and last change of everything in its
+     * detail view (009) plus the rating aggregates (006). One primary key lookup.
+     */
+    public record MediaState(long version, Timestamp updatedAt, RatingStats stats) {}
+
+    /**
+     * One row of the catalog export
+     * @param stats - approved rating aggregates, null unless requested
+     */
+    public record ExportRow(MediaEntry entry, RatingStats stats) {}
+
+    // findById results, including "not found" (Optional.empty) for a shorter time
+    private final TinyLfuCache<UUID, Optional<MediaEntry>> cache;
+    private final long negativeTtlMillis;
+
+    public MediaRepository() {
+        this(new TinyLfuCache<>(AppConfig.MEDIA_CACHE_MAX_ENTRIES, AppConfig.MEDIA_CACHE_TTL_SECONDS * 1000),
+                AppConfig.MEDIA_CACHE_NEGATIVE_TTL_SECONDS * 1000);
+    }
+
+    public MediaRepository(TinyLfuCache<UUID, Optional<MediaEntry>> cache, long negativeTtlMillis) {
+        this.cache = cache;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    // Columns read by mapRow, so queries skip search_vector and the rating aggregates
+    private static final String ENTRY_COLUMNS =
+            "id, owner_id, title, description, media_type, release_year, genres, age_restriction, version, updated_at";
+
+    // Columns read by RatingRepository.mapResultSetToStats
+    private static final String STATS_COLUMNS =
+            "rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5";
+
     private MediaEntry mapRow(ResultSet rs) throws SQLException {
         return new MediaEntry(
                 rs.getObject("id", UUID.class),
@@ -23,47 +68,135 @@ public class MediaRepository implements IRepository {
                 rs.getString("media_type"),
                 (Integer) rs.getObject("release_year"),
                 rs.getString("genres"),
-                (Integer) rs.getObject("age_restriction")
+                (Integer) rs.getObject("age_restriction"),
+                rs.getLong("version"),
+                rs.getTimestamp("updated_at")
         );
     }
 
     @Override
     public void insert(Object entity) throws SQLException {
         MediaEntry entry = (MediaEntry) entity;
-        String sql = """
-                INSERT INTO media_entries
-                (id, owner_id, title, description, media_type, release_year, genres, age_restriction)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-                """;
 
         try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+             PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
 
-            ps.setObject(1, entry.getId());
-            ps.setObject(2, entry.getOwnerId());
-            ps.setString(3, entry.getTitle());
-            ps.setString(4, entry.getDescription());
-            ps.setString(5, entry.getMediaType());
-
-            if (entry.getReleaseYear() == null)
-                ps.setNull(6, Types.INTEGER);
-            else
-                ps.setInt(6, entry.getReleaseYear());
+            bindInsert(ps, entry);
+            ps.executeUpdate();
+        } finally {
+            // A lookup of the new id may have been cached as "not found"
+            cache.invalidate(entry.getId());
+        }
+    }
 
-            ps.setString(7, entry.getGenres());
+    /**
+     * Insert many entries in one transaction (JDBC batch): all of them or none
+     */
+    public void insertBatch(List<MediaEntry> entries) throws SQLException {
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                for (MediaEntry entry : entries) {
+                    bindInsert(ps, entry);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } finally {
+            for (MediaEntry entry : entries) {
+                cache.invalidate(entry.getId());
+            }
+        }
+    }
 
-            if (entry.getAgeRestriction() == null)
-                ps.setNull(8, Types.INTEGER);
-            else
-                ps.setInt(8, entry.getAgeRestriction());
+    private static final String INSERT_SQL = """
+            INSERT INTO media_entries
+            (id, owner_id, title, description, media_type, release_year, genres, age_restriction)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static void bindInsert(PreparedStatement ps, MediaEntry entry) throws SQLException {
+        ps.setObject(1, entry.getId());
+        ps.setObject(2, entry.getOwnerId());
+        ps.setString(3, entry.getTitle());
+        ps.setString(4, entry.getDescription());
+        ps.setString(5, entry.getMediaType());
+
+        if (entry.getReleaseYear() == null)
+            ps.setNull(6, Types.INTEGER);
+        else
+            ps.setInt(6, entry.getReleaseYear());
+
+        ps.setString(7, entry.getGenres());
+
+        if (entry.getAgeRestriction() == null)
+            ps.setNull(8, Types.INTEGER);
+        else
+            ps.setInt(8, entry.getAgeRestriction());
+    }
 
-            ps.executeUpdate();
+    /**
+     * Which of the given media entries exist, locked against deletion (FOR KEY SHARE)
+     * until the caller's transaction ends - for batches that insert rows referencing them
+     */
+    static Set<UUID> lockExisting(Connection c, Collection<UUID> ids) throws SQLException {
+        Set<UUID> existing = new HashSet<>();
+        if (ids.isEmpty()) return existing;
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT id FROM media_entries WHERE id = ANY (?) FOR KEY SHARE")) {
+            ps.setArray(1, c.createArrayOf("uuid", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getObject(1, UUID.class));
+                }
+            }
         }
+        return existing;
     }
 
+    /**
+     * Read-through: served from the entity cache, loaded and cached on a miss
+     * Entries are dropped by update/delete of this repository; the cached updatedAt does not
+     * follow rating changes, use findState for validators.
+     */
     @Override
     public Optional<?> findById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM media_entries WHERE id = ?";
+        Optional<MediaEntry> cached = cache.get(id);
+        if (cached != null) return cached;
+
+        long epoch = cache.epoch(id);
+        Optional<MediaEntry> loaded = load(id);
+        if (loaded.isPresent()) {
+            cache.put(id, loaded, epoch);
+        } else {
+            cache.put(id, loaded, negativeTtlMillis, epoch);
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop a cached entry, e.g. when findState shows it is outdated
+     */
+    public void evict(UUID id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Hit/miss statistics of the entity cache
+     */
+    public TinyLfuCache<UUID, Optional<MediaEntry>> getCache() {
+        return cache;
+    }
+
+    private Optional<MediaEntry> load(UUID id) throws SQLException {
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM media_entries WHERE id = ?";
 
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
@@ -113,6 +246,8 @@ public class MediaRepository implements IRepository {
             ps.setObject(7, entry.getId());
 
             ps.executeUpdate();
+        } finally {
+            cache.invalidate(entry.getId());
         }
     }
 
@@ -125,51 +260,132 @@ public class MediaRepository implements IRepository {
 
             ps.setObject(1, id);
             ps.executeUpdate();
+        } finally {
+            cache.invalidate(id);
         }
     }
 
-    @Override
-    public List<?> listAll() throws SQLException {
-        return listByQuery(null);
+    /**
+     * Update an entry if it belongs to ownerId (and still has expectedVersion) - one statement
+     * @param entry - new field values, id identifies the row
+     * @param expectedVersion - version the client based its edit on, null to skip the check
+     */
+    public MutationResult updateOwned(MediaEntry entry, UUID ownerId, Long expectedVersion) throws SQLException {
+        String sql = """
+                WITH updated AS (
+                    UPDATE media_entries SET
+                        title = ?,
+                        description = ?,
+                        media_type = ?,
+                        release_year = ?,
+                        genres = ?,
+                        age_restriction = ?
+                    WHERE id = ? AND owner_id = ? AND (?::BIGINT IS NULL OR version = ?)
+                    RETURNING version
+                )
+                SELECT (SELECT version FROM updated) AS new_version, owner_id
+                FROM media_entries
+                WHERE id = ?
+                """;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setString(1, entry.getTitle());
+            ps.setString(2, entry.getDescription());
+            ps.setString(3, entry.getMediaType());
+            ps.setObject(4, entry.getReleaseYear(), Types.INTEGER);
+            ps.setString(5, entry.getGenres());
+            ps.setObject(6, entry.getAgeRestriction(), Types.INTEGER);
+            ps.setObject(7, entry.getId());
+            ps.setObject(8, ownerId);
+            ps.setObject(9, expectedVersion, Types.BIGINT);
+            ps.setObject(10, expectedVersion, Types.BIGINT);
+            ps.setObject(11, entry.getId());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return MutationResult.read(rs, ownerId);
+            }
+        } finally {
+            cache.invalidate(entry.getId());
+        }
     }
 
-    @Override
-    public List<?> listByQuery(String query) throws SQLException {
+    /**
+     * Delete an entry if it belongs to ownerId (and still has expectedVersion) - one statement
+     * @param expectedVersion - version the client based its delete on, null to skip the check
+     */
+    public MutationResult deleteOwned(UUID id, UUID ownerId, Long expectedVersion) throws SQLException {
         String sql = """
-                SELECT * FROM media_entries
-                WHERE ? IS NULL
-                   OR title ILIKE '%' || ? || '%'
-                   OR description ILIKE '%' || ? || '%'
-                ORDER BY title
+                WITH deleted AS (
+                    DELETE FROM media_entries
+                    WHERE id = ? AND owner_id = ? AND (?::BIGINT IS NULL OR version = ?)
+                    RETURNING version
+                )
+                SELECT (SELECT version FROM deleted) AS new_version, owner_id
+                FROM media_entries
+                WHERE id = ?
                 """;
 
-        List<MediaEntry> out = new ArrayList<>();
-
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
-            if (query == null || query.isBlank()) {
-                ps.setNull(1, Types.VARCHAR);
-                ps.setNull(2, Types.VARCHAR);
-                ps.setNull(3, Types.VARCHAR);
-            } else {
-                ps.setString(1, query);
-                ps.setString(2, query);
-                ps.setString(3, query);
-            }
+            ps.setObject(1, id);
+            ps.setObject(2, ownerId);
+            ps.setObject(3, expectedVersion, Types.BIGINT);
+            ps.setObject(4, expectedVersion, Types.BIGINT);
+            ps.setObject(5, id);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) out.add(mapRow(rs));
+                return MutationResult.read(rs, ownerId);
             }
+        } finally {
+            cache.invalidate(id);
         }
+    }
 
-        return out;
+    @Override
+    public List<?> listAll() throws SQLException {
+        return listByQuery(null);
+    }
+
+    // ILIKE '%q%' is served by the trigram indexes from migration 008
+    @Override
+    public List<?> listByQuery(String query) throws SQLException {
+        return CursorQuery.list(LIST_BY_QUERY_SQL, ps -> bindQuery(ps, query), this::mapRow);
+    }
+
+    /**
+     * Streaming variant of listByQuery: rows are handed on while the cursor is open
+     * @return number of rows
+     */
+    public long streamByQuery(String query, RowCallback<MediaEntry> callback) throws SQLException, IOException {
+        return CursorQuery.stream(LIST_BY_QUERY_SQL, ps -> bindQuery(ps, query), this::mapRow, callback);
+    }
+
+    private static final String LIST_BY_QUERY_SQL = "SELECT " + ENTRY_COLUMNS + " FROM media_entries\n" + """
+            WHERE ? IS NULL
+               OR title ILIKE '%' || ? || '%'
+               OR description ILIKE '%' || ? || '%'
+            ORDER BY title
+            """;
+
+    private static void bindQuery(PreparedStatement ps, String query) throws SQLException {
+        if (query == null || query.isBlank()) {
+            ps.setNull(1, Types.VARCHAR);
+            ps.setNull(2, Types.VARCHAR);
+            ps.setNull(3, Types.VARCHAR);
+        } else {
+            ps.setString(1, query);
+            ps.setString(2, query);
+            ps.setString(3, query);
+        }
     }
 
     @Override
     public List<?> listByRelatedId(UUID relatedId) throws SQLException {
         // Used for listing media by owner
-        String sql = "SELECT * FROM media_entries WHERE owner_id = ? ORDER BY title";
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM media_entries WHERE owner_id = ? ORDER BY title";
 
         List<MediaEntry> media = new ArrayList<>();
 
@@ -188,6 +404,21 @@ public class MediaRepository implements IRepository {
         return media;
     }
 
+    /**
+     * Stream the whole catalog in id order (UUIDv7, i.e. creation order) through a
+     * server-side cursor (see CursorQuery). The export reads one snapshot.
+     *
+     * @param withStats - include the rating aggregates (same row, no extra query)
+     * @param callback - receives each row while the cursor is open
+     * @return number of exported rows
+     */
+    public long export(boolean withStats, RowCallback<ExportRow> callback) throws SQLException, IOException {
+        String columns = withStats ? ENTRY_COLUMNS + ", " + STATS_COLUMNS : ENTRY_COLUMNS;
+        return CursorQuery.stream("SELECT " + columns + " FROM media_entries ORDER BY id", null,
+                rs -> new ExportRow(mapRow(rs), withStats ? RatingRepository.mapResultSetToStats(rs) : null),
+                callback);
+    }
+
     @Override
     public Optional<?> findByString(String identifier) throws SQLException {
         throw new UnsupportedOperationException("findByString not supported for MediaEntry");
@@ -195,8 +426,193 @@ public class MediaRepository implements IRepository {
 
     // HELPER METHODS (not from interface)
 
+    /**
+     * List media matching the given filter in a single query
+     * Filtering, sorting and limiting all happen in PostgreSQL, so memory use
+     * scales with the result size instead of the catalog size.
+     *
+     * @param filter - filter, sort and limit criteria
+     * @return matching media entries, at most filter.limit()
+     */
+    public List<MediaEntry> findFiltered(MediaFilter filter) throws SQLException {
+        return findPage(filter, null).items();
+    }
+
+    /**
+     * Keyset-paginated variant of findFiltered
+     * The cursor holds the sort value and id of the previous page's last row, so
+     * every page is an index range scan no matter how deep the client pages.
+     *
+     * @param filter - filter, sort and page size
+     * @param cursor - nextCursor of the previous page, null for the first page
+     * @return one page of media entries
+     * @throws IllegalArgumentException if the cursor is invalid for this sort order
+     */
+    public Page<MediaEntry> findPage(MediaFilter filter, String cursor) throws SQLException {
+        boolean fullText = filter.search() != null && filter.searchMode() == MediaFilter.SearchMode.FULLTEXT;
+        // Relevance only exists for full-text searches
+        MediaFilter.SortKey sortKey = filter.sortKey() == MediaFilter.SortKey.RELEVANCE && !fullText
+                ? MediaFilter.SortKey.TITLE
+                : filter.sortKey();
+
+        String sortExpr = sortExpression(sortKey);
+        String dir = filter.descending() ? "DESC" : "ASC";
+        String cursorTag = "media:" + sortKey.name().toLowerCase() + ":" + dir.toLowerCase();
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(ENTRY_COLUMNS).append(", ")
+                .append(sortExpr).append(" AS sort_value FROM media_entries");
+        List<Object> params = new ArrayList<>();
+
+        if (fullText) {
+            // Parsed once, referenced as "query" by the match and ts_rank
+            sql.append(", websearch_to_tsquery('").append(FULLTEXT_CONFIG).append("', ?) AS query");
+            params.add(filter.search());
+        }
+        sql.append(" WHERE TRUE");
+
+        if (fullText) {
+            sql.append(" AND search_vector @@ query");
+        } else if (filter.search() != null) {
+            sql.append(" AND (title ILIKE ? OR description ILIKE ?)");
+            String pattern = "%" + escapeLike(filter.search()) + "%";
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (filter.genre() != null) {
+            sql.append(" AND genres ILIKE ?");
+            params.add("%" + escapeLike(filter.genre()) + "%");
+        }
+        if (filter.mediaType() != null) {
+            // media_type is constrained to lowercase values
+            sql.append(" AND media_type = ?");
+            params.add(filter.mediaType().toLowerCase());
+        }
+        if (filter.year() != null) {
+            sql.append(" AND release_year = ?");
+            params.add(filter.year());
+        }
+        if (filter.minYear() != null) {
+            sql.append(" AND release_year >= ?");
+            params.add(filter.minYear());
+        }
+        if (filter.maxYear() != null) {
+            sql.append(" AND release_year <= ?");
+            params.add(filter.maxYear());
+        }
+        if (filter.maxAge() != null) {
+            sql.append(" AND (age_restriction IS NULL OR age_restriction <= ?)");
+            params.add(filter.maxAge());
+        }
+
+        if (cursor != null) {
+            String[] last = Cursor.decode(cursor, cursorTag, 2);
+            sql.append(" AND (").append(sortExpr).append(", id) ")
+                    .append(filter.descending() ? "<" : ">").append(" (?, ?)");
+            params.add(sortValueParam(sortKey, last[0]));
+            params.add(Cursor.parseId(last[1]));
+        }
+
+        // id breaks ties so the order is total and pages never overlap
+        sql.append(" ORDER BY ").append(sortExpr).append(" ").append(dir)
+                .append(", id ").append(dir)
+                .append(" LIMIT ?");
+        params.add(filter.limit() + 1);   // one extra row tells us whether another page exists
+
+        List<MediaEntry> media = new ArrayList<>();
+        String lastSortValue = null;
+        boolean hasMore = false;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (media.size() == filter.limit()) {
+                        hasMore = true;
+                        break;
+                    }
+                    media.add(mapRow(rs));
+                    lastSortValue = rs.getString("sort_value");
+                }
+            }
+        }
+
+        String next = hasMore
+                ? Cursor.encode(cursorTag, lastSortValue, media.get(media.size() - 1).getId().toString())
+                : null;
+        return new Page<>(media, next);
+    }
+
+    // Expression the list is ordered by; must match the keyset comparison and indexes
+    private static String sortExpression(MediaFilter.SortKey key) {
+        return switch (key) {
+            case TITLE -> "LOWER(title)";
+            // Missing years sort like year 0
+            case YEAR -> "COALESCE(release_year, 0)";
+            // Generated columns over the rating aggregates, unrated entries score 0 / the prior
+            case SCORE -> "avg_score";
+            case WEIGHTED_SCORE -> "weighted_score";
+            case POPULARITY -> "favorite_count";
+            case RELEVANCE -> "ts_rank(search_vector, query)";
+        };
+    }
+
+    // Cursor values are strings; bind them with the SQL type of the sort expression
+    private static Object sortValueParam(MediaFilter.SortKey key, String value) {
+        try {
+            return switch (key) {
+                case TITLE -> value;
+                case YEAR, POPULARITY -> Integer.parseInt(value);
+                case SCORE, WEIGHTED_SCORE -> new BigDecimal(value);
+                case RELEVANCE -> Float.parseFloat(value);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+
+    // Escape LIKE wildcards so user input is matched literally
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    /**
+     * Average of approved ratings, read from the denormalized counters
+     */
     public double averageScore(UUID mediaId) throws SQLException {
-        String sql = "SELECT AVG(stars) AS avg_score FROM ratings WHERE media_id = ?";
+        String sql = "SELECT rating_count, rating_sum FROM media_entries WHERE id = ?";
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setObject(1, mediaId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return 0.0;
+                int count = rs.getInt("rating_count");
+                return count == 0 ? 0.0 : (double) rs.getInt("rating_sum") / count;
+            }
+        }
+    }
+
+    /**
+     * Current version, last change and rating aggregates of a media entry, never cached
+     * @return Optional.empty() if the media entry does not exist
+     */
+    public Optional<MediaState> findState(UUID mediaId) throws SQLException {
+        String sql = """
+                SELECT version, updated_at,
+                       rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5
+                FROM media_entries
+                WHERE id = ?
+                """;
 
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
@@ -204,9 +620,12 @@ public class MediaRepository implements IRepository {
             ps.setObject(1, mediaId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getDouble("avg_score");
-                return 0.0;
+                if (!rs.next()) return Optional.empty();
+                return Optional.of(new MediaState(
+                        rs.getLong("version"),
+                        rs.getTimestamp("updated_at"),
+                        RatingRepository.mapResultSetToStats(rs)));
             }
         }
     }
-}
\ No newline at end of file
+}
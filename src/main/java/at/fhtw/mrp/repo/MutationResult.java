@@ -0,0 +1,49 @@
+package at.fhtw.mrp.repo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Outcome of a guarded single-statement mutation (UPDATE/DELETE ... WHERE id AND owner AND version)
+ *
+ * The statement reports the row's owner and version alongside the mutation, so a
+ * "0 rows" result can be told apart without a second round trip.
+ *
+ * @param status - what happened
+ * @param version - row version after an applied update (of the removed row for a delete), else 0
+ */
+public record MutationResult(Status status, long version) {
+
+    public enum Status {
+        APPLIED,
+        /** No row with this id */
+        NOT_FOUND,
+        /** Row belongs to another user */
+        FORBIDDEN,
+        /** Expected version did not match (edited concurrently) */
+        CONFLICT
+    }
+
+    public boolean applied() {
+        return status == Status.APPLIED;
+    }
+
+    /**
+     * Read the result row of a guarded mutation
+     * Expected columns: new_version (null if nothing was changed), owner_id
+     * @param rs - result of the statement, positioned before its single row (no row = not found)
+     * @param ownerId - user who attempted the mutation
+     */
+    static MutationResult read(ResultSet rs, UUID ownerId) throws SQLException {
+        if (!rs.next()) return new MutationResult(Status.NOT_FOUND, 0);
+
+        long newVersion = rs.getLong("new_version");
+        if (!rs.wasNull()) return new MutationResult(Status.APPLIED, newVersion);
+
+        if (!ownerId.equals(rs.getObject("owner_id", UUID.class))) {
+            return new MutationResult(Status.FORBIDDEN, 0);
+        }
+        return new MutationResult(Status.CONFLICT, 0);
+    }
+}
@@ -0,0 +1,27 @@
+package at.fhtw.mrp.repo;
+
+import at.fhtw.mrp.config.AppConfig;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list
+ * @param items - rows of this page
+ * @param nextCursor - opaque cursor for the following page, null if this is the last page
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Effective page size for a requested limit
+     * @param requested - limit from the client, null if none was given
+     * @return requested limit clamped to 1..AppConfig.LIST_MAX_LIMIT (null: the maximum)
+     */
+    public static int limit(Integer requested) {
+        if (requested == null || requested > AppConfig.LIST_MAX_LIMIT) return AppConfig.LIST_MAX_LIMIT;
+        return Math.max(requested, 1);
+    }
+}
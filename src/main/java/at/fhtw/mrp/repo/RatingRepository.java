@@ -2,11 +2,19 @@ package at.fhtw.mrp.repo;
 
 import at.fhtw.mrp.db.Database;
 import at.fhtw.mrp.model.Rating;
+import at.fhtw.mrp.model.RatingStats;
+import at.fhtw.mrp.util.UuidV7;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -23,7 +31,7 @@ public class RatingRepository implements IRepository {
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            UUID id = UUID.randomUUID();
+            UUID id = UuidV7.generate();
             stmt.setObject(1, id);
             stmt.setObject(2, rating.getMediaId());
             stmt.setObject(3, rating.getUserId());
@@ -37,6 +45,70 @@ public class RatingRepository implements IRepository {
         }
     }
 
+    /**
+     * Insert many ratings in one transaction (JDBC batch), all as pending
+     * Ratings for missing media or that duplicate an existing rating of the same user
+     * and media are skipped; the others get their id set.
+     * @return per rating: APPLIED, NOT_FOUND (media missing) or CONFLICT (duplicate)
+     */
+    public List<MutationResult.Status> insertBatch(List<Rating> ratings) throws SQLException {
+        String sql = """
+                INSERT INTO ratings (id, media_id, user_id, stars, comment, approval_status)
+                VALUES (?, ?, ?, ?, ?, 'pending')
+                ON CONFLICT (media_id, user_id) DO NOTHING
+                """;
+
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<UUID> mediaIds = new HashSet<>();
+                for (Rating rating : ratings) mediaIds.add(rating.getMediaId());
+                Set<UUID> existing = MediaRepository.lockExisting(conn, mediaIds);
+
+                List<Rating> batched = new ArrayList<>();
+                int[] counts;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (Rating rating : ratings) {
+                        if (!existing.contains(rating.getMediaId())) continue;
+                        rating.setId(UuidV7.generate());
+                        stmt.setObject(1, rating.getId());
+                        stmt.setObject(2, rating.getMediaId());
+                        stmt.setObject(3, rating.getUserId());
+                        stmt.setInt(4, rating.getStars());
+                        stmt.setString(5, rating.getComment());
+                        stmt.addBatch();
+                        batched.add(rating);
+                    }
+                    counts = stmt.executeBatch();
+                }
+                conn.commit();
+
+                // Skipped duplicates keep no id
+                for (int b = 0; b < counts.length; b++) {
+                    if (counts[b] == 0) batched.get(b).setId(null);
+                }
+
+                List<MutationResult.Status> statuses = new ArrayList<>();
+                for (Rating rating : ratings) {
+                    if (!existing.contains(rating.getMediaId())) {
+                        statuses.add(MutationResult.Status.NOT_FOUND);
+                    } else if (rating.getId() == null) {
+                        statuses.add(MutationResult.Status.CONFLICT);
+                    } else {
+                        rating.setApprovalStatus("pending");
+                        statuses.add(MutationResult.Status.APPLIED);
+                    }
+                }
+                return statuses;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     @Override
     public Optional<?> findById(UUID id) throws SQLException {
         String sql = "SELECT * FROM ratings WHERE id = ?";
@@ -82,22 +154,99 @@ public class RatingRepository implements IRepository {
         }
     }
 
-    @Override
-    public List<?> listAll() throws SQLException {
-        String sql = "SELECT * FROM ratings WHERE approval_status = 'approved'";
-        List<Rating> ratings = new ArrayList<>();
+    /**
+     * Edit a rating if it belongs to userId (and still has expectedVersion) - one statement
+     * A changed comment sends an approved rating back to moderation.
+     * @param stars - new stars, null to keep them
+     * @param setComment - whether comment is part of the edit (null comment clears it)
+     * @param expectedVersion - version the client based its edit on, null to skip the check
+     */
+    public MutationResult updateOwned(UUID id, UUID userId, Integer stars, boolean setComment, String comment,
+                                      Long expectedVersion) throws SQLException {
+        // SET expressions see the old row, so comment/approval_status compare against it
+        String sql = """
+                WITH updated AS (
+                    UPDATE ratings SET
+                        stars = COALESCE(?, stars),
+                        comment = CASE WHEN ? THEN ? ELSE comment END,
+                        approval_status = CASE
+                            WHEN ? AND ? IS DISTINCT FROM comment AND approval_status = 'approved'
+                            THEN 'pending' ELSE approval_status END,
+                        version = version + 1
+                    WHERE id = ? AND user_id = ? AND (?::BIGINT IS NULL OR version = ?)
+                    RETURNING version
+                )
+                SELECT (SELECT version FROM updated) AS new_version, user_id AS owner_id
+                FROM ratings
+                WHERE id = ?
+                """;
 
         try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                ratings.add(mapResultSetToRating(rs));
+            stmt.setObject(1, stars, Types.INTEGER);
+            stmt.setBoolean(2, setComment);
+            stmt.setString(3, comment);
+            stmt.setBoolean(4, setComment);
+            stmt.setString(5, comment);
+            stmt.setObject(6, id);
+            stmt.setObject(7, userId);
+            stmt.setObject(8, expectedVersion, Types.BIGINT);
+            stmt.setObject(9, expectedVersion, Types.BIGINT);
+            stmt.setObject(10, id);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return MutationResult.read(rs, userId);
             }
         }
-        return ratings;
     }
 
+    /**
+     * Delete a rating if it belongs to userId (and still has expectedVersion) - one statement
+     * @param expectedVersion - version the client based its delete on, null to skip the check
+     */
+    public MutationResult deleteOwned(UUID id, UUID userId, Long expectedVersion) throws SQLException {
+        String sql = """
+                WITH deleted AS (
+                    DELETE FROM ratings
+                    WHERE id = ? AND user_id = ? AND (?::BIGINT IS NULL OR version = ?)
+                    RETURNING version
+                )
+                SELECT (SELECT version FROM deleted) AS new_version, user_id AS owner_id
+                FROM ratings
+                WHERE id = ?
+                """;
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, id);
+            stmt.setObject(2, userId);
+            stmt.setObject(3, expectedVersion, Types.BIGINT);
+            stmt.setObject(4, expectedVersion, Types.BIGINT);
+            stmt.setObject(5, id);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return MutationResult.read(rs, userId);
+            }
+        }
+    }
+
+    @Override
+    public List<?> listAll() throws SQLException {
+        return CursorQuery.list(LIST_ALL_SQL, null, this::mapResultSetToRating);
+    }
+
+    /**
+     * Streaming variant of listAll: rows are handed on while the cursor is open
+     * @return number of rows
+     */
+    public long streamAll(RowCallback<Rating> callback) throws SQLException, IOException {
+        return CursorQuery.stream(LIST_ALL_SQL, null, this::mapResultSetToRating, callback);
+    }
+
+    private static final String LIST_ALL_SQL = "SELECT * FROM ratings WHERE approval_status = 'approved'";
+
     @Override
     public List<?> listByQuery(String query) throws SQLException {
         throw new UnsupportedOperationException("Query search not applicable for ratings");
@@ -132,8 +281,39 @@ public class RatingRepository implements IRepository {
         return ratings;
     }
 
+    /**
+     * Approved rating aggregates of a media entry (single primary key lookup)
+     * @return Optional.empty() if the media entry does not exist
+     */
+    public Optional<RatingStats> findStatsByMediaId(UUID mediaId) throws SQLException {
+        String sql = """
+                SELECT rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5
+                FROM media_entries
+                WHERE id = ?
+                """;
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, mediaId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return Optional.empty();
+                return Optional.of(mapResultSetToStats(rs));
+            }
+        }
+    }
+
+    static RatingStats mapResultSetToStats(ResultSet rs) throws SQLException {
+        int[] distribution = new int[5];
+        for (int stars = 1; stars <= 5; stars++) {
+            distribution[stars - 1] = rs.getInt("rating_" + stars);
+        }
+        return new RatingStats(rs.getInt("rating_count"), rs.getInt("rating_sum"), distribution);
+    }
+
     public List<Rating> findByUserId(UUID userId) throws SQLException {
-        String sql = "SELECT * FROM ratings WHERE user_id = ?";
+        String sql = "SELECT * FROM ratings WHERE user_id = ? ORDER BY created_at DESC, id DESC";
         List<Rating> ratings = new ArrayList<>();
 
         try (Connection conn = Database.getConnection();
@@ -149,45 +329,216 @@ public class RatingRepository implements IRepository {
         return ratings;
     }
 
-    public List<Rating> findPendingRatings() throws SQLException {
-        String sql = "SELECT * FROM ratings WHERE approval_status = 'pending' ORDER BY id";
+    /**
+     * Page through a user's ratings, newest first
+     * @param cursor - nextCursor of the previous page, null for the first page
+     */
+    public Page<Rating> findByUserIdPage(UUID userId, int limit, String cursor) throws SQLException {
+        return findPage("user_id = ?", userId, "rating:user", limit, cursor);
+    }
+
+    /**
+     * Page through the approved ratings of a media entry, newest first
+     * @param cursor - nextCursor of the previous page, null for the first page
+     */
+    public Page<Rating> findByMediaIdApprovedPage(UUID mediaId, int limit, String cursor) throws SQLException {
+        return findPage("media_id = ? AND approval_status = 'approved'", mediaId, "rating:media", limit, cursor);
+    }
+
+    // Keyset pagination over (created_at, id) descending
+    private Page<Rating> findPage(String where, UUID key, String cursorTag, int limit, String cursor)
+            throws SQLException {
+        String sql = "SELECT * FROM ratings WHERE " + where
+                + (cursor != null ? " AND (created_at, id) < (?, ?)" : "")
+                + " ORDER BY created_at DESC, id DESC LIMIT ?";
+
         List<Rating> ratings = new ArrayList<>();
+        OffsetDateTime lastCreatedAt = null;
+        boolean hasMore = false;
 
         try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                ratings.add(mapResultSetToRating(rs));
+            int i = 1;
+            stmt.setObject(i++, key);
+            if (cursor != null) {
+                String[] last = Cursor.decode(cursor, cursorTag, 2);
+                stmt.setObject(i++, parseTimestamp(last[0]));
+                stmt.setObject(i++, Cursor.parseId(last[1]));
+            }
+            stmt.setInt(i, limit + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (ratings.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    ratings.add(mapResultSetToRating(rs));
+                    lastCreatedAt = rs.getObject("created_at", OffsetDateTime.class);
+                }
             }
         }
-        return ratings;
+
+        String next = hasMore
+                ? Cursor.encode(cursorTag, lastCreatedAt.toString(), ratings.get(ratings.size() - 1).getId().toString())
+                : null;
+        return new Page<>(ratings, next);
     }
 
-    public void approveRating(UUID ratingId) throws SQLException {
-        String sql = "UPDATE ratings SET approval_status = 'approved' WHERE id = ?";
+    private static OffsetDateTime parseTimestamp(String value) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public List<Rating> findPendingRatings() throws SQLException {
+        return CursorQuery.list(PENDING_SQL, null, this::mapResultSetToRating);
+    }
+
+    /**
+     * Streaming variant of findPendingRatings: rows are handed on while the cursor is open
+     * @return number of rows
+     */
+    public long streamPendingRatings(RowCallback<Rating> callback) throws SQLException, IOException {
+        return CursorQuery.stream(PENDING_SQL, null, this::mapResultSetToRating, callback);
+    }
+
+    // Queue order, served by the partial index from migration 012
+    private static final String PENDING_SQL =
+            "SELECT * FROM ratings WHERE approval_status = 'pending' ORDER BY created_at, id";
+
+    /**
+     * Approve or reject a single rating in any status (legacy endpoints)
+     * Respects another moderator's live claim like decidePending and clears the claim.
+     *
+     * @param status - 'approved' or 'rejected'
+     * @return APPLIED, NOT_FOUND, or CONFLICT if another moderator holds a live claim
+     */
+    public MutationResult.Status decide(UUID ratingId, UUID moderatorId, String status) throws SQLException {
+        String sql = """
+                WITH decided AS (
+                    UPDATE ratings
+                    SET approval_status = ?, version = version + 1, claimed_by = NULL, claimed_until = NULL
+                    WHERE id = ?
+                      AND (claimed_until IS NULL OR claimed_until < now() OR claimed_by = ?)
+                    RETURNING id
+                )
+                SELECT EXISTS (SELECT 1 FROM decided), EXISTS (SELECT 1 FROM ratings WHERE id = ?)
+                """;
 
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setObject(1, ratingId);
-            stmt.executeUpdate();
+            stmt.setString(1, status);
+            stmt.setObject(2, ratingId);
+            stmt.setObject(3, moderatorId);
+            stmt.setObject(4, ratingId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                if (rs.getBoolean(1)) return MutationResult.Status.APPLIED;
+                return rs.getBoolean(2) ? MutationResult.Status.CONFLICT : MutationResult.Status.NOT_FOUND;
+            }
         }
     }
 
-    public void rejectRating(UUID ratingId) throws SQLException {
-        String sql = "UPDATE ratings SET approval_status = 'rejected' WHERE id = ?";
+    // MODERATION QUEUE (migration 012)
+
+    /**
+     * Claim the oldest pending ratings that nobody else holds a live claim on
+     * Ratings already claimed by this moderator are returned again with a renewed lease.
+     * SKIP LOCKED lets concurrent claims pass over each other's rows instead of waiting
+     * for them and then handing out the same ratings twice.
+     *
+     * @param limit - most ratings to claim
+     * @param leaseSeconds - how long the claim keeps the ratings away from other moderators
+     * @return claimed ratings, oldest first
+     */
+    public List<Rating> claimPending(UUID moderatorId, int limit, long leaseSeconds) throws SQLException {
+        String sql = """
+                WITH next AS (
+                    SELECT id FROM ratings
+                    WHERE approval_status = 'pending'
+                      AND (claimed_until IS NULL OR claimed_until < now() OR claimed_by = ?)
+                    ORDER BY created_at, id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ), claimed AS (
+                    UPDATE ratings r
+                    SET claimed_by = ?, claimed_until = now() + make_interval(secs => ?)
+                    FROM next
+                    WHERE r.id = next.id
+                    RETURNING r.*
+                )
+                SELECT * FROM claimed ORDER BY created_at, id
+                """;
+        List<Rating> ratings = new ArrayList<>();
 
         try (Connection conn = Database.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setObject(1, ratingId);
-            stmt.executeUpdate();
+            stmt.setObject(1, moderatorId);
+            stmt.setInt(2, limit);
+            stmt.setObject(3, moderatorId);
+            stmt.setLong(4, leaseSeconds);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ratings.add(mapResultSetToRating(rs));
+                }
+            }
         }
+        return ratings;
     }
 
+    /**
+     * Approve or reject many pending ratings in one statement
+     * Skips ratings that are no longer pending and ratings under another moderator's
+     * live claim, so two moderators never decide the same rating.
+     *
+     * @param status - 'approved' or 'rejected'
+     * @return ids that were decided
+     */
+    public Set<UUID> decidePending(Collection<UUID> ids, UUID moderatorId, String status) throws SQLException {
+        String sql = """
+                UPDATE ratings
+                SET approval_status = ?, version = version + 1, claimed_by = NULL, claimed_until = NULL
+                WHERE id = ANY(?)
+                  AND approval_status = 'pending'
+                  AND (claimed_until IS NULL OR claimed_until < now() OR claimed_by = ?)
+                RETURNING id
+                """;
+
+        // The stats trigger updates each rating's media row; two decisions on ratings of
+        // the same titles can lock those rows in opposite order
+        for (int attempt = 1; ; attempt++) {
+            Set<UUID> decided = new HashSet<>();
+            try (Connection conn = Database.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                stmt.setString(1, status);
+                stmt.setArray(2, conn.createArrayOf("uuid", ids.toArray()));
+                stmt.setObject(3, moderatorId);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        decided.add(rs.getObject(1, UUID.class));
+                    }
+                }
+                return decided;
+            } catch (SQLException e) {
+                if (!"40P01".equals(e.getSQLState()) || attempt == DECIDE_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    private static final int DECIDE_ATTEMPTS = 3;
+
     private Rating mapResultSetToRating(ResultSet rs) throws SQLException {
-        return new Rating(
+        Rating rating = new Rating(
                 (UUID) rs.getObject("id"),
                 (UUID) rs.getObject("media_id"),
                 (UUID) rs.getObject("user_id"),
@@ -195,5 +546,7 @@ public class RatingRepository implements IRepository {
                 rs.getString("comment"),
                 rs.getString("approval_status")
         );
+        rating.setVersion(rs.getLong("version"));
+        return rating;
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package at.fhtw.mrp.repo;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed query one at a time, while the result set is still open
+ *
+ * Used to write large results straight to a response instead of collecting them in a
+ * list first. The callback runs on the connection's transaction, so it should only
+ * serialize the row, not query the database again.
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+    void accept(T row) throws IOException;
+}
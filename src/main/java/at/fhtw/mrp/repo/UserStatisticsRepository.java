@@ -0,0 +1,96 @@
+package at.fhtw.mrp.repo;
+
+import at.fhtw.mrp.db.Database;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only aggregate queries for user profile statistics
+ * Not an IRepository: it has no entity of its own, every figure is computed
+ * by PostgreSQL from ratings, media_entries and favorites.
+ */
+public class UserStatisticsRepository {
+
+    /**
+     * Statistics of one user
+     * @param ratingsGiven - number of ratings written (any approval status)
+     * @param averageScoreGiven - average stars of those ratings, 0.0 if none
+     * @param mediaCreated - number of media entries owned
+     * @param favorites - number of favorited media entries
+     * @param averageRatingReceived - mean of the average scores of the user's rated media, 0.0 if none
+     * @param topGenres - most frequent genres among favorites, most frequent first (at most 3)
+     */
+    public record UserStatistics(int ratingsGiven,
+                                 double averageScoreGiven,
+                                 int mediaCreated,
+                                 int favorites,
+                                 double averageRatingReceived,
+                                 List<String> topGenres) {}
+
+    private static final int TOP_GENRES = 3;
+
+    /**
+     * Compute all profile statistics of a user in a single round trip
+     * Genres are split, normalized and counted in the database; the average
+     * rating received uses the per-media aggregates (avg_score), so the cost
+     * does not grow with the number of ratings on the user's media.
+     */
+    public UserStatistics getUserStatistics(UUID userId) throws SQLException {
+        String sql = """
+                SELECT
+                    (SELECT COUNT(*) FROM ratings WHERE user_id = ?)            AS ratings_given,
+                    (SELECT AVG(stars) FROM ratings WHERE user_id = ?)          AS average_given,
+                    (SELECT COUNT(*) FROM media_entries WHERE owner_id = ?)     AS media_created,
+                    (SELECT AVG(avg_score) FROM media_entries
+                     WHERE owner_id = ? AND rating_count > 0)                  AS average_received,
+                    (SELECT COUNT(*) FROM favorites WHERE user_id = ?)          AS favorites,
+                    ARRAY(
+                        SELECT g.genre
+                        FROM favorites f
+                        JOIN media_entries m ON m.id = f.media_id
+                        CROSS JOIN LATERAL (
+                            SELECT LOWER(TRIM(raw)) AS genre
+                            FROM unnest(string_to_array(m.genres, ',')) AS raw
+                        ) g
+                        WHERE f.user_id = ? AND g.genre <> ''
+                        GROUP BY g.genre
+                        ORDER BY COUNT(*) DESC, g.genre
+                        LIMIT ?
+                    )                                                           AS top_genres
+                """;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            for (int i = 1; i <= 6; i++) {
+                ps.setObject(i, userId);
+            }
+            ps.setInt(7, TOP_GENRES);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+
+                List<String> topGenres = new ArrayList<>();
+                Array genres = rs.getArray("top_genres");
+                if (genres != null) {
+                    for (Object genre : (Object[]) genres.getArray()) {
+                        topGenres.add((String) genre);
+                    }
+                    genres.free();
+                }
+
+                return new UserStatistics(
+                        rs.getInt("ratings_given"),
+                        rs.getDouble("average_given"),
+                        rs.getInt("media_created"),
+                        rs.getInt("favorites"),
+                        rs.getDouble("average_received"),
+                        topGenres
+                );
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import at.fhtw.mrp.model.User;
 import at.fhtw.mrp.repo.UserRepository;
 import at.fhtw.mrp.util.PasswordUtil;
 import at.fhtw.mrp.util.TokenService;
+import at.fhtw.mrp.util.UuidV7;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -28,7 +29,7 @@ public class AuthService implements IService {
         String hash = PasswordUtil.hash(password.toCharArray());
 
         // Create new user object
-        User u = new User(UUID.randomUUID(), username, hash, null);
+        User u = new User(UuidV7.generate(), username, hash, null);
 
         // Store user
         users.insert(u);
@@ -55,6 +56,9 @@ public class AuthService implements IService {
         // Store token in DB
         users.updateToken(user.getId(), token);
 
+        // The previous token is no longer valid
+        TokenService.invalidate(user.getId());
+
         return token;
     }
 
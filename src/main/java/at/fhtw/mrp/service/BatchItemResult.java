@@ -0,0 +1,28 @@
+package at.fhtw.mrp.service;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a batch request (POST /api/.../batch)
+ *
+ * @param index - position of the item in the request
+ * @param status - created, exists, duplicate, not_found or invalid
+ * @param id - id of the created row (created only)
+ * @param error - why the item was not written (duplicate, not_found, invalid)
+ */
+public record BatchItemResult(int index, String status, UUID id, String error) {
+
+    public static final String CREATED = "created";
+    public static final String EXISTS = "exists";
+    public static final String DUPLICATE = "duplicate";
+    public static final String NOT_FOUND = "not_found";
+    public static final String INVALID = "invalid";
+
+    static BatchItemResult created(int index, UUID id) {
+        return new BatchItemResult(index, CREATED, id, null);
+    }
+
+    static BatchItemResult failed(int index, String status, String error) {
+        return new BatchItemResult(index, status, null, error);
+    }
+}
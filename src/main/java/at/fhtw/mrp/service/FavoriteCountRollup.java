@@ -0,0 +1,72 @@
+package at.fhtw.mrp.service;
+
+import at.fhtw.mrp.repo.FavoriteRepository;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Periodically folds the sharded favorite counters into media_entries.favorite_count
+ * (see 011_favorite_count_shards.sql and FavoriteRepository.flushFavoriteCounts)
+ *
+ * Runs on its own daemon thread; close() stops it and folds once more, so a clean
+ * shutdown leaves no pending shards behind.
+ */
+public final class FavoriteCountRollup implements AutoCloseable {
+
+    private final FavoriteRepository favoriteRepo;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder mediaUpdated = new LongAdder();
+
+    /**
+     * @param intervalMillis - time between two rollups, 0 or less disables the schedule
+     */
+    public FavoriteCountRollup(FavoriteRepository favoriteRepo, long intervalMillis) {
+        this.favoriteRepo = favoriteRepo;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mrp-favorite-count-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fold pending counter shards now
+     */
+    public void flush() {
+        try {
+            int updated = favoriteRepo.flushFavoriteCounts();
+            if (updated >= 0) {
+                runs.increment();
+                mediaUpdated.add(updated);
+            }
+        } catch (SQLException e) {
+            // Shards stay in place, the next run picks them up
+            System.err.println("Favorite count rollup failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("runs=%d, mediaUpdated=%d", runs.sum(), mediaUpdated.sum());
+    }
+}
@@ -3,8 +3,10 @@ package at.fhtw.mrp.service;
 import at.fhtw.mrp.model.MediaEntry;
 import at.fhtw.mrp.repo.FavoriteRepository;
 import at.fhtw.mrp.repo.MediaRepository;
+import at.fhtw.mrp.repo.Page;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -74,21 +76,50 @@ public class FavoriteService implements IService {
         favoriteRepo.addFavorite(userId, mediaId);
     }
 
+    /**
+     * Add many favorites in one transaction
+     * Items are {mediaId} objects; media that is already a favorite is reported as "exists".
+     * @return one result per item, in request order
+     */
+    public List<BatchItemResult> addFavorites(UUID userId, List<Map<String, Object>> items) throws SQLException {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<UUID> valid = new ArrayList<>();
+        List<Integer> validIndex = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                valid.add(UUID.fromString(String.valueOf(items.get(i).get("mediaId"))));
+                validIndex.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchItemResult.failed(i, BatchItemResult.INVALID, "mediaId must be a UUID");
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            List<FavoriteRepository.Added> added = favoriteRepo.addFavorites(userId, valid);
+            for (int v = 0; v < valid.size(); v++) {
+                int i = validIndex.get(v);
+                results[i] = switch (added.get(v).status()) {
+                    case APPLIED -> BatchItemResult.created(i, added.get(v).favoriteId());
+                    case NOT_FOUND -> BatchItemResult.failed(i, BatchItemResult.NOT_FOUND, "Media entry not found");
+                    default -> new BatchItemResult(i, BatchItemResult.EXISTS, null, null);
+                };
+            }
+        }
+        return List.of(results);
+    }
+
     public void removeFavorite(UUID userId, UUID mediaId) throws SQLException {
         favoriteRepo.removeFavorite(userId, mediaId);
     }
 
+    /**
+     * Add the favorite if missing, remove it if present - one atomic statement
+     * @return new state (true = favorited)
+     */
     public boolean toggleFavorite(UUID userId, UUID mediaId) throws SQLException {
-        // Check if already favorited
-        if (favoriteRepo.isFavorite(userId, mediaId)) {
-            // Already favorited, then remove it
-            favoriteRepo.removeFavorite(userId, mediaId);
-            return false;  // Removed
-        } else {
-            // Not favorited, then add it
-            addFavorite(userId, mediaId);
-            return true;   // Added
-        }
+        return favoriteRepo.toggleFavorite(userId, mediaId)
+                .orElseThrow(() -> new IllegalArgumentException("Media entry not found"));
     }
 
     public boolean isFavorite(UUID userId, UUID mediaId) throws SQLException {
@@ -99,6 +130,15 @@ public class FavoriteService implements IService {
         return favoriteRepo.getFavoriteMedia(userId);
     }
 
+    /**
+     * One page of a user's favorite media, most recently favorited first
+     * @param limit page size (null: AppConfig.LIST_MAX_LIMIT)
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public Page<MediaEntry> getUserFavoritesPage(UUID userId, Integer limit, String cursor) throws SQLException {
+        return favoriteRepo.getFavoriteMediaPage(userId, Page.limit(limit), cursor);
+    }
+
     public int getFavoriteCount(UUID mediaId) throws SQLException {
         return favoriteRepo.getFavoriteCount(mediaId);
     }
@@ -2,28 +2,71 @@ package at.fhtw.mrp.service;
 
 import at.fhtw.mrp.model.MediaEntry;
 import at.fhtw.mrp.model.User;
+import at.fhtw.mrp.repo.MediaFilter;
 import at.fhtw.mrp.repo.MediaRepository;
-
+import at.fhtw.mrp.repo.MutationResult;
+import at.fhtw.mrp.repo.Page;
+import at.fhtw.mrp.repo.RowCallback;
+import at.fhtw.mrp.util.SingleFlight;
+import at.fhtw.mrp.util.UuidV7;
+import at.fhtw.mrp.util.VersionUtil;
+
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service implementation for Media business logic
  * SUPPORTS: Filtering, Sorting, Search
+ *
+ * Hot reads (get, detail, averageScore, list queries) are coalesced: concurrent identical
+ * reads share one in-flight database query instead of each running their own.
  */
 public class MediaService implements IService {
 
+    private static final Set<String> MEDIA_TYPES = Set.of("movie", "series", "game");
+
     private final MediaRepository mediaRepo;
 
+    // Key of a list page query: MediaFilter is a record, so equal requests have equal keys.
+    // The write count keeps a load that follows a write from joining a query started before it.
+    private record PageKey(MediaFilter filter, String cursor, long writes) {}
+
+    private final SingleFlight<UUID, Optional<MediaEntry>> getFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, Optional<MediaDetail>> detailFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, Double> scoreFlights = new SingleFlight<>();
+    private final SingleFlight<PageKey, Page<MediaEntry>> pageFlights = new SingleFlight<>();
+    private final SingleFlight<Optional<String>, List<MediaEntry>> queryFlights = new SingleFlight<>();
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong writes = new AtomicLong();
+
     public MediaService(MediaRepository mediaRepo) {
         this.mediaRepo = mediaRepo;
     }
 
+    /**
+     * Register a callback run after every create, update and delete
+     * (e.g. to drop cached list responses)
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    private void fireChanged() {
+        writes.incrementAndGet();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
     private static Integer asInt(Object o) {
         if (o == null) return null;
         return Integer.valueOf(String.valueOf(o));
@@ -43,22 +86,77 @@ public class MediaService implements IService {
 
     @Override
     public UUID create(UUID userId, Map<String, Object> data) throws SQLException {
-        UUID id = UUID.randomUUID();
+        UUID id = UuidV7.generate();
         MediaEntry entry = fromRequest(id, userId, data);
         mediaRepo.insert(entry);
+        fireChanged();
         return id;
     }
 
+    /**
+     * Create many entries: invalid items are reported, all valid ones are inserted in
+     * one transaction
+     * @return one result per item, in request order
+     */
+    public List<BatchItemResult> createBatch(UUID userId, List<Map<String, Object>> items) throws SQLException {
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<MediaEntry> valid = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            MediaEntry entry;
+            try {
+                entry = fromRequest(UuidV7.generate(), userId, items.get(i));
+            } catch (NumberFormatException e) {
+                results.add(BatchItemResult.failed(i, BatchItemResult.INVALID,
+                        "releaseYear and ageRestriction must be numbers"));
+                continue;
+            } catch (ClassCastException e) {
+                results.add(BatchItemResult.failed(i, BatchItemResult.INVALID, "Text fields must be strings"));
+                continue;
+            }
+
+            String error = validate(entry);
+            if (error != null) {
+                results.add(BatchItemResult.failed(i, BatchItemResult.INVALID, error));
+            } else {
+                valid.add(entry);
+                results.add(BatchItemResult.created(i, entry.getId()));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            mediaRepo.insertBatch(valid);
+            fireChanged();
+        }
+        return results;
+    }
+
+    /**
+     * Check the column constraints of media_entries (001) up front, so one bad item of a
+     * batch or import does not abort the transaction of all others
+     * @return error message, or null if the entry can be inserted
+     */
+    public static String validate(MediaEntry entry) {
+        if (entry.getTitle() == null || entry.getTitle().isBlank()) return "title is required";
+        if (entry.getTitle().length() > 200) return "title must be at most 200 characters";
+        if (!MEDIA_TYPES.contains(entry.getMediaType())) return "mediaType must be movie, series or game";
+        if (entry.getGenres() != null && entry.getGenres().length() > 200) {
+            return "genres must be at most 200 characters";
+        }
+        return null;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Optional<MediaEntry> get(UUID id) throws SQLException {
-        return (Optional<MediaEntry>) mediaRepo.findById(id);
+        return getFlights.execute(id, () -> (Optional<MediaEntry>) mediaRepo.findById(id));
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public List<MediaEntry> list(String query) throws SQLException {
-        return (List<MediaEntry>) mediaRepo.listByQuery(query);
+        return queryFlights.execute(Optional.ofNullable(query),
+                () -> (List<MediaEntry>) mediaRepo.listByQuery(query));
     }
 
     @Override
@@ -69,18 +167,19 @@ public class MediaService implements IService {
 
     @Override
     public void update(UUID id, UUID userId, Map<String, Object> data) throws SQLException {
-        Optional<?> opt = mediaRepo.findById(id);
-        if (opt.isEmpty()) {
-            throw new IllegalArgumentException("Media not found");
-        }
-
-        MediaEntry existing = (MediaEntry) opt.get();
-
-        if (!existing.getOwnerId().equals(userId)) {
-            throw new SecurityException("Forbidden");
-        }
+        updateVersioned(id, userId, data);
+    }
 
-        MediaEntry updated = existing.withUpdatedData(
+    /**
+     * Replace an entry in one statement that also checks ownership and,
+     * if the body carries "version", that nobody changed the entry since
+     * @return the new version of the entry
+     * @throws VersionConflictException if "version" is no longer current
+     */
+    public long updateVersioned(UUID id, UUID userId, Map<String, Object> data) throws SQLException {
+        MediaEntry updated = new MediaEntry(
+                id,
+                userId,
                 (String) data.get("title"),
                 (String) data.get("description"),
                 (String) data.get("mediaType"),
@@ -89,134 +188,106 @@ public class MediaService implements IService {
                 asInt(data.get("ageRestriction"))
         );
 
-        mediaRepo.update(updated);
+        MutationResult result = mediaRepo.updateOwned(updated, userId, VersionUtil.expectedVersion(data));
+        check(result);
+        fireChanged();
+        return result.version();
     }
 
     @Override
     public void delete(UUID id, UUID userId) throws SQLException {
-        Optional<?> opt = mediaRepo.findById(id);
-        if (opt.isEmpty()) {
-            throw new IllegalArgumentException("Media not found");
-        }
-
-        MediaEntry existing = (MediaEntry) opt.get();
+        check(mediaRepo.deleteOwned(id, userId, null));
+        fireChanged();
+    }
 
-        if (!existing.getOwnerId().equals(userId)) {
-            throw new SecurityException("Forbidden");
+    private static void check(MutationResult result) {
+        switch (result.status()) {
+            case APPLIED -> { }
+            case NOT_FOUND -> throw new IllegalArgumentException("Media not found");
+            case FORBIDDEN -> throw new SecurityException("Forbidden");
+            case CONFLICT -> throw new VersionConflictException("Media was modified, reload and retry");
         }
-
-        mediaRepo.delete(id);
     }
 
     // ✅ NEW: FILTERING AND SORTING
 
     /**
      * Filter and sort media entries
-     * @param filters Map with keys: genre, type, year, minAge, maxAge, minRating
-     * @param sortBy Sort criteria: "title", "year", "score" (default: "title")
+     * @param filters Map with keys: genre, type, year, minYear, maxYear, maxAge
+     * @param sortBy Sort criteria: "title", "year", "score", "weighted" (Bayesian average),
+     *               "popularity" (favorite count), "relevance" (full-text searches only)
+     *               (default: "title", full-text searches: "relevance" descending)
      * @param sortOrder "asc" or "desc" (default: "asc")
      * @return Filtered and sorted list of media entries
      */
-    @SuppressWarnings("unchecked")
     public List<MediaEntry> filterAndSort(Map<String, String> filters, String sortBy, String sortOrder)
             throws SQLException {
+        return filterAndSort(filters, sortBy, sortOrder, null);
+    }
 
-        // Start with all media
-        List<MediaEntry> results = (List<MediaEntry>) mediaRepo.listAll();
-
-        // Apply filters
-        if (filters != null) {
-            // Filter by genre
-            if (filters.containsKey("genre")) {
-                String genre = filters.get("genre").toLowerCase();
-                results = results.stream()
-                        .filter(m -> m.getGenres() != null && m.getGenres().toLowerCase().contains(genre))
-                        .collect(Collectors.toList());
-            }
-
-            // Filter by type (movie/series)
-            if (filters.containsKey("type")) {
-                String type = filters.get("type").toLowerCase();
-                results = results.stream()
-                        .filter(m -> m.getMediaType() != null && m.getMediaType().equalsIgnoreCase(type))
-                        .collect(Collectors.toList());
-            }
-
-            // Filter by year
-            if (filters.containsKey("year")) {
-                try {
-                    int year = Integer.parseInt(filters.get("year"));
-                    results = results.stream()
-                            .filter(m -> m.getReleaseYear() != null && m.getReleaseYear() == year)
-                            .collect(Collectors.toList());
-                } catch (NumberFormatException ignored) {}
-            }
-
-            // Filter by minimum year
-            if (filters.containsKey("minYear")) {
-                try {
-                    int minYear = Integer.parseInt(filters.get("minYear"));
-                    results = results.stream()
-                            .filter(m -> m.getReleaseYear() != null && m.getReleaseYear() >= minYear)
-                            .collect(Collectors.toList());
-                } catch (NumberFormatException ignored) {}
-            }
-
-            // Filter by maximum year
-            if (filters.containsKey("maxYear")) {
-                try {
-                    int maxYear = Integer.parseInt(filters.get("maxYear"));
-                    results = results.stream()
-                            .filter(m -> m.getReleaseYear() != null && m.getReleaseYear() <= maxYear)
-                            .collect(Collectors.toList());
-                } catch (NumberFormatException ignored) {}
-            }
-
-            // Filter by age restriction
-            if (filters.containsKey("maxAge")) {
-                try {
-                    int maxAge = Integer.parseInt(filters.get("maxAge"));
-                    results = results.stream()
-                            .filter(m -> m.getAgeRestriction() == null || m.getAgeRestriction() <= maxAge)
-                            .collect(Collectors.toList());
-                } catch (NumberFormatException ignored) {}
-            }
-        }
+    /**
+     * Filter and sort media entries, returning at most limit rows
+     * Filtering and sorting are done by the database in a single query.
+     *
+     * @param limit maximum number of results (null: AppConfig.LIST_MAX_LIMIT)
+     */
+    public List<MediaEntry> filterAndSort(Map<String, String> filters, String sortBy, String sortOrder,
+                                          Integer limit) throws SQLException {
+        return filterAndSortPage(filters, sortBy, sortOrder, limit, null).items();
+    }
 
-        // Apply sorting
-        Comparator<MediaEntry> comparator = null;
-
-        if (sortBy == null) sortBy = "title";
-
-        switch (sortBy.toLowerCase()) {
-            case "year":
-                comparator = Comparator.comparing(
-                        m -> m.getReleaseYear() != null ? m.getReleaseYear() : 0
-                );
-                break;
-            case "score":
-                // Note: This requires fetching average scores - expensive operation
-                // For now, sort by title if score is requested
-                comparator = Comparator.comparing(
-                        m -> m.getTitle() != null ? m.getTitle().toLowerCase() : ""
-                );
-                break;
-            case "title":
-            default:
-                comparator = Comparator.comparing(
-                        m -> m.getTitle() != null ? m.getTitle().toLowerCase() : ""
-                );
-                break;
+    /**
+     * One page of filtered and sorted media entries
+     * @param filters Map with keys: search, searchMode (substring|fulltext), genre, type, year,
+     *                minYear, maxYear, maxAge
+     * @param limit page size (null: AppConfig.LIST_MAX_LIMIT)
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @throws IllegalArgumentException if the cursor does not belong to this sort order
+     */
+    public Page<MediaEntry> filterAndSortPage(Map<String, String> filters, String sortBy, String sortOrder,
+                                              Integer limit, String cursor) throws SQLException {
+        if (filters == null) filters = Map.of();
+
+        String search = filters.get("search");
+        String genre = filters.get("genre");
+        String type = filters.get("type");
+
+        MediaFilter.SearchMode searchMode = MediaFilter.SearchMode.parse(filters.get("searchMode"));
+        boolean hasSearch = search != null && !search.isBlank();
+
+        // Full-text searches are ranked by relevance unless the client picks a sort
+        MediaFilter.SortKey sortKey = MediaFilter.SortKey.parse(sortBy);
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        if (sortBy == null && hasSearch && searchMode == MediaFilter.SearchMode.FULLTEXT) {
+            sortKey = MediaFilter.SortKey.RELEVANCE;
+            descending = sortOrder == null || descending;
         }
 
-        // Apply sort order
-        if ("desc".equalsIgnoreCase(sortOrder)) {
-            comparator = comparator.reversed();
-        }
+        MediaFilter filter = new MediaFilter(
+                hasSearch ? search : null,
+                searchMode,
+                genre != null ? genre.toLowerCase() : null,
+                type != null ? type.toLowerCase() : null,
+                parseIntOrNull(filters.get("year")),
+                parseIntOrNull(filters.get("minYear")),
+                parseIntOrNull(filters.get("maxYear")),
+                parseIntOrNull(filters.get("maxAge")),
+                sortKey,
+                descending,
+                Page.limit(limit)
+        );
 
-        results.sort(comparator);
+        return pageFlights.execute(new PageKey(filter, cursor, writes.get()), () -> mediaRepo.findPage(filter, cursor));
+    }
 
-        return results;
+    // Malformed numbers are ignored, like a missing filter
+    private static Integer parseIntOrNull(String value) {
+        if (value == null) return null;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     /**
@@ -230,13 +301,63 @@ public class MediaService implements IService {
             return (List<MediaEntry>) mediaRepo.listAll();
         }
 
-        return (List<MediaEntry>) mediaRepo.listByQuery(searchQuery);
+        return list(searchQuery);
     }
 
     // HELPER METHODS (not from IService interface)
 
     public double averageScore(UUID mediaId) throws SQLException {
-        return mediaRepo.averageScore(mediaId);
+        return scoreFlights.execute(mediaId, () -> mediaRepo.averageScore(mediaId));
+    }
+
+    /**
+     * Everything shown in a media detail view
+     * @param entry - the entry, matching state.version()
+     * @param state - current version, last change and rating aggregates
+     */
+    public record MediaDetail(MediaEntry entry, MediaRepository.MediaState state) {}
+
+    /**
+     * Media entry with its current rating aggregates and validators
+     * The entry comes from the entity cache; a version mismatch with the (uncached) state
+     * means another writer changed the row, so the cached entry is dropped and reloaded.
+     */
+    public Optional<MediaDetail> getDetail(UUID id) throws SQLException {
+        return detailFlights.execute(id, () -> loadDetail(id));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<MediaDetail> loadDetail(UUID id) throws SQLException {
+        Optional<MediaRepository.MediaState> state = mediaRepo.findState(id);
+        if (state.isEmpty()) {
+            mediaRepo.evict(id);
+            return Optional.empty();
+        }
+
+        Optional<MediaEntry> entry = (Optional<MediaEntry>) mediaRepo.findById(id);
+        if (entry.isEmpty() || entry.get().getVersion() != state.get().version()) {
+            mediaRepo.evict(id);
+            entry = (Optional<MediaEntry>) mediaRepo.findById(id);
+        }
+        return entry.map(e -> new MediaDetail(e, state.get()));
+    }
+
+    /**
+     * Stream the whole catalog, optionally with rating aggregates (see MediaRepository.export)
+     * Not coalesced or cached: every call reads a fresh snapshot.
+     * @return number of exported entries
+     */
+    public long export(boolean withStats, RowCallback<MediaRepository.ExportRow> callback)
+            throws SQLException, IOException {
+        return mediaRepo.export(withStats, callback);
+    }
+
+    /**
+     * Number of reads that joined another request's query instead of running their own
+     */
+    public long getCoalescedReads() {
+        return getFlights.getCoalesced() + detailFlights.getCoalesced() + scoreFlights.getCoalesced()
+                + pageFlights.getCoalesced() + queryFlights.getCoalesced();
     }
 
     // For compatibility with handlers
@@ -244,8 +365,8 @@ public class MediaService implements IService {
         return create(owner.getId(), body);
     }
 
-    public void updateFromRequest(UUID mediaId, User owner, Map<String, Object> body) throws SQLException {
-        update(mediaId, owner.getId(), body);
+    public long updateFromRequest(UUID mediaId, User owner, Map<String, Object> body) throws SQLException {
+        return updateVersioned(mediaId, owner.getId(), body);
     }
 
     public void delete(UUID mediaId, User owner) throws SQLException {
@@ -1,12 +1,22 @@
 package at.fhtw.mrp.service;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.model.Rating;
+import at.fhtw.mrp.model.RatingStats;
+import at.fhtw.mrp.repo.MutationResult;
+import at.fhtw.mrp.repo.Page;
 import at.fhtw.mrp.repo.RatingRepository;
+import at.fhtw.mrp.repo.RowCallback;
+import at.fhtw.mrp.util.VersionUtil;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -46,54 +56,45 @@ public class RatingService implements IService {
 
     @Override
     public void update(UUID id, UUID userId, Map<String, Object> data) throws SQLException {
-        Optional<?> existingOpt = ratingRepository.findById(id);
-
-        if (existingOpt.isEmpty()) {
-            throw new IllegalArgumentException("Rating not found");
-        }
-
-        Rating existing = (Rating) existingOpt.get();
-
-        if (!existing.getUserId().equals(userId)) {
-            throw new SecurityException("You can only edit your own ratings");
-        }
+        updateVersioned(id, userId, data);
+    }
 
+    /**
+     * Edit stars and/or comment in one statement that also checks ownership and,
+     * if the body carries "version", that nobody changed the rating since.
+     * A changed comment of an approved rating goes back to moderation.
+     * @return the new version of the rating
+     * @throws VersionConflictException if "version" is no longer current
+     */
+    public long updateVersioned(UUID id, UUID userId, Map<String, Object> data) throws SQLException {
+        Integer stars = null;
         if (data.containsKey("stars")) {
-            int stars = ((Number) data.get("stars")).intValue();
+            stars = ((Number) data.get("stars")).intValue();
             if (stars < 1 || stars > 5) {
                 throw new IllegalArgumentException("Stars must be between 1 and 5");
             }
-            existing.setStars(stars);
         }
 
-        if (data.containsKey("comment")) {
-            String newComment = (String) data.get("comment");
-            String oldComment = existing.getComment();
-            existing.setComment(newComment);
+        boolean setComment = data.containsKey("comment");
+        MutationResult result = ratingRepository.updateOwned(id, userId, stars, setComment,
+                (String) data.get("comment"), VersionUtil.expectedVersion(data));
 
-            if (!newComment.equals(oldComment) && existing.isApproved()) {
-                existing.setApprovalStatus("pending");
-            }
-        }
-
-        ratingRepository.update(existing);
+        check(result, "You can only edit your own ratings");
+        return result.version();
     }
 
     @Override
     public void delete(UUID id, UUID userId) throws SQLException {
-        Optional<?> ratingOpt = ratingRepository.findById(id);
-
-        if (ratingOpt.isEmpty()) {
-            throw new IllegalArgumentException("Rating not found");
-        }
-
-        Rating rating = (Rating) ratingOpt.get();
+        check(ratingRepository.deleteOwned(id, userId, null), "You can only delete your own ratings");
+    }
 
-        if (!rating.getUserId().equals(userId)) {
-            throw new SecurityException("You can only delete your own ratings");
+    private static void check(MutationResult result, String forbiddenMessage) {
+        switch (result.status()) {
+            case APPLIED -> { }
+            case NOT_FOUND -> throw new IllegalArgumentException("Rating not found");
+            case FORBIDDEN -> throw new SecurityException(forbiddenMessage);
+            case CONFLICT -> throw new VersionConflictException("Rating was modified, reload and retry");
         }
-
-        ratingRepository.delete(id);
     }
 
     @Override
@@ -118,45 +119,168 @@ public class RatingService implements IService {
         return rating.getId();
     }
 
+    /**
+     * Create many ratings (all pending): invalid items are reported, all valid ones are
+     * inserted in one transaction, skipping missing media and media the user already rated
+     * @return one result per item, in request order
+     */
+    public List<BatchItemResult> createBatch(UUID userId, List<Map<String, Object>> items) throws SQLException {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<Rating> valid = new ArrayList<>();
+        List<Integer> validIndex = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> item = items.get(i);
+            UUID mediaId;
+            try {
+                mediaId = UUID.fromString(String.valueOf(item.get("mediaId")));
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchItemResult.failed(i, BatchItemResult.INVALID, "mediaId must be a UUID");
+                continue;
+            }
+            if (!(item.get("stars") instanceof Integer stars) || stars < 1 || stars > 5) {
+                results[i] = BatchItemResult.failed(i, BatchItemResult.INVALID, "Stars must be between 1 and 5");
+                continue;
+            }
+            if (item.get("comment") != null && !(item.get("comment") instanceof String)) {
+                results[i] = BatchItemResult.failed(i, BatchItemResult.INVALID, "comment must be a string");
+                continue;
+            }
+            valid.add(new Rating(null, mediaId, userId, stars, (String) item.get("comment"), "pending"));
+            validIndex.add(i);
+        }
+
+        if (!valid.isEmpty()) {
+            List<MutationResult.Status> statuses = ratingRepository.insertBatch(valid);
+            for (int v = 0; v < valid.size(); v++) {
+                int i = validIndex.get(v);
+                results[i] = switch (statuses.get(v)) {
+                    case APPLIED -> BatchItemResult.created(i, valid.get(v).getId());
+                    case NOT_FOUND -> BatchItemResult.failed(i, BatchItemResult.NOT_FOUND, "Media not found");
+                    default -> BatchItemResult.failed(i, BatchItemResult.DUPLICATE,
+                            "Media already rated by this user");
+                };
+            }
+        }
+        return List.of(results);
+    }
+
     public List<Rating> listByMedia(UUID mediaId) throws SQLException {
         return ratingRepository.findByMediaIdApproved(mediaId);
     }
 
+    /**
+     * One page of a user's ratings (including pending), newest first
+     * @param limit page size (null: AppConfig.LIST_MAX_LIMIT)
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public Page<Rating> listByUserPage(UUID userId, Integer limit, String cursor) throws SQLException {
+        return ratingRepository.findByUserIdPage(userId, Page.limit(limit), cursor);
+    }
+
+    /**
+     * One page of a media entry's approved ratings, newest first
+     * @param limit page size (null: AppConfig.LIST_MAX_LIMIT)
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public Page<Rating> listByMediaPage(UUID mediaId, Integer limit, String cursor) throws SQLException {
+        return ratingRepository.findByMediaIdApprovedPage(mediaId, Page.limit(limit), cursor);
+    }
+
     public List<Rating> getPendingRatings() throws SQLException {
         return ratingRepository.findPendingRatings();
     }
 
-    public void approveRating(UUID ratingId) throws SQLException {
-        Optional<?> ratingOpt = ratingRepository.findById(ratingId);
-
-        if (ratingOpt.isEmpty()) {
-            throw new IllegalArgumentException("Rating not found");
-        }
+    /**
+     * Hand every pending rating to the callback while the database cursor is open
+     * @return number of pending ratings
+     */
+    public long streamPendingRatings(RowCallback<Rating> callback) throws SQLException, IOException {
+        return ratingRepository.streamPendingRatings(callback);
+    }
 
-        ratingRepository.approveRating(ratingId);
+    /**
+     * Approve a single rating (legacy endpoint, any status)
+     * @throws VersionConflictException if another moderator holds a live claim on it
+     */
+    public void approveRating(UUID ratingId, UUID moderatorId) throws SQLException {
+        decide(ratingId, moderatorId, "approved");
     }
 
-    public void rejectRating(UUID ratingId) throws SQLException {
-        Optional<?> ratingOpt = ratingRepository.findById(ratingId);
+    public void rejectRating(UUID ratingId, UUID moderatorId) throws SQLException {
+        decide(ratingId, moderatorId, "rejected");
+    }
 
-        if (ratingOpt.isEmpty()) {
-            throw new IllegalArgumentException("Rating not found");
+    private void decide(UUID ratingId, UUID moderatorId, String status) throws SQLException {
+        switch (ratingRepository.decide(ratingId, moderatorId, status)) {
+            case NOT_FOUND -> throw new IllegalArgumentException("Rating not found");
+            case CONFLICT -> throw new VersionConflictException("Rating is claimed by another moderator");
+            default -> { }
         }
+    }
 
-        ratingRepository.rejectRating(ratingId);
+    // MODERATION QUEUE
+
+    /**
+     * Outcome of a bulk approve/reject
+     * @param decided - ids that were approved/rejected
+     * @param skipped - ids that are unknown, no longer pending or claimed by another moderator
+     */
+    public record ModerationResult(List<UUID> decided, List<UUID> skipped) {}
+
+    /**
+     * Claim the next page of pending ratings (oldest first) for this moderator
+     * Claimed ratings are not handed to other moderators for MODERATION_CLAIM_SECONDS.
+     * @param limit page size (null: MODERATION_PAGE_SIZE, at most MODERATION_MAX_IDS)
+     */
+    public List<Rating> claimPending(UUID moderatorId, Integer limit) throws SQLException {
+        int size = limit == null
+                ? AppConfig.MODERATION_PAGE_SIZE
+                : Math.max(1, Math.min(limit, AppConfig.MODERATION_MAX_IDS));
+        return ratingRepository.claimPending(moderatorId, size, AppConfig.MODERATION_CLAIM_SECONDS);
     }
 
-    public double getAverageScore(UUID mediaId) throws SQLException {
-        List<Rating> ratings = ratingRepository.findByMediaIdApproved(mediaId);
+    public ModerationResult approvePending(UUID moderatorId, List<UUID> ids) throws SQLException {
+        return decidePending(moderatorId, ids, "approved");
+    }
+
+    public ModerationResult rejectPending(UUID moderatorId, List<UUID> ids) throws SQLException {
+        return decidePending(moderatorId, ids, "rejected");
+    }
 
-        if (ratings.isEmpty()) {
-            return 0.0;
+    private ModerationResult decidePending(UUID moderatorId, List<UUID> ids, String status) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
         }
+        Set<UUID> unique = new LinkedHashSet<>(ids);
+        if (unique.contains(null)) {
+            throw new IllegalArgumentException("ids must not contain null");
+        }
+        if (unique.size() > AppConfig.MODERATION_MAX_IDS) {
+            throw new IllegalArgumentException("At most " + AppConfig.MODERATION_MAX_IDS + " ids per request");
+        }
+
+        Set<UUID> decided = ratingRepository.decidePending(unique, moderatorId, status);
 
-        double sum = ratings.stream()
-                .mapToInt(Rating::getStars)
-                .sum();
+        List<UUID> done = new ArrayList<>();
+        List<UUID> skipped = new ArrayList<>();
+        for (UUID id : unique) {
+            (decided.contains(id) ? done : skipped).add(id);
+        }
+        return new ModerationResult(done, skipped);
+    }
+
+    public double getAverageScore(UUID mediaId) throws SQLException {
+        return ratingRepository.findStatsByMediaId(mediaId)
+                .map(RatingStats::getAverage)
+                .orElse(0.0);
+    }
 
-        return sum / ratings.size();
+    /**
+     * Count, average and star distribution of a media entry's approved ratings
+     */
+    public RatingStats getStats(UUID mediaId) throws SQLException {
+        return ratingRepository.findStatsByMediaId(mediaId)
+                .orElseThrow(() -> new IllegalArgumentException("Media not found"));
     }
 }
\ No newline at end of file
@@ -1,10 +1,8 @@
 package at.fhtw.mrp.service;
 
 import at.fhtw.mrp.model.Rating;
-import at.fhtw.mrp.model.MediaEntry;
 import at.fhtw.mrp.repo.RatingRepository;
-import at.fhtw.mrp.repo.MediaRepository;
-import at.fhtw.mrp.repo.FavoriteRepository;
+import at.fhtw.mrp.repo.UserStatisticsRepository;
 
 import java.sql.SQLException;
 import java.util.*;
@@ -17,97 +15,43 @@ import java.util.stream.Collectors;
 public class UserProfileService {
 
     private final RatingRepository ratingRepo;
-    private final MediaRepository mediaRepo;
-    private final FavoriteRepository favoriteRepo;
+    private final UserStatisticsRepository statisticsRepo;
 
-    public UserProfileService(RatingRepository ratingRepo, MediaRepository mediaRepo, FavoriteRepository favoriteRepo) {
+    public UserProfileService(RatingRepository ratingRepo, UserStatisticsRepository statisticsRepo) {
         this.ratingRepo = ratingRepo;
-        this.mediaRepo = mediaRepo;
-        this.favoriteRepo = favoriteRepo;
+        this.statisticsRepo = statisticsRepo;
     }
 
     /**
      * Get complete user statistics
+     * All figures come from one aggregate query, independent of how many
+     * ratings, media entries or favorites the user has.
      * @param userId User's UUID
      * @return Map with statistics
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getUserStatistics(UUID userId) throws SQLException {
+        UserStatisticsRepository.UserStatistics s = statisticsRepo.getUserStatistics(userId);
         Map<String, Object> stats = new HashMap<>();
 
-        // Get user's ratings - FIXED: use findByUserId() instead of listByUser()
-        List<Rating> userRatings = ratingRepo.findByUserId(userId);
-
-        // Total ratings given
-        stats.put("totalRatingsGiven", userRatings.size());
-
-        // Average score given by user
-        if (!userRatings.isEmpty()) {
-            double avgScore = userRatings.stream()
-                    .mapToInt(Rating::getStars)
-                    .average()
-                    .orElse(0.0);
-            stats.put("averageScoreGiven", Math.round(avgScore * 100.0) / 100.0);
-        } else {
-            stats.put("averageScoreGiven", 0.0);
-        }
-
-        // Get user's created media
-        List<MediaEntry> userMedia = (List<MediaEntry>) mediaRepo.listByRelatedId(userId);
-        stats.put("totalMediaCreated", userMedia.size());
-
-        // Get user's favorites
-        List<MediaEntry> userFavorites = favoriteRepo.getFavoriteMedia(userId);
-        stats.put("totalFavorites", userFavorites.size());
-
-        // Favorite genre (most common genre in user's favorites)
-        Map<String, Integer> genreCounts = new HashMap<>();
-        for (MediaEntry media : userFavorites) {
-            if (media.getGenres() != null && !media.getGenres().isBlank()) {
-                String[] genres = media.getGenres().split(",");
-                for (String genre : genres) {
-                    String trimmed = genre.trim().toLowerCase();
-                    genreCounts.put(trimmed, genreCounts.getOrDefault(trimmed, 0) + 1);
-                }
-            }
-        }
+        stats.put("totalRatingsGiven", s.ratingsGiven());
+        stats.put("averageScoreGiven", round2(s.averageScoreGiven()));
+        stats.put("totalMediaCreated", s.mediaCreated());
+        stats.put("totalFavorites", s.favorites());
 
-        String favoriteGenre = genreCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("none");
-
-        stats.put("favoriteGenre", favoriteGenre);
-
-        // Top genres (up to 3)
-        List<String> topGenres = genreCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(3)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-        stats.put("topGenres", topGenres);
+        // Favorite genre = most common genre in user's favorites
+        stats.put("favoriteGenre", s.topGenres().isEmpty() ? "none" : s.topGenres().get(0));
+        stats.put("topGenres", s.topGenres());
 
         // Average rating received on user's media
-        double totalReceivedRating = 0.0;
-        int ratingCount = 0;
-
-        for (MediaEntry media : userMedia) {
-            double avgScore = mediaRepo.averageScore(media.getId());
-            if (avgScore > 0) {
-                totalReceivedRating += avgScore;
-                ratingCount++;
-            }
-        }
-
-        if (ratingCount > 0) {
-            stats.put("averageRatingReceived", Math.round((totalReceivedRating / ratingCount) * 100.0) / 100.0);
-        } else {
-            stats.put("averageRatingReceived", 0.0);
-        }
+        stats.put("averageRatingReceived", round2(s.averageRatingReceived()));
 
         return stats;
     }
 
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
     /**
      * Get user's activity summary
      * @param userId User's UUID
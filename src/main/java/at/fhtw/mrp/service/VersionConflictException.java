@@ -0,0 +1,15 @@
+package at.fhtw.mrp.service;
+
+/**
+ * Entity was changed since the version the client based its edit on,
+ * or is held by someone else (a moderator's claim on a rating)
+ * Mapped to 409 by the Router
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
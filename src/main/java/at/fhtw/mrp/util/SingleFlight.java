@@ -0,0 +1,82 @@
+package at.fhtw.mrp.util;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request coalescing: concurrent calls with an equal key share one in-flight load
+ *
+ * The first caller for a key runs the loader; callers arriving while it runs wait for
+ * and return the same result (or exception). Nothing is kept once the load completes,
+ * the next call after that starts a new load - this is not a cache.
+ *
+ * Shared results must be treated as read-only by all callers.
+ *
+ * A caller joining a flight gets data read at most one query duration before it arrived.
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Database read to coalesce
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run the loader, or wait for the running load of an equal key
+     * @param key - identifies the read (must implement equals/hashCode, e.g. a record)
+     */
+    public V execute(K key, Loader<V> loader) throws SQLException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.load();
+            flight.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Statistics
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws SQLException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqle) throw sqle;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
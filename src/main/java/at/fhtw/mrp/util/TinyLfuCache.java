@@ -0,0 +1,325 @@
+package at.fhtw.mrp.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, concurrent cache with frequency-aware admission (W-TinyLFU)
+ *
+ * Entries live in three LRU segments:
+ * - window (1%): every new key enters here, so bursts of new keys get a chance
+ * - probation / protected (main, 80% protected): keys leaving the window only replace
+ *   the main victim if they were requested more often recently
+ *
+ * Access frequencies are estimated with a count-min sketch of 4-bit counters that is
+ * halved periodically, so old popularity fades. A scan over many one-off keys therefore
+ * cannot flush the few hot entries that serve most lookups (plain LRU would).
+ *
+ * Reads never block: recording the access (or dropping an expired entry) takes the policy
+ * lock only if it is free, a read that finds it busy skips that step. All writes hold the
+ * lock, so map and policy never disagree.
+ *
+ * Like TokenCache, put takes the key's epoch read before loading: a load that raced with an
+ * invalidation of the same key is not cached. Epochs are striped by key hash, so writes to
+ * other keys (barring a stripe collision) don't discard the load.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private record Node<V>(V value, long expiresAt) {}
+
+    private final Map<K, Node<V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Access-ordered key sets (eldest = least recently used), guarded by lock
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxEntries;
+    private final int windowMax;
+    private final int protectedMax;
+    private final long ttlMillis;
+    private final FrequencySketch sketch;
+
+    // Per-key invalidation epochs, striped by key hash
+    private static final int EPOCH_STRIPES = 1024;
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries - upper bound of cached entries, 0 disables the cache
+     * @param ttlMillis - default time-to-live of an entry
+     */
+    public TinyLfuCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.windowMax = Math.max(1, this.maxEntries / 100);
+        this.protectedMax = (int) ((this.maxEntries - windowMax) * 0.8);
+        this.ttlMillis = ttlMillis;
+        this.sketch = new FrequencySketch(Math.max(1, this.maxEntries));
+    }
+
+    /**
+     * Look up a cached value
+     * @return the value, or null if not cached or expired
+     */
+    public V get(K key) {
+        Node<V> node = data.get(key);
+        if (node == null || node.expiresAt() < System.currentTimeMillis()) {
+            misses.increment();
+            // Misses count too: a key that is requested often gets admitted once loaded
+            if (maxEntries > 0 && lock.tryLock()) {
+                try {
+                    if (node != null && data.remove(key, node)) unlink(key);
+                    sketch.increment(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key);
+                onAccess(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value();
+    }
+
+    /**
+     * Current invalidation epoch of a key, read before loading its value from the database
+     */
+    public long epoch(K key) {
+        return epochs.get(stripe(key));
+    }
+
+    /**
+     * Cache a loaded value with the default time-to-live
+     * @param epochBeforeLoad - value of epoch(key) taken before the value was loaded
+     */
+    public void put(K key, V value, long epochBeforeLoad) {
+        put(key, value, ttlMillis, epochBeforeLoad);
+    }
+
+    /**
+     * Cache a loaded value
+     * @param ttlMillis - time-to-live of this entry (e.g. shorter for negative entries)
+     * @param epochBeforeLoad - value of epoch(key) taken before the value was loaded
+     */
+    public void put(K key, V value, long ttlMillis, long epochBeforeLoad) {
+        if (maxEntries == 0 || ttlMillis <= 0) return;
+        lock.lock();
+        try {
+            if (epochs.get(stripe(key)) != epochBeforeLoad) return;
+            Node<V> previous = data.put(key, new Node<>(value, System.currentTimeMillis() + ttlMillis));
+            if (previous != null) {
+                onAccess(key);
+            } else {
+                window.put(key, Boolean.TRUE);
+                evictIfNeeded();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop a key (after the underlying row changed or was deleted)
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            epochs.incrementAndGet(stripe(key));
+            if (data.remove(key) != null) unlink(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < EPOCH_STRIPES; i++) epochs.incrementAndGet(i);
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Statistics
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d",
+                size(), maxEntries, getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (EPOCH_STRIPES - 1);
+    }
+
+    // Policy, all called with lock held
+
+    private void onAccess(K key) {
+        if (window.get(key) != null) return;                 // moved to MRU of window
+        if (probation.remove(key) != null) {
+            // Second hit in main: promote, demote protected LRU if it overflows
+            protectedSegment.put(key, Boolean.TRUE);
+            if (protectedSegment.size() > protectedMax) {
+                K demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted);
+                probation.put(demoted, Boolean.TRUE);
+            }
+            return;
+        }
+        protectedSegment.get(key);                            // moved to MRU of protected
+    }
+
+    private void unlink(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (window.size() > windowMax) {
+            K candidate = eldest(window);
+            window.remove(candidate);
+
+            if (probation.size() + protectedSegment.size() < maxEntries - windowMax) {
+                probation.put(candidate, Boolean.TRUE);
+                continue;
+            }
+
+            // Main is full: the more frequent of window candidate and main victim stays
+            LinkedHashMap<K, Boolean> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+            K victim = eldest(victimSegment);
+            if (victim != null && sketch.frequency(candidate) > sketch.frequency(victim)) {
+                victimSegment.remove(victim);
+                data.remove(victim);
+                probation.put(candidate, Boolean.TRUE);
+            } else {
+                data.remove(candidate);
+            }
+            evictions.increment();
+        }
+    }
+
+    private static <K> K eldest(LinkedHashMap<K, Boolean> segment) {
+        Iterator<K> it = segment.keySet().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Count-min sketch with 4 rows of 4-bit counters, packed 16 per long
+     * After sampleSize increments all counters are halved (aging).
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+        };
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxEntries) {
+            // 4 counters per expected entry (one per row), 16 per long, power of two for masking
+            int size = Integer.highestOneBit(Math.max(16, maxEntries * 4 / 16) - 1) << 1;
+            this.table = new long[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * maxEntries;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                min = Math.min(min, counter(hash, i));
+            }
+            return min;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = index(hash, i);
+                int shift = offset(hash, i);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        // Halve every counter: shift right and clear the bit that moved in from the neighbour
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777_7777_7777_7777L;
+            }
+            additions /= 2;
+        }
+
+        private int counter(int hash, int row) {
+            return (int) ((table[index(hash, row)] >>> offset(hash, row)) & 0xF);
+        }
+
+        private int index(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h >>> 40) & mask;
+        }
+
+        // Each row uses its own 4-bit slot (of 16) inside the long
+        private static int offset(int hash, int row) {
+            return (((hash >>> (row * 8)) & 3) + row * 4) << 2;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45d9f3b;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package at.fhtw.mrp.util;
+
+import at.fhtw.mrp.model.User;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent token → User cache with time-to-live
+ *
+ * Only successful authentications are cached. Because a user has exactly one
+ * active token (users.token), the cache also keeps a userId → token index so
+ * a user's entry can be dropped when a new token is issued.
+ */
+public final class TokenCache {
+
+    private record Entry(User user, long expiresAt) {}
+
+    private final Map<String, Entry> byToken = new ConcurrentHashMap<>();
+    private final Map<UUID, String> tokenByUser = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Per-user invalidation epochs, striped by user id. Bumped when that user's token changes so
+    // a lookup racing with their login cannot cache the old token; a stripe collision only costs
+    // another user one skipped put.
+    private static final int EPOCH_STRIPES = 1024;
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TokenCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Look up a cached user for a raw token
+     * @param token - raw token (without "Bearer ")
+     * @return Optional with the user if cached and not expired
+     */
+    public Optional<User> get(String token) {
+        Entry e = byToken.get(token);
+        if (e == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (e.expiresAt() < System.currentTimeMillis()) {
+            byToken.remove(token, e);
+            tokenByUser.remove(e.user().getId(), token);
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(e.user());
+    }
+
+    /**
+     * Current invalidation epoch of a user, read before loading them from the database
+     */
+    public long epoch(UUID userId) {
+        return epochs.get(stripe(userId));
+    }
+
+    /**
+     * Cache a successfully authenticated user
+     * @param token - raw token
+     * @param user - user loaded from the database
+     * @param epochBeforeLoad - value of epoch(user id) taken before the user was loaded
+     */
+    public void put(String token, User user, long epochBeforeLoad) {
+        if (maxEntries <= 0 || ttlMillis <= 0) return;
+        int stripe = stripe(user.getId());
+        if (epochs.get(stripe) != epochBeforeLoad) return;
+        if (byToken.size() >= maxEntries) makeRoom();
+
+        // Replace whatever token this user had cached before
+        String previous = tokenByUser.put(user.getId(), token);
+        if (previous != null && !previous.equals(token)) byToken.remove(previous);
+
+        Entry entry = new Entry(user, System.currentTimeMillis() + ttlMillis);
+        byToken.put(token, entry);
+
+        // An invalidation slipped in while we were inserting: undo
+        if (epochs.get(stripe) != epochBeforeLoad) {
+            byToken.remove(token, entry);
+            tokenByUser.remove(user.getId(), token);
+        }
+    }
+
+    /**
+     * Drop the cached token of a user (e.g. after login issued a new token)
+     */
+    public void invalidateUser(UUID userId) {
+        epochs.incrementAndGet(stripe(userId));
+        String token = tokenByUser.remove(userId);
+        if (token != null) byToken.remove(token);
+    }
+
+    public void clear() {
+        for (int i = 0; i < EPOCH_STRIPES; i++) epochs.incrementAndGet(i);
+        byToken.clear();
+        tokenByUser.clear();
+    }
+
+    // Statistics
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return byToken.size();
+    }
+
+    private static int stripe(UUID userId) {
+        int h = userId.hashCode();
+        return (h ^ (h >>> 16)) & (EPOCH_STRIPES - 1);
+    }
+
+    // Remove expired entries first; if still full, evict arbitrary entries
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        byToken.entrySet().removeIf(e -> {
+            if (e.getValue().expiresAt() >= now) return false;
+            tokenByUser.remove(e.getValue().user().getId(), e.getKey());
+            return true;
+        });
+
+        Iterator<Map.Entry<String, Entry>> it = byToken.entrySet().iterator();
+        while (byToken.size() >= maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            it.remove();
+            tokenByUser.remove(e.getValue().user().getId(), e.getKey());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package at.fhtw.mrp.util;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.model.User;
 import at.fhtw.mrp.repo.UserRepository;
 
@@ -12,6 +13,10 @@ import java.util.UUID;
 
 public class TokenService {
 
+    // Successful authentications, so repeat requests skip the users lookup
+    private static final TokenCache CACHE = new TokenCache(
+            AppConfig.AUTH_CACHE_TTL_SECONDS * 1000,
+            AppConfig.AUTH_CACHE_MAX_ENTRIES);
 
     // Issue a token for a user ID (when username not available)
 
@@ -59,9 +64,14 @@ public class TokenService {
 
         String rawToken = authHeader.substring("Bearer ".length()).trim();
 
+        Optional<User> cached = CACHE.get(rawToken);
+        if (cached.isPresent()) return cached;
+
         Optional<ParsedToken> parsed = parse(rawToken);
         if (parsed.isEmpty()) return Optional.empty();
 
+        long epoch = CACHE.epoch(parsed.get().userId());
+
         // Get user from repository - need to cast Optional<?> to Optional<User>
         Optional<?> optionalUser = userRepo.findById(parsed.get().userId());
         if (optionalUser.isEmpty()) return Optional.empty();
@@ -70,12 +80,33 @@ public class TokenService {
         User user = (User) optionalUser.get();
 
         // Verify token matches the one stored in database
-        if (rawToken.equals(user.getToken()))
+        if (rawToken.equals(user.getToken())) {
+            CACHE.put(rawToken, user, epoch);
             return Optional.of(user);
+        }
 
         return Optional.empty();
     }
 
+    /**
+     * Drop a user's cached token
+     * Must be called whenever users.token changes (login) or the user is deleted
+     * @param userId - the user whose token is no longer valid
+     */
+    public static void invalidate(UUID userId) {
+        CACHE.invalidateUser(userId);
+    }
+
+    // Cache statistics
+
+    public static long getCacheHits() {
+        return CACHE.getHits();
+    }
+
+    public static long getCacheMisses() {
+        return CACHE.getMisses();
+    }
+
     /**
      * Internal data holder for parsed token components
      */
@@ -0,0 +1,59 @@
+package at.fhtw.mrp.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUID version 7 generator (RFC 9562)
+ *
+ * Layout: 48-bit Unix milliseconds | version 7 | 12-bit sequence | variant | 62 random bits
+ *
+ * IDs from this generator are strictly increasing, also across threads: within one
+ * millisecond the 12-bit sequence counts up, and when it overflows (or the clock goes
+ * backwards) the timestamp is advanced instead. New rows therefore land at the right
+ * edge of B-tree primary key indexes instead of at random pages.
+ *
+ * Not for secrets: the random part comes from ThreadLocalRandom (use SecureRandom for tokens).
+ */
+public final class UuidV7 {
+
+    private UuidV7() {}
+
+    // (unix millis << 12) | sequence of the last generated ID
+    private static final AtomicLong STATE = new AtomicLong();
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+    /**
+     * Generate a new UUIDv7, greater than every ID generated before by this JVM
+     */
+    public static UUID generate() {
+        long now = System.currentTimeMillis() << 12;
+        long prev;
+        long next;
+        do {
+            prev = STATE.get();
+            next = Math.max(now, prev + 1);
+        } while (!STATE.compareAndSet(prev, next));
+
+        long millis = next >>> 12;
+        long sequence = next & 0xFFF;
+
+        long msb = (millis << 16) | VERSION | sequence;
+        long lsb = (ThreadLocalRandom.current().nextLong() >>> 2) | VARIANT;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Unix timestamp in milliseconds embedded in a UUIDv7
+     * @throws IllegalArgumentException if the UUID is not version 7
+     */
+    public static long timestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID");
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,26 @@
+package at.fhtw.mrp.util;
+
+import java.util.Map;
+
+/**
+ * Optimistic concurrency: the entity version a client based its edit on
+ * Shared by the versioned updates of media entries and ratings.
+ */
+public final class VersionUtil {
+
+    private VersionUtil() {}
+
+    /**
+     * Optional "version" of a request body
+     * @return the expected version, null for an unconditional write
+     * @throws IllegalArgumentException if "version" is not a number
+     */
+    public static Long expectedVersion(Map<String, Object> body) {
+        Object version = body.get("version");
+        if (version == null) return null;
+        if (!(version instanceof Number n)) {
+            throw new IllegalArgumentException("version must be a number");
+        }
+        return n.longValue();
+    }
+}
@@ -0,0 +1,204 @@
+package at.fhtw.mrp.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ConnectionPool
+ * Uses mocked physical connections, no database required
+ */
+class ConnectionPoolTest {
+
+    private final List<Connection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private ConnectionPool newPool(int min, int max, long borrowTimeoutMillis) {
+        ConnectionPool.ConnectionFactory factory = () -> {
+            Connection raw = mock(Connection.class);
+            opened.add(raw);
+            try {
+                when(raw.getAutoCommit()).thenReturn(true);
+                when(raw.isValid(anyInt())).thenReturn(true);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return raw;
+        };
+        pool = new ConnectionPool(factory,
+                new ConnectionPool.Settings(min, max, borrowTimeoutMillis, 60_000, 0, 0));
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.close();
+    }
+
+    @Test
+    @DisplayName("Test 21: Closing a pooled connection returns it for reuse")
+    void testClose_ReturnsConnectionToPool() throws SQLException {
+        ConnectionPool p = newPool(0, 2, 1_000);
+
+        Connection first = p.getConnection();
+        first.close();
+        Connection second = p.getConnection();
+
+        assertTrue(first.isClosed(), "Returned lease should report closed");
+        assertFalse(second.isClosed());
+        assertEquals(1, p.getTotalConnections(), "Physical connection should be reused");
+        assertEquals(1, p.getActiveConnections());
+        second.close();
+        assertEquals(1, p.getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("Test 22: Borrowing beyond maxSize times out")
+    void testBorrow_TimesOutWhenExhausted() throws SQLException {
+        ConnectionPool p = newPool(0, 1, 50);
+
+        try (Connection ignored = p.getConnection()) {
+            assertThrows(SQLTimeoutException.class, p::getConnection);
+        }
+
+        // Slot is free again after the first lease was closed
+        assertDoesNotThrow(() -> p.getConnection().close());
+    }
+
+    @Test
+    @DisplayName("Test 23: Invalid idle connections are replaced on borrow")
+    void testBorrow_DiscardsInvalidConnection() throws SQLException {
+        ConnectionPool p = newPool(0, 2, 1_000);
+
+        p.getConnection().close();
+        Connection raw = opened.get(0);
+        when(raw.isValid(anyInt())).thenReturn(false);
+
+        try (Connection ignored = p.getConnection()) {
+            verify(raw).close();
+            assertEquals(2, opened.size(), "A fresh connection should have been opened");
+            assertEquals(1, p.getTotalConnections());
+        }
+    }
+
+    @Test
+    @DisplayName("Test 24: Open transactions are rolled back when a connection is returned")
+    void testRelease_RollsBackOpenTransaction() throws SQLException {
+        ConnectionPool p = newPool(0, 1, 1_000);
+
+        Connection lease = p.getConnection();
+        Connection raw = opened.get(0);
+        when(raw.getAutoCommit()).thenReturn(false);
+        lease.close();
+
+        verify(raw).rollback();
+        verify(raw).setAutoCommit(true);
+    }
+
+    @Test
+    @DisplayName("Test 25: Double close does not return a connection twice")
+    void testClose_IsIdempotent() throws SQLException {
+        ConnectionPool p = newPool(0, 1, 50);
+
+        Connection lease = p.getConnection();
+        lease.close();
+        lease.close();
+
+        Connection next = p.getConnection();
+        assertThrows(SQLTimeoutException.class, p::getConnection,
+                "Second close must not free an extra slot");
+        assertThrows(SQLException.class, lease::createStatement,
+                "Closed lease must not forward calls");
+        next.close();
+    }
+
+    @Test
+    @DisplayName("Test 71: Borrowers racing with the minimum fill never open more than maxSize connections")
+    void testBorrow_RaceWithFillStaysWithinMax() throws Exception {
+        AtomicInteger physical = new AtomicInteger();
+        ConnectionPool.ConnectionFactory slowFactory = () -> {
+            physical.incrementAndGet();
+            try {
+                Thread.sleep(50);   // housekeeping is still filling while the borrowers arrive
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Connection raw = mock(Connection.class);
+            when(raw.getAutoCommit()).thenReturn(true);
+            when(raw.isValid(anyInt())).thenReturn(true);
+            return raw;
+        };
+        pool = new ConnectionPool(slowFactory, new ConnectionPool.Settings(2, 2, 5_000, 60_000, 0, 0));
+
+        ExecutorService borrowers = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            done.add(borrowers.submit(() -> {
+                try (Connection ignored = pool.getConnection()) {
+                    Thread.sleep(20);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+        borrowers.shutdown();
+
+        assertTrue(physical.get() <= 2, "Opened " + physical.get() + " connections with maxSize 2");
+        assertTrue(pool.getTotalConnections() <= 2);
+    }
+
+    @Test
+    @DisplayName("Test 106: A borrower waiting for the slot housekeeping is filling times out, then gets its connection")
+    void testBorrow_WaitsForSlotBeingFilled() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ConnectionPool.ConnectionFactory blockedFactory = () -> {
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Connection raw = mock(Connection.class);
+            when(raw.getAutoCommit()).thenReturn(true);
+            when(raw.isValid(anyInt())).thenReturn(true);
+            return raw;
+        };
+        pool = new ConnectionPool(blockedFactory, new ConnectionPool.Settings(1, 1, 200, 60_000, 0, 0));
+        assertTrue(creating.await(5, TimeUnit.SECONDS), "Housekeeping should open the minimum connection");
+
+        // The permit is free, the only slot is held by the connection housekeeping is opening
+        assertTimeoutPreemptively(Duration.ofSeconds(2),
+                () -> assertThrows(SQLTimeoutException.class, pool::getConnection),
+                "Borrow timeout must bound the wait");
+
+        ExecutorService borrower = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiting = borrower.submit(() -> pool.getConnection());
+            Thread.sleep(50);
+            release.countDown();
+            try (Connection c = waiting.get(5, TimeUnit.SECONDS)) {
+                assertFalse(c.isClosed());
+            }
+        } finally {
+            borrower.shutdown();
+        }
+        assertEquals(1, pool.getTotalConnections());
+    }
+}
@@ -0,0 +1,91 @@
+package at.fhtw.mrp.db;
+
+import at.fhtw.mrp.util.UuidV7;
+import org.junit.jupiter.api.Assumptions;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rows for tests that need the real database (see AppConfig for the connection)
+ *
+ * Tests call assumeAvailable() first, so they are skipped, not failed, when no
+ * database is reachable. Users created through a TestDatabase are deleted on
+ * close(), their media entries, ratings and favorites with them (ON DELETE CASCADE).
+ */
+public final class TestDatabase implements AutoCloseable {
+
+    private static Boolean available;
+
+    private final List<UUID> users = new ArrayList<>();
+
+    /**
+     * Skip the calling test if the database cannot be reached
+     */
+    public static synchronized void assumeAvailable() {
+        if (available == null) {
+            try (Connection c = Database.getConnection()) {
+                available = c.isValid(2);
+            } catch (SQLException | RuntimeException e) {
+                available = false;
+            }
+        }
+        Assumptions.assumeTrue(available, "Database not reachable, see AppConfig");
+    }
+
+    public UUID createUser() throws SQLException {
+        UUID id = UuidV7.generate();
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO users (id, username, password_hash) VALUES (?, ?, 'x')")) {
+            ps.setObject(1, id);
+            ps.setString(2, "test-" + id);
+            ps.executeUpdate();
+        }
+        users.add(id);
+        return id;
+    }
+
+    public UUID createMedia(UUID ownerId) throws SQLException {
+        UUID id = UuidV7.generate();
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO media_entries (id, owner_id, title, media_type) VALUES (?, ?, ?, 'movie')")) {
+            ps.setObject(1, id);
+            ps.setObject(2, ownerId);
+            ps.setString(3, "test " + id);
+            ps.executeUpdate();
+        }
+        return id;
+    }
+
+    /**
+     * Single int result of a query with one UUID parameter, 0 if there is no row
+     */
+    public int queryInt(String sql, UUID id) throws SQLException {
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setObject(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM users WHERE id = ?")) {
+            for (UUID id : users) {
+                ps.setObject(1, id);
+                ps.executeUpdate();
+            }
+        }
+        users.clear();
+    }
+}
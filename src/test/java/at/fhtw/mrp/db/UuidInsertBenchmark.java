@@ -0,0 +1,95 @@
+package at.fhtw.mrp.db;
+
+import at.fhtw.mrp.util.UuidV7;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Insert throughput and primary key index size: UUIDv4 vs UUIDv7
+ *
+ * Not a unit test (needs a running database, see AppConfig). Run manually:
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java --enable-preview -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *       at.fhtw.mrp.db.UuidInsertBenchmark 200000
+ *
+ * Rows mimic ratings (UUID primary key plus a few columns) and are written to
+ * temporary tables in batches, so nothing persists.
+ */
+public final class UuidInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        try (Connection c = Database.getConnection()) {
+            // Warm up so the first measured run does not pay for JIT and caches
+            run(c, "bench_warmup", UUID::randomUUID, Math.min(rows, 20_000));
+
+            Result v4 = run(c, "bench_uuid_v4", UUID::randomUUID, rows);
+            Result v7 = run(c, "bench_uuid_v7", UuidV7::generate, rows);
+
+            System.out.printf("%-8s %12s %14s %14s%n", "ids", "rows/s", "pk index", "table");
+            print("v4", v4);
+            print("v7", v7);
+            System.out.printf("v7 index is %.0f%% of v4, insert rate %.2fx%n",
+                    100.0 * v7.indexBytes / v4.indexBytes, v7.rowsPerSecond / v4.rowsPerSecond);
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    private record Result(double rowsPerSecond, long indexBytes, long tableBytes) {}
+
+    private static Result run(Connection c, String table, Supplier<UUID> ids, int rows) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+            st.execute("CREATE TEMP TABLE " + table + " (" +
+                    "id UUID PRIMARY KEY, media_id UUID NOT NULL, stars INTEGER NOT NULL, " +
+                    "created_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+        }
+
+        UUID mediaId = UUID.randomUUID();
+        long start = System.nanoTime();
+
+        c.setAutoCommit(false);
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO " + table + " (id, media_id, stars) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                ps.setObject(1, ids.get());
+                ps.setObject(2, mediaId);
+                ps.setInt(3, 1 + i % 5);
+                ps.addBatch();
+                if (i % BATCH_SIZE == 0 || i == rows) {
+                    ps.executeBatch();
+                    c.commit();
+                }
+            }
+        } finally {
+            c.setAutoCommit(true);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT pg_relation_size(?::regclass) AS idx, pg_relation_size(?::regclass) AS tbl")) {
+            ps.setString(1, table + "_pkey");
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Result(rows / seconds, rs.getLong("idx"), rs.getLong("tbl"));
+            }
+        }
+    }
+
+    private static void print(String label, Result r) {
+        System.out.printf("%-8s %12.0f %11d kB %11d kB%n",
+                label, r.rowsPerSecond, r.indexBytes / 1024, r.tableBytes / 1024);
+    }
+}
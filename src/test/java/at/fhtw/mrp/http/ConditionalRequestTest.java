@@ -0,0 +1,42 @@
+package at.fhtw.mrp.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConditionalRequest
+ * Tests ETag derivation and validator comparison
+ */
+class ConditionalRequestTest {
+
+    @Test
+    @DisplayName("Test 46: If-None-Match uses weak comparison over a tag list")
+    void testMatches_WeakComparison() {
+        String etag = ConditionalRequest.etag(3L, "2026-01-01 10:00:00.123456");
+
+        assertEquals(etag, ConditionalRequest.etag(3L, "2026-01-01 10:00:00.123456"));
+        assertNotEquals(etag, ConditionalRequest.etag(4L, "2026-01-01 10:00:00.123456"));
+
+        assertTrue(ConditionalRequest.matches(etag, etag));
+        assertTrue(ConditionalRequest.matches("W/" + etag, etag), "Compressed responses carry a weak tag");
+        assertTrue(ConditionalRequest.matches("\"other\", " + etag, etag));
+        assertTrue(ConditionalRequest.matches("*", etag));
+        assertFalse(ConditionalRequest.matches("\"other\"", etag));
+    }
+
+    @Test
+    @DisplayName("Test 47: If-Modified-Since compares with second precision")
+    void testUnmodifiedSince_SecondPrecision() {
+        Instant lastModified = Instant.parse("2026-03-01T12:00:00.750Z");
+        String header = ConditionalRequest.httpDate(Instant.parse("2026-03-01T12:00:00Z"));
+
+        assertTrue(ConditionalRequest.unmodifiedSince(header, lastModified));
+        assertFalse(ConditionalRequest.unmodifiedSince(header, lastModified.plusSeconds(1)));
+        assertFalse(ConditionalRequest.unmodifiedSince("not a date", lastModified));
+        assertFalse(ConditionalRequest.unmodifiedSince(null, lastModified));
+    }
+}
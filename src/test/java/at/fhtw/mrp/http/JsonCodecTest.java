@@ -0,0 +1,130 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.http.dto.RatingRequest;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for JsonCodec
+ * Uses a mocked HttpExchange, no server required
+ */
+class JsonCodecTest {
+
+    private HttpExchange exchangeWithBody(String body) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestBody())
+                .thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return exchange;
+    }
+
+    @Test
+    @DisplayName("Test 42: Request body is read into a typed DTO, unknown fields ignored")
+    void testRead_TypedDto() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        HttpExchange exchange = exchangeWithBody(
+                "{\"mediaId\":\"" + mediaId + "\",\"stars\":4,\"comment\":\"ok\",\"extra\":1}");
+
+        RatingRequest request = JsonCodec.read(exchange, RatingRequest.class);
+
+        assertEquals(mediaId, request.mediaId());
+        assertEquals(4, request.stars());
+        assertEquals("ok", request.comment());
+    }
+
+    @Test
+    @DisplayName("Test 43: Empty body yields null / empty map, malformed body is a bad request")
+    void testRead_EmptyAndMalformed() throws Exception {
+        assertNull(JsonCodec.read(exchangeWithBody(""), RatingRequest.class));
+        assertTrue(JsonCodec.readMap(exchangeWithBody("")).isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonCodec.read(exchangeWithBody("{\"stars\":"), RatingRequest.class));
+    }
+
+    private HttpExchange exchangeWithResponse(ByteArrayOutputStream body) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(body);
+        return exchange;
+    }
+
+    @Test
+    @DisplayName("Test 66: Streamed lines are one JSON value per line, a short stream has a fixed length")
+    void testStreamLines_WritesNdjson() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpExchange exchange = exchangeWithResponse(body);
+
+        JsonCodec.streamLines(exchange, out -> {
+            out.write(Map.of("n", 1));
+            out.write(Map.of("n", 2));
+        });
+
+        String expected = "{\"n\":1}\n{\"n\":2}\n";
+        verify(exchange).sendResponseHeaders(200, expected.length());
+        assertEquals(expected, body.toString(StandardCharsets.UTF_8));
+        assertTrue(exchange.getResponseHeaders().getFirst("Content-Type").startsWith("application/x-ndjson"));
+    }
+
+    @Test
+    @DisplayName("Test 67: A failing stream propagates while buffered, ends with an error line once streaming")
+    void testStreamLines_Failure() throws Exception {
+        HttpExchange early = mock(HttpExchange.class);
+        assertThrows(SQLException.class, () -> JsonCodec.streamLines(early, out -> {
+            out.write(Map.of("n", 1));
+            throw new SQLException("connection lost");
+        }));
+        verify(early, never()).sendResponseHeaders(anyInt(), anyLong());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpExchange late = exchangeWithResponse(body);
+
+        JsonCodec.streamLines(late, out -> {
+            for (int i = 0; i < 5_000; i++) out.write(Map.of("n", i));
+            throw new SQLException("connection lost");
+        });
+
+        verify(late).sendResponseHeaders(200, 0);
+        String text = body.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("{\"n\":0}\n"));
+        assertTrue(text.endsWith("{\"n\":4999}\n{\"error\":\"Stream aborted\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Test 68: A large streamed JSON document is chunked, and left unterminated if the source fails")
+    void testStreamJson_ChunkedAndTruncated() throws Exception {
+        JsonCodec.JsonSource rows = json -> {
+            json.writeStartArray();
+            for (int i = 0; i < 5_000; i++) json.writeObject(Map.of("n", i));
+            json.writeEndArray();
+        };
+
+        ByteArrayOutputStream complete = new ByteArrayOutputStream();
+        HttpExchange ok = exchangeWithResponse(complete);
+        JsonCodec.streamJson(ok, rows);
+
+        verify(ok).sendResponseHeaders(200, 0);
+        String text = complete.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("[{\"n\":0},") && text.endsWith("{\"n\":4999}]"));
+
+        ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+        HttpExchange failing = exchangeWithResponse(truncated);
+        JsonCodec.streamJson(failing, json -> {
+            rows.writeTo(json);
+            throw new SQLException("connection lost");
+        });
+
+        assertFalse(truncated.toString(StandardCharsets.UTF_8).endsWith("]"));
+    }
+}
@@ -0,0 +1,70 @@
+package at.fhtw.mrp.http;
+
+import at.fhtw.mrp.config.AppConfig;
+import at.fhtw.mrp.repo.Page;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PagedList
+ */
+class PagedListTest {
+
+    private HttpExchange exchangeWithResponse(ByteArrayOutputStream body) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(body);
+        return exchange;
+    }
+
+    @Test
+    @DisplayName("Test 81: Limit and cursor switch to the paged format, limit defaults when paged")
+    void testLimit_PagedAndUnpaged() {
+        assertFalse(PagedList.isPaged(Map.of()));
+        assertNull(PagedList.limit(Map.of()));
+
+        assertTrue(PagedList.isPaged(Map.of("cursor", "abc")));
+        assertEquals(AppConfig.LIST_DEFAULT_LIMIT, PagedList.limit(Map.of("cursor", "abc")));
+        assertEquals(AppConfig.LIST_DEFAULT_LIMIT, PagedList.limit(Map.of("limit", "ten")));
+        assertEquals(10, PagedList.limit(Map.of("limit", "10")));
+    }
+
+    @Test
+    @DisplayName("Test 82: Cut-off un-paged list is a plain array flagged with X-Truncated")
+    void testSend_UnpagedTruncated() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpExchange exchange = exchangeWithResponse(body);
+
+        PagedList.send(exchange, new Page<>(List.of("a", "b"), "next"), false);
+
+        assertEquals("[\"a\",\"b\"]", body.toString(StandardCharsets.UTF_8));
+        assertEquals("true", exchange.getResponseHeaders().getFirst("X-Truncated"));
+        assertEquals("next", exchange.getResponseHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Test 83: Paged list is an envelope; the last page has no cursor headers")
+    void testSend_PagedEnvelope() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpExchange exchange = exchangeWithResponse(body);
+
+        PagedList.send(exchange, new Page<>(List.of("a"), null), true);
+
+        assertEquals("{\"items\":[\"a\"],\"nextCursor\":null}", body.toString(StandardCharsets.UTF_8));
+        assertNull(exchange.getResponseHeaders().getFirst("X-Next-Cursor"));
+        assertNull(exchange.getResponseHeaders().getFirst("X-Truncated"));
+
+        assertEquals(Map.of("X-Next-Cursor", "n"), PagedList.headers(new Page<>(List.of("a"), "n"), true));
+    }
+}
@@ -0,0 +1,101 @@
+package at.fhtw.mrp.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestExecutor
+ * Tasks block on a latch to keep requests in flight
+ */
+class RequestExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RequestExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) executor.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    private Runnable blocking(CountDownLatch started) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Test 72: Requests beyond maxConcurrency + queueLimit are rejected")
+    void testExecute_RejectsWhenFull() throws Exception {
+        executor = new RequestExecutor(RequestExecutor.Mode.PLATFORM, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.execute(blocking(started));       // running
+        executor.execute(blocking(new CountDownLatch(1)));   // waiting
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertEquals(2, executor.getInFlight());
+        assertEquals(1, executor.getActive());
+        assertEquals(1, executor.getRejectedCount());
+
+        // Room again once the requests have finished
+        release.countDown();
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Test 73: Requests are rejected after shutdown")
+    void testExecute_RejectsAfterShutdown() {
+        executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 4, 4);
+
+        assertTrue(executor.shutdown(1, TimeUnit.SECONDS), "Idle executor should stop at once");
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Test 74: Executor mode is parsed case-insensitively, defaulting to virtual")
+    void testModeParse() {
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse(null));
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse(" "));
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse(" Virtual "));
+        assertEquals(RequestExecutor.Mode.PLATFORM, RequestExecutor.Mode.parse("platform"));
+        assertEquals(RequestExecutor.Mode.PLATFORM, RequestExecutor.Mode.parse("POOL"));
+        assertThrows(IllegalArgumentException.class, () -> RequestExecutor.Mode.parse("fibers"));
+    }
+
+    @Test
+    @DisplayName("Test 75: Shutdown reports false and interrupts requests still running after the grace period")
+    void testShutdown_GraceExpires() throws Exception {
+        executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 2, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(executor.shutdown(50, TimeUnit.MILLISECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Remaining request should be interrupted");
+    }
+}
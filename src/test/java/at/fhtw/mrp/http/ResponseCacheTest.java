@@ -0,0 +1,128 @@
+package at.fhtw.mrp.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ResponseCache
+ * Tests key normalization, freshness, stale-while-revalidate and invalidation
+ */
+class ResponseCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ResponseCache.CachedResponse load() {
+        String body = "[" + loads.incrementAndGet() + "]";
+        return new ResponseCache.CachedResponse(body.getBytes(StandardCharsets.UTF_8), "\"" + body + "\"", Map.of());
+    }
+
+    private String body(ResponseCache.CachedResponse response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Test 55: Parameter order does not matter, fresh entries are not reloaded")
+    void testGet_FreshHitForEquivalentParams() throws SQLException {
+        ResponseCache cache = new ResponseCache(10, 1 << 20, 60_000, 60_000);
+        Map<String, String> a = new LinkedHashMap<>();
+        a.put("genre", "drama");
+        a.put("sortBy", "year");
+        Map<String, String> b = new LinkedHashMap<>();
+        b.put("sortBy", "year");
+        b.put("genre", "drama");
+
+        assertEquals(ResponseCache.key(a), ResponseCache.key(b));
+        assertEquals("[1]", body(cache.get(ResponseCache.key(a), this::load)));
+        assertEquals("[1]", body(cache.get(ResponseCache.key(b), this::load)));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Test 56: Stale entry is served while a background refresh replaces it")
+    void testGet_StaleWhileRevalidate() throws Exception {
+        ResponseCache cache = new ResponseCache(10, 1 << 20, 1, 60_000);
+        cache.get("k", this::load);
+        Thread.sleep(5);
+
+        assertEquals("[1]", body(cache.get("k", this::load)), "Stale response is served without waiting");
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        assertEquals(2, loads.get(), "Exactly one refresh ran");
+        assertEquals(1, cache.getStaleHits());
+    }
+
+    @Test
+    @DisplayName("Test 57: Invalidation drops entries and discards loads that started before it")
+    void testInvalidateAll_DiscardsRacingLoad() throws Exception {
+        ResponseCache cache = new ResponseCache(10, 1 << 20, 60_000, 60_000);
+        cache.get("k", this::load);
+
+        cache.invalidateAll();
+        assertEquals("[2]", body(cache.get("k", this::load)));
+
+        // A write lands while the next key is being loaded
+        ResponseCache.CachedResponse racing = cache.get("other", () -> {
+            cache.invalidateAll();
+            return load();
+        });
+        assertEquals("[3]", body(racing), "Caller still gets its result");
+        assertEquals(0, cache.size(), "but it is not cached");
+
+        // A second caller joins a running load after a write: it shares the result, but
+        // must not store it as current
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseCache.CachedResponse> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get("joined", () -> {
+                    loading.countDown();
+                    await(release);
+                    return load();
+                });
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        await(loading);
+        cache.invalidateAll();
+
+        Thread joiner = new Thread(() -> {
+            try {
+                cache.get("joined", this::load);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        joiner.start();
+        while (joiner.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        release.countDown();
+        leader.join();
+        joiner.join();
+
+        assertEquals(4, loads.get(), "The joiner shared the running load");
+        assertEquals(0, cache.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package at.fhtw.mrp.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static at.fhtw.mrp.http.ResponseCompression.Encoding.DEFLATE;
+import static at.fhtw.mrp.http.ResponseCompression.Encoding.GZIP;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ResponseCompression
+ * Tests Accept-Encoding negotiation, and encoding of JsonCodec responses run through the filter
+ */
+class ResponseCompressionTest {
+
+    private static final int MIN_BYTES = 256;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    // Run handler behind the filter for a request with the given Accept-Encoding
+    private HttpExchange filter(String acceptEncoding, HttpHandler handler) throws IOException {
+        return filter(acceptEncoding, null, handler);
+    }
+
+    private HttpExchange filter(String acceptEncoding, String ifNoneMatch, HttpHandler handler) throws IOException {
+        Headers request = new Headers();
+        if (acceptEncoding != null) request.set("Accept-Encoding", acceptEncoding);
+        if (ifNoneMatch != null) request.set("If-None-Match", ifNoneMatch);
+
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestHeaders()).thenReturn(request);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(body);
+
+        new ResponseCompression(MIN_BYTES).doFilter(exchange, new Filter.Chain(List.of(), handler));
+        return exchange;
+    }
+
+    private static String decode(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> largePayload() {
+        return Map.of("text", "lorem ipsum ".repeat(100));
+    }
+
+    @Test
+    @DisplayName("Test 44: gzip is preferred, deflate used when it is the only option")
+    void testNegotiate_PrefersGzip() {
+        assertEquals(GZIP, ResponseCompression.negotiate("gzip, deflate, br"));
+        assertEquals(GZIP, ResponseCompression.negotiate("deflate, GZIP"));
+        assertEquals(DEFLATE, ResponseCompression.negotiate("deflate"));
+        assertEquals(DEFLATE, ResponseCompression.negotiate("gzip;q=0.5, deflate"));
+    }
+
+    @Test
+    @DisplayName("Test 45: Missing, refused or unsupported encodings send identity")
+    void testNegotiate_Identity() {
+        assertNull(ResponseCompression.negotiate(null));
+        assertNull(ResponseCompression.negotiate(""));
+        assertNull(ResponseCompression.negotiate("br, identity"));
+        assertNull(ResponseCompression.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(ResponseCompression.negotiate("*;q=0"));
+        assertEquals(GZIP, ResponseCompression.negotiate("*"));
+    }
+
+    @Test
+    @DisplayName("Test 84: Large body is gzip-encoded and decodes back to the original JSON")
+    void testEncode_GzipRoundTrip() throws Exception {
+        Map<String, String> payload = largePayload();
+        HttpExchange exchange = filter("gzip, deflate", ex -> JsonCodec.send(ex, 200, payload));
+
+        byte[] sent = body.toByteArray();
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertEquals("Accept-Encoding", exchange.getResponseHeaders().getFirst("Vary"));
+        verify(exchange).sendResponseHeaders(200, sent.length);
+        assertTrue(sent.length < JsonCodec.toBytes(payload).length);
+        assertEquals(new String(JsonCodec.toBytes(payload), StandardCharsets.UTF_8),
+                decode(new GZIPInputStream(new ByteArrayInputStream(sent))));
+    }
+
+    @Test
+    @DisplayName("Test 85: deflate-only clients get a deflate body that inflates back")
+    void testEncode_DeflateRoundTrip() throws Exception {
+        Map<String, String> payload = largePayload();
+        HttpExchange exchange = filter("deflate", ex -> JsonCodec.send(ex, 200, payload));
+
+        assertEquals("deflate", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertEquals(new String(JsonCodec.toBytes(payload), StandardCharsets.UTF_8),
+                decode(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    @DisplayName("Test 86: Bodies below the minimum size are sent unencoded")
+    void testEncode_SmallBodyBypass() throws Exception {
+        Map<String, String> payload = Map.of("status", "ok");
+        HttpExchange exchange = filter("gzip", ex -> JsonCodec.send(ex, 200, payload));
+
+        assertNull(exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(JsonCodec.toBytes(payload), body.toByteArray());
+        verify(exchange).sendResponseHeaders(200, body.size());
+    }
+
+    @Test
+    @DisplayName("Test 87: Streamed responses are chunked and encoded regardless of size")
+    void testStream_EncodedAndChunked() throws Exception {
+        List<String> payload = List.of("a", "b");
+        HttpExchange exchange = filter("gzip", ex -> JsonCodec.stream(ex, 200, payload));
+
+        verify(exchange).sendResponseHeaders(200, 0);
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertEquals("[\"a\",\"b\"]", decode(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    @DisplayName("Test 88: Without Accept-Encoding the stream is sent as plain JSON")
+    void testStream_IdentityWithoutAcceptEncoding() throws Exception {
+        HttpExchange exchange = filter(null, ex -> JsonCodec.stream(ex, 200, List.of("a")));
+
+        assertNull(exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertEquals("[\"a\"]", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Test 89: Negotiated responses carry a weak ETag on the 200 and on the 304")
+    void testConditional_WeakEtagWhenEncodingNegotiated() throws Exception {
+        Map<String, String> payload = largePayload();
+        String strong = ConditionalRequest.etagOf(JsonCodec.toBytes(payload));
+
+        HttpExchange ok = filter("gzip", ex -> JsonCodec.sendConditional(ex, payload));
+        assertEquals("W/" + strong, ok.getResponseHeaders().getFirst("ETag"));
+        assertEquals("Accept-Encoding", ok.getResponseHeaders().getFirst("Vary"));
+
+        HttpExchange notModified = filter("gzip", "W/" + strong, ex -> JsonCodec.sendConditional(ex, payload));
+        verify(notModified).sendResponseHeaders(304, -1);
+        assertEquals("W/" + strong, notModified.getResponseHeaders().getFirst("ETag"));
+        assertEquals("Accept-Encoding", notModified.getResponseHeaders().getFirst("Vary"));
+
+        // Too small to encode, still weak: the client could have got the encoded form
+        Map<String, String> small = Map.of("status", "ok");
+        HttpExchange identity = filter("gzip", ex -> JsonCodec.sendConditional(ex, small));
+        assertNull(identity.getResponseHeaders().getFirst("Content-Encoding"));
+        assertTrue(identity.getResponseHeaders().getFirst("ETag").startsWith("W/"));
+    }
+
+    @Test
+    @DisplayName("Test 90: Without a negotiated encoding the ETag stays strong")
+    void testConditional_StrongEtagForIdentityClients() throws Exception {
+        Map<String, String> payload = largePayload();
+        String strong = ConditionalRequest.etagOf(JsonCodec.toBytes(payload));
+
+        HttpExchange ok = filter(null, ex -> JsonCodec.sendConditional(ex, payload));
+        assertEquals(strong, ok.getResponseHeaders().getFirst("ETag"));
+
+        HttpExchange notModified = filter("identity", strong, ex -> JsonCodec.sendConditional(ex, payload));
+        verify(notModified).sendResponseHeaders(304, -1);
+        assertEquals(strong, notModified.getResponseHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    @DisplayName("Test 93: A cached response is compressed once and reused on later hits")
+    void testSendCached_ReusesEncodedBody() throws Exception {
+        byte[] json = JsonCodec.toBytes(largePayload());
+        ResponseCache.CachedResponse cached = new ResponseCache.CachedResponse(json, "\"v1\"", Map.of());
+
+        HttpExchange first = filter("gzip", ex -> JsonCodec.sendCached(ex, 200, cached));
+        byte[] sent = body.toByteArray();
+        body.reset();
+        filter("gzip", ex -> JsonCodec.sendCached(ex, 200, cached));
+
+        assertEquals("gzip", first.getResponseHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(sent, body.toByteArray());
+        assertSame(cached.encoded(GZIP), cached.encoded(GZIP));
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(sent)).readAllBytes());
+
+        // Identity clients still get the uncompressed bytes
+        body.reset();
+        HttpExchange identity = filter(null, ex -> JsonCodec.sendCached(ex, 200, cached));
+        assertNull(identity.getResponseHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(json, body.toByteArray());
+    }
+}
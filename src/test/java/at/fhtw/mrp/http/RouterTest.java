@@ -0,0 +1,68 @@
+package at.fhtw.mrp.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Router
+ * Tests path matching, typed variables and method lookup
+ */
+class RouterTest {
+
+    private final Router.Route pending = (ex, p) -> {};
+    private final Router.Route byId = (ex, p) -> {};
+    private final Router.Route approve = (ex, p) -> {};
+
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router();
+        router.get("/api/ratings/pending", pending);
+        router.put("/api/ratings/{id:uuid}", byId);
+        router.delete("/api/ratings/{id:uuid}", byId);
+        router.post("/api/ratings/{id:uuid}/approve", approve);
+    }
+
+    @Test
+    @DisplayName("Test 39: Literal segments win over variables and UUIDs are parsed once")
+    void testMatch_LiteralBeforeVariable() {
+        UUID id = UUID.randomUUID();
+
+        Router.Match literal = router.match("/api/ratings/pending");
+        Router.Match variable = router.match("/api/ratings/" + id + "/approve/");
+
+        assertSame(pending, literal.routes().get("GET"));
+        assertSame(approve, variable.routes().get("POST"));
+        assertEquals(id, variable.params().uuid("id"));
+    }
+
+    @Test
+    @DisplayName("Test 40: Malformed typed variable is reported instead of a plain miss")
+    void testMatch_InvalidUuid() {
+        Router.Match match = router.match("/api/ratings/not-a-uuid");
+
+        assertNull(match.routes());
+        assertEquals("id", match.invalidParam());
+    }
+
+    @Test
+    @DisplayName("Test 41: Unknown paths do not match and known paths expose their methods")
+    void testMatch_NotFoundAndMethods() {
+        Router.Match unknown = router.match("/api/unknown");
+        Map<String, Router.Route> routes = router.match("/api/ratings/" + UUID.randomUUID()).routes();
+
+        assertNull(unknown.routes());
+        assertNull(unknown.invalidParam());
+        assertEquals(List.of("PUT", "DELETE"), List.copyOf(routes.keySet()));
+        assertThrows(IllegalStateException.class, () -> router.get("/api/ratings/pending", pending),
+                "Duplicate routes must be rejected");
+    }
+}
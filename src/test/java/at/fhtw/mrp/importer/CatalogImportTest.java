@@ -0,0 +1,158 @@
+package at.fhtw.mrp.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CatalogImport pipeline
+ * The database is replaced by a ChunkWriter stub
+ */
+class CatalogImportTest {
+
+    private static final String FIXTURE = "title,mediaType,releaseYear\n"
+            + "Alpha,movie,2001\n"
+            + ",movie,2002\n"
+            + "Beta,series,2003\n"
+            + "Gamma,book,2004\n"
+            + "Delta,game,soon\n"
+            + "\"Epsilon\nPart 2\",movie,2005\n"
+            + "Zeta,game,2006\n";
+
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final Pattern OWNER_COLUMN = Pattern.compile("," + OWNER + ",");
+
+    @TempDir
+    Path dir;
+
+    private CatalogImport.Options options(Path file, int chunkSize, int workers) {
+        return new CatalogImport.Options(file, CatalogFormat.CSV, OWNER, chunkSize, workers,
+                dir.resolve("rejected.ndjson"));
+    }
+
+    private Path fixture(String content) throws IOException {
+        return Files.writeString(dir.resolve("catalog.csv"), content);
+    }
+
+    // Dead-letter entries ordered by line (workers may finish chunks in any order)
+    private List<JsonNode> deadLetters() throws IOException {
+        List<JsonNode> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(dir.resolve("rejected.ndjson"))) {
+            entries.add(CatalogRowParser.MAPPER.readTree(line));
+        }
+        entries.sort(Comparator.comparingLong(e -> e.get("line").asLong()));
+        return entries;
+    }
+
+    // Every COPY row has the owner id as second column (values may contain line breaks)
+    private static long rows(byte[] copyData) {
+        return OWNER_COLUMN.matcher(new String(copyData, StandardCharsets.UTF_8)).results().count();
+    }
+
+    @Test
+    @DisplayName("Test 100: Valid rows are copied, invalid ones go to the dead-letter file with their line")
+    void testRun_DeadLettersInvalidRows() throws Exception {
+        AtomicLong copied = new AtomicLong();
+        CatalogImport.Result result = new CatalogImport(options(fixture(FIXTURE), 2, 3),
+                data -> {
+                    copied.addAndGet(rows(data));
+                    return rows(data);
+                }).run();
+
+        assertEquals(4, result.imported());
+        assertEquals(4, copied.get());
+        assertEquals(3, result.rejected());
+        assertTrue(result.chunks() >= 2);
+
+        List<JsonNode> rejected = deadLetters();
+        assertEquals(3, rejected.size());
+        assertEquals(3, rejected.get(0).get("line").asLong());
+        assertEquals("title is required", rejected.get(0).get("error").asText());
+        assertEquals(",movie,2002", rejected.get(0).get("record").asText());
+        assertEquals(5, rejected.get(1).get("line").asLong());
+        assertEquals("mediaType must be movie, series or game", rejected.get(1).get("error").asText());
+        assertEquals(6, rejected.get(2).get("line").asLong());
+        assertEquals("Delta,game,soon", rejected.get(2).get("record").asText());
+    }
+
+    @Test
+    @DisplayName("Test 101: A chunk the database refuses is dead-lettered as a whole, the import continues")
+    void testRun_RefusedChunkIsDeadLettered() throws Exception {
+        Path file = fixture("title,mediaType\nAlpha,movie\nBeta,movie\nGamma,game\n");
+        CatalogImport.Result result = new CatalogImport(options(file, 2, 1), data -> {
+            if (new String(data, StandardCharsets.UTF_8).contains("Gamma")) {
+                throw new SQLException("duplicate key", "23505");
+            }
+            return rows(data);
+        }).run();
+
+        assertEquals(2, result.imported());
+        assertEquals(1, result.rejected());
+        assertEquals(1, result.chunks());
+
+        JsonNode rejected = deadLetters().get(0);
+        assertEquals(4, rejected.get("line").asLong());
+        assertTrue(rejected.get("error").asText().startsWith("Chunk rejected by database"));
+        assertEquals("Gamma,game", rejected.get("record").asText());
+    }
+
+    @Test
+    @DisplayName("Test 102: A lost connection aborts the import with its SQLException")
+    void testRun_ConnectionFailurePropagates() throws Exception {
+        SQLException lost = new SQLException("connection lost", "08006");
+        CatalogImport catalogImport = new CatalogImport(options(fixture(FIXTURE), 2, 2), data -> {
+            throw lost;
+        });
+
+        assertSame(lost, assertThrows(SQLException.class, catalogImport::run));
+    }
+
+    @Test
+    @DisplayName("Test 103: A read error is thrown only after the writer has finished with the dead-letter file")
+    void testRun_ReadErrorWaitsForWriter() throws Exception {
+        // Enough valid rows to fill the pipeline before the decoder reaches the invalid bytes
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.writeBytes("title,mediaType\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < 2_000; i++) {
+            String row = i % 10 == 0 ? ",movie\n" : "Title " + i + ",movie\n";
+            content.writeBytes(row.getBytes(StandardCharsets.UTF_8));
+        }
+        content.writeBytes(new byte[] {(byte) 0xff, (byte) 0xfe, '\n'});
+        Path file = Files.write(dir.resolve("catalog.csv"), content.toByteArray());
+
+        AtomicInteger copying = new AtomicInteger();
+        CatalogImport catalogImport = new CatalogImport(options(file, 10, 1), data -> {
+            copying.incrementAndGet();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            copying.decrementAndGet();
+            return rows(data);
+        });
+
+        assertThrows(IOException.class, catalogImport::run);
+        assertEquals(0, copying.get(), "No chunk is copied after run() returned");
+        for (JsonNode entry : deadLetters()) {
+            assertEquals("title is required", entry.get("error").asText());
+        }
+    }
+}
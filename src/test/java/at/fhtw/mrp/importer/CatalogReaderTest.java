@@ -0,0 +1,90 @@
+package at.fhtw.mrp.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CatalogReader
+ * Tests record boundaries of CSV and NDJSON files
+ */
+class CatalogReaderTest {
+
+    private CatalogReader reader(String content, CatalogFormat format) {
+        return new CatalogReader(new BufferedReader(new StringReader(content)), format);
+    }
+
+    @Test
+    @DisplayName("Test 63: Quoted CSV fields may span lines, blank lines are skipped")
+    void testNext_JoinsQuotedLineBreaks() throws IOException {
+        String csv = "title,mediaType\n"
+                + "\"Two\nlines\",movie\n"
+                + "\n"
+                + "\"Say \"\"hi\"\"\",game\n";
+
+        try (CatalogReader reader = reader(csv, CatalogFormat.CSV)) {
+            assertEquals("title,mediaType", reader.header().text());
+
+            CatalogReader.RawRecord first = reader.next();
+            assertEquals(2, first.line());
+            assertEquals("\"Two\nlines\",movie", first.text());
+
+            CatalogReader.RawRecord second = reader.next();
+            assertEquals(5, second.line(), "Line numbers count the physical lines");
+            assertEquals("\"Say \"\"hi\"\"\",game", second.text());
+
+            assertNull(reader.next());
+        }
+
+        try (CatalogReader reader = reader("{\"title\":\"a\"\n", CatalogFormat.NDJSON)) {
+            assertEquals("{\"title\":\"a\"", reader.next().text());
+        }
+    }
+
+    private CatalogReader reader(String content, int maxRecordLines) {
+        return new CatalogReader(new BufferedReader(new StringReader(content)), CatalogFormat.CSV,
+                maxRecordLines, CatalogReader.MAX_RECORD_CHARS);
+    }
+
+    @Test
+    @DisplayName("Test 99: Quotes inside a field are literal, a quote that never closes costs one record")
+    void testNext_StrayAndRunawayQuotes() throws IOException {
+        String csv = "title,mediaType\n"
+                + "The \"Best\" Movie,movie\n"
+                + "\"never closed,movie\n"
+                + "Next,movie\n"
+                + "Last,game\n";
+
+        try (CatalogReader reader = reader(csv, 2)) {
+            reader.header();
+
+            CatalogReader.RawRecord stray = reader.next();
+            assertEquals("The \"Best\" Movie,movie", stray.text());
+            assertNull(stray.error());
+
+            // Open quote still open after 2 lines: first line rejected, the rest read again
+            CatalogReader.RawRecord runaway = reader.next();
+            assertEquals(3, runaway.line());
+            assertEquals("\"never closed,movie", runaway.text());
+            assertNotNull(runaway.error());
+
+            assertEquals(new CatalogReader.RawRecord(4, "Next,movie"), reader.next());
+            assertEquals(new CatalogReader.RawRecord(5, "Last,game"), reader.next());
+            assertNull(reader.next());
+        }
+
+        // Within the cap, but the file ends first
+        try (CatalogReader reader = reader("title\n\"never closed,movie\nNext,movie\n", 1_000)) {
+            reader.header();
+            CatalogReader.RawRecord runaway = reader.next();
+            assertEquals(2, runaway.line());
+            assertNotNull(runaway.error());
+            assertEquals(new CatalogReader.RawRecord(3, "Next,movie"), reader.next());
+        }
+    }
+}
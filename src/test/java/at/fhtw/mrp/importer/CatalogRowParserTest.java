@@ -0,0 +1,59 @@
+package at.fhtw.mrp.importer;
+
+import at.fhtw.mrp.model.MediaEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CatalogRowParser
+ * Tests field parsing, validation and COPY encoding
+ */
+class CatalogRowParserTest {
+
+    private final UUID owner = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Test 64: CSV columns are mapped by header, invalid rows carry a reason")
+    void testParse_CsvByHeaderAndValidation() {
+        CatalogRowParser parser = new CatalogRowParser(CatalogFormat.CSV,
+                "mediaType,releaseYear,title,unused,description", owner);
+
+        CatalogRowParser.Parsed ok = parser.parse("series,2008,\"Breaking, Bad\",x,\"A \"\"chemistry\"\" teacher\"");
+        assertNull(ok.error());
+        MediaEntry entry = ok.entry();
+        assertEquals("Breaking, Bad", entry.getTitle());
+        assertEquals("A \"chemistry\" teacher", entry.getDescription());
+        assertEquals(2008, entry.getReleaseYear());
+        assertEquals(owner, entry.getOwnerId());
+
+        assertEquals("title is required", parser.parse("movie,2000,,x,").error());
+        assertEquals("mediaType must be movie, series or game", parser.parse("book,2000,T,x,").error());
+        assertEquals("releaseYear and ageRestriction must be numbers", parser.parse("movie,soon,T,x,").error());
+
+        CatalogRowParser json = new CatalogRowParser(CatalogFormat.NDJSON, null, owner);
+        assertEquals(1999, json.parse("{\"title\":\"Matrix\",\"mediaType\":\"movie\",\"releaseYear\":1999}")
+                .entry().getReleaseYear());
+        assertEquals("Text fields must be strings", json.parse("{\"title\":5,\"mediaType\":\"movie\"}").error());
+        assertTrue(json.parse("{\"title\":").error().startsWith("Invalid JSON"));
+    }
+
+    @Test
+    @DisplayName("Test 65: COPY rows quote strings so empty strings and NULLs stay distinct")
+    void testAppendCopyRow_QuotesAndNulls() {
+        UUID id = UUID.randomUUID();
+        MediaEntry entry = new MediaEntry(id, owner, "Say \"hi\"", "", "movie", null, null, 12);
+
+        StringBuilder row = new StringBuilder();
+        CatalogRowParser.appendCopyRow(row, entry);
+
+        assertEquals(id + "," + owner + ",\"Say \"\"hi\"\"\",\"\",\"movie\",,,12\n", row.toString());
+        // Round trip through the CSV splitter used for input files
+        assertEquals(Arrays.asList(id.toString(), owner.toString(), "Say \"hi\"", "", "movie", null, null, "12"),
+                CatalogRowParser.splitCsv(row.substring(0, row.length() - 1)));
+    }
+}
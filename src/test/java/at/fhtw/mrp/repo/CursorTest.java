@@ -0,0 +1,68 @@
+package at.fhtw.mrp.repo;
+
+import at.fhtw.mrp.config.AppConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Cursor and Page
+ */
+class CursorTest {
+
+    @Test
+    @DisplayName("Test 77: Cursor round-trips its values and is URL-safe")
+    void testEncodeDecode_RoundTrip() {
+        UUID id = UUID.randomUUID();
+        String cursor = Cursor.encode("media:title:asc", "Ämélie / 2001?", id.toString());
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), "Cursor must be usable in a query string as is");
+        String[] values = Cursor.decode(cursor, "media:title:asc", 2);
+        assertArrayEquals(new String[]{"Ämélie / 2001?", id.toString()}, values);
+        assertEquals(id, Cursor.parseId(values[1]));
+    }
+
+    @Test
+    @DisplayName("Test 78: Cursor from another list, with a wrong value count or not Base64 is rejected")
+    void testDecode_RejectsForeignOrMalformed() {
+        String cursor = Cursor.encode("ratings:media", "2024-01-01T00:00:00Z", UUID.randomUUID().toString());
+
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(cursor, "ratings:user", 2));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(cursor, "ratings:media", 1));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("not a cursor!", "ratings:media", 2));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("", "ratings:media", 2));
+    }
+
+    @Test
+    @DisplayName("Test 79: Tampered cursor values are rejected")
+    void testDecode_RejectsTamperedValues() {
+        String raw = "ratings:media\u001F2024-01-01T00:00:00Z\u001Fnot-a-uuid";
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        String[] values = Cursor.decode(tampered, "ratings:media", 2);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Cursor.parseId(values[1]));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test 80: Page limit is clamped to 1..LIST_MAX_LIMIT and hasMore follows nextCursor")
+    void testPage_LimitAndHasMore() {
+        int max = AppConfig.LIST_MAX_LIMIT;
+
+        assertEquals(max, Page.limit(null));
+        assertEquals(max, Page.limit(max + 1));
+        assertEquals(1, Page.limit(0));
+        assertEquals(1, Page.limit(-5));
+        assertEquals(20, Page.limit(20));
+
+        assertFalse(new Page<>(List.of(), null).hasMore());
+        assertTrue(new Page<>(List.of("a"), "next").hasMore());
+    }
+}
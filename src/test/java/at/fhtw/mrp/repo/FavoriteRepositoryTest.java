@@ -0,0 +1,146 @@
+package at.fhtw.mrp.repo;
+
+import at.fhtw.mrp.db.Database;
+import at.fhtw.mrp.db.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Database tests for FavoriteRepository
+ * Skipped when no database is reachable (see TestDatabase)
+ */
+class FavoriteRepositoryTest {
+
+    private static final String ROWS_SQL = "SELECT COUNT(*) FROM favorites WHERE media_id = ?";
+    private static final String COUNTER_SQL = "SELECT favorite_count FROM media_entries WHERE id = ?";
+    private static final String SHARDS_SQL = "SELECT COUNT(*) FROM media_favorite_count_shards WHERE media_id = ?";
+    private static final String PENDING_SQL =
+            "SELECT COALESCE(SUM(delta), 0) FROM media_favorite_count_shards WHERE media_id = ?";
+
+    private final FavoriteRepository repo = new FavoriteRepository();
+    private TestDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.assumeAvailable();
+        db = new TestDatabase();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (db != null) db.close();
+    }
+
+    // Fold all pending shards, waiting while another rollup (e.g. a running server) holds the lock
+    private void flush() throws Exception {
+        while (repo.flushFavoriteCounts() < 0) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    @DisplayName("Test 94: Concurrent toggles of one (user, media) pair flip it once per call")
+    void testToggleFavorite_ConcurrentSamePair() throws Exception {
+        UUID userId = db.createUser();
+        UUID mediaId = db.createMedia(userId);
+        int threads = 4;
+        int toggles = 25;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < toggles; i++) {
+                        repo.toggleFavorite(userId, mediaId);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        // 100 toggles leave it unfavorited, one more must favorite it
+        assertFalse(repo.isFavorite(userId, mediaId));
+        assertEquals(0, db.queryInt(ROWS_SQL, mediaId));
+        assertEquals(true, repo.toggleFavorite(userId, mediaId).orElseThrow());
+
+        assertTrue(repo.isFavorite(userId, mediaId));
+        assertEquals(1, db.queryInt(ROWS_SQL, mediaId));
+        assertEquals(1, repo.getFavoriteCount(mediaId));
+        flush();
+        assertEquals(1, db.queryInt(COUNTER_SQL, mediaId));
+    }
+
+    @Test
+    @DisplayName("Test 95: Shard deltas count before the rollup and are folded into favorite_count by it")
+    void testFlushFavoriteCounts_FoldsShards() throws Exception {
+        UUID owner = db.createUser();
+        UUID mediaId = db.createMedia(owner);
+        List<UUID> fans = List.of(db.createUser(), db.createUser(), db.createUser());
+
+        // Hold the rollup lock so no other rollup (e.g. a running server) folds the shards early
+        try (Connection lock = Database.getConnection()) {
+            lock.setAutoCommit(false);
+            try {
+                try (Statement st = lock.createStatement()) {
+                    st.execute("SELECT pg_advisory_xact_lock(hashtext('favorite_count_rollup'))");
+                }
+
+                for (UUID fan : fans) repo.addFavorite(fan, mediaId);
+                repo.removeFavorite(fans.get(0), mediaId);
+
+                assertEquals(0, db.queryInt(COUNTER_SQL, mediaId));
+                assertEquals(2, db.queryInt(PENDING_SQL, mediaId));
+                assertEquals(2, repo.getFavoriteCount(mediaId), "Base count plus pending shards");
+                assertEquals(-1, repo.flushFavoriteCounts(), "Only one rollup at a time");
+            } finally {
+                lock.rollback();   // releases the lock
+                lock.setAutoCommit(true);
+            }
+        }
+
+        flush();
+
+        assertEquals(2, db.queryInt(COUNTER_SQL, mediaId));
+        assertEquals(0, db.queryInt(SHARDS_SQL, mediaId));
+        assertEquals(2, repo.getFavoriteCount(mediaId));
+        assertEquals(db.queryInt(ROWS_SQL, mediaId), repo.getFavoriteCount(mediaId));
+    }
+
+    @Test
+    @DisplayName("Test 98: Batch add returns the keys of the inserted favorites")
+    void testAddFavorites_ReturnsGeneratedIds() throws Exception {
+        UUID userId = db.createUser();
+        UUID first = db.createMedia(userId);
+        UUID second = db.createMedia(userId);
+        repo.addFavorite(userId, second);
+
+        List<FavoriteRepository.Added> added = repo.addFavorites(userId, List.of(first, second, UUID.randomUUID()));
+
+        assertEquals(MutationResult.Status.APPLIED, added.get(0).status());
+        assertEquals(MutationResult.Status.CONFLICT, added.get(1).status());
+        assertEquals(MutationResult.Status.NOT_FOUND, added.get(2).status());
+        assertNull(added.get(1).favoriteId());
+        assertNull(added.get(2).favoriteId());
+        assertEquals(1, db.queryInt("SELECT COUNT(*) FROM favorites WHERE id = ?", added.get(0).favoriteId()));
+    }
+}
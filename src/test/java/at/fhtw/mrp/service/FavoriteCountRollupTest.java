@@ -0,0 +1,51 @@
+package at.fhtw.mrp.service;
+
+import at.fhtw.mrp.db.TestDatabase;
+import at.fhtw.mrp.repo.FavoriteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Database tests for FavoriteCountRollup
+ * Skipped when no database is reachable (see TestDatabase)
+ */
+class FavoriteCountRollupTest {
+
+    private final FavoriteRepository repo = new FavoriteRepository();
+    private TestDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.assumeAvailable();
+        db = new TestDatabase();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (db != null) db.close();
+    }
+
+    @Test
+    @DisplayName("Test 96: Closing the rollup folds pending shards into favorite_count")
+    void testClose_FoldsPendingShards() throws Exception {
+        UUID owner = db.createUser();
+        UUID mediaId = db.createMedia(owner);
+        repo.addFavorite(db.createUser(), mediaId);
+        repo.addFavorite(db.createUser(), mediaId);
+
+        // No schedule: only close() runs a rollup
+        FavoriteCountRollup rollup = new FavoriteCountRollup(repo, 0);
+        rollup.close();
+
+        // A running server may have folded them first; either way nothing is left pending
+        assertEquals(2, db.queryInt("SELECT favorite_count FROM media_entries WHERE id = ?", mediaId));
+        assertEquals(0, db.queryInt("SELECT COUNT(*) FROM media_favorite_count_shards WHERE media_id = ?", mediaId));
+        assertEquals(2, repo.getFavoriteCount(mediaId));
+    }
+}
@@ -3,6 +3,7 @@ package at.fhtw.mrp.service;
 import at.fhtw.mrp.model.MediaEntry;
 import at.fhtw.mrp.repo.FavoriteRepository;
 import at.fhtw.mrp.repo.MediaRepository;
+import at.fhtw.mrp.repo.MutationResult;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,7 @@ import org.mockito.MockitoAnnotations;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -118,4 +120,50 @@ class FavouriteServiceTest {
 
         verify(favoriteRepository).getFavoriteMedia(userId);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test 60: Toggle favorite is a single repository call")
+    void testToggleFavorite_SingleStatement() throws SQLException {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        UUID mediaId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        when(favoriteRepository.toggleFavorite(userId, mediaId)).thenReturn(Optional.of(true), Optional.of(false));
+        when(favoriteRepository.toggleFavorite(userId, missingId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(favoriteService.toggleFavorite(userId, mediaId));
+        assertFalse(favoriteService.toggleFavorite(userId, mediaId));
+        assertThrows(IllegalArgumentException.class, () -> favoriteService.toggleFavorite(userId, missingId));
+
+        verify(favoriteRepository, never()).isFavorite(any(), any());
+        verifyNoInteractions(mediaRepository);
+    }
+
+    @Test
+    @DisplayName("Test 97: Batch add reports created ids, existing and missing media, invalid items")
+    void testAddFavorites_ResultsInRequestOrder() throws SQLException {
+        UUID userId = UUID.randomUUID();
+        UUID created = UUID.randomUUID();
+        UUID existing = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID favoriteId = UUID.randomUUID();
+        when(favoriteRepository.addFavorites(userId, List.of(created, existing, missing))).thenReturn(List.of(
+                new FavoriteRepository.Added(MutationResult.Status.APPLIED, favoriteId),
+                new FavoriteRepository.Added(MutationResult.Status.CONFLICT, null),
+                new FavoriteRepository.Added(MutationResult.Status.NOT_FOUND, null)));
+
+        List<BatchItemResult> results = favoriteService.addFavorites(userId, List.of(
+                Map.of("mediaId", created.toString()),
+                Map.of("mediaId", "not-a-uuid"),
+                Map.of("mediaId", existing.toString()),
+                Map.of("mediaId", missing.toString())));
+
+        assertEquals(new BatchItemResult(0, BatchItemResult.CREATED, favoriteId, null), results.get(0));
+        assertEquals(BatchItemResult.INVALID, results.get(1).status());
+        assertNotNull(results.get(1).error());
+        assertEquals(new BatchItemResult(2, BatchItemResult.EXISTS, null, null), results.get(2));
+        assertEquals(BatchItemResult.NOT_FOUND, results.get(3).status());
+        assertEquals(3, results.get(3).index());
+    }
+}
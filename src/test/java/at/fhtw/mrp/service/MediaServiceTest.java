@@ -1,18 +1,29 @@
 package at.fhtw.mrp.service;
 
 import at.fhtw.mrp.model.MediaEntry;
+import at.fhtw.mrp.model.RatingStats;
 import at.fhtw.mrp.model.User;
+import at.fhtw.mrp.repo.MediaFilter;
 import at.fhtw.mrp.repo.MediaRepository;
+import at.fhtw.mrp.repo.MutationResult;
+import at.fhtw.mrp.repo.Page;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -121,4 +132,182 @@ class MediaServiceTest {
         assertNotEquals(mediaId1, mediaId2, "Each creation should generate a unique ID");
         verify(mediaRepository, times(2)).insert(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test 31: Filter and sort is delegated to a single repository query")
+    void testFilterAndSort_BuildsMediaFilter() throws SQLException {
+        // Arrange
+        Map<String, String> filters = new HashMap<>();
+        filters.put("genre", "Action");
+        filters.put("type", "MOVIE");
+        filters.put("minYear", "1990");
+        filters.put("maxYear", "not-a-number");
+        filters.put("maxAge", "16");
+
+        when(mediaRepository.findPage(any(), isNull())).thenReturn(new Page<>(List.of(), null));
+
+        // Act
+        mediaService.filterAndSort(filters, "year", "desc", 25);
+
+        // Assert
+        ArgumentCaptor<MediaFilter> captor = ArgumentCaptor.forClass(MediaFilter.class);
+        verify(mediaRepository).findPage(captor.capture(), isNull());
+        verify(mediaRepository, never()).listAll();
+
+        MediaFilter filter = captor.getValue();
+        assertEquals("action", filter.genre());
+        assertEquals("movie", filter.mediaType());
+        assertEquals(1990, filter.minYear());
+        assertNull(filter.maxYear(), "Malformed numbers should be ignored");
+        assertEquals(16, filter.maxAge());
+        assertEquals(MediaFilter.SortKey.YEAR, filter.sortKey());
+        assertTrue(filter.descending());
+        assertEquals(25, filter.limit());
+    }
+
+    @Test
+    @DisplayName("Test 33: Score and popularity sort keys are passed to the repository")
+    void testFilterAndSort_ScoreAndPopularitySortKeys() throws SQLException {
+        // Arrange
+        when(mediaRepository.findPage(any(), isNull())).thenReturn(new Page<>(List.of(), null));
+
+        // Act
+        mediaService.filterAndSort(Map.of(), "weighted", "desc", 10);
+        mediaService.filterAndSort(Map.of(), "popularity", "desc", 10);
+        mediaService.filterAndSort(Map.of(), "score", "asc", 10);
+
+        // Assert
+        ArgumentCaptor<MediaFilter> captor = ArgumentCaptor.forClass(MediaFilter.class);
+        verify(mediaRepository, times(3)).findPage(captor.capture(), isNull());
+
+        List<MediaFilter> filters = captor.getAllValues();
+        assertEquals(MediaFilter.SortKey.WEIGHTED_SCORE, filters.get(0).sortKey());
+        assertEquals(MediaFilter.SortKey.POPULARITY, filters.get(1).sortKey());
+        assertEquals(MediaFilter.SortKey.SCORE, filters.get(2).sortKey());
+        assertFalse(filters.get(2).descending());
+    }
+
+    @Test
+    @DisplayName("Test 36: Full-text search is ranked by relevance by default")
+    void testFilterAndSort_FullTextDefaultsToRelevance() throws SQLException {
+        // Arrange
+        when(mediaRepository.findPage(any(), isNull())).thenReturn(new Page<>(List.of(), null));
+
+        // Act
+        mediaService.filterAndSort(Map.of("search", "space opera", "searchMode", "fulltext"), null, null, 10);
+
+        // Assert
+        ArgumentCaptor<MediaFilter> captor = ArgumentCaptor.forClass(MediaFilter.class);
+        verify(mediaRepository).findPage(captor.capture(), isNull());
+
+        MediaFilter filter = captor.getValue();
+        assertEquals(MediaFilter.SearchMode.FULLTEXT, filter.searchMode());
+        assertEquals(MediaFilter.SortKey.RELEVANCE, filter.sortKey());
+        assertTrue(filter.descending(), "Best matches should come first");
+    }
+
+    @Test
+    @DisplayName("Test 52: Cached entry with an outdated version is evicted and reloaded")
+    void testGetDetail_ReloadsOutdatedCacheEntry() throws SQLException {
+        UUID id = UUID.randomUUID();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        MediaEntry cached = new MediaEntry(id, testOwner.getId(), "Old", null, "movie",
+                null, null, null, 1, now);
+        MediaEntry current = new MediaEntry(id, testOwner.getId(), "New", null, "movie",
+                null, null, null, 2, now);
+
+        when(mediaRepository.findState(id)).thenReturn(Optional.of(
+                new MediaRepository.MediaState(2, now, RatingStats.empty())));
+        doReturn(Optional.of(cached), Optional.of(current)).when(mediaRepository).findById(id);
+
+        MediaService.MediaDetail detail = mediaService.getDetail(id).orElseThrow();
+
+        assertEquals("New", detail.entry().getTitle());
+        verify(mediaRepository).evict(id);
+    }
+
+    @Test
+    @DisplayName("Test 58: Update maps the single-statement outcome to 403 and 409 errors")
+    void testUpdate_MapsMutationOutcome() throws SQLException {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> body = new HashMap<>();
+        body.put("title", "Title");
+        body.put("mediaType", "movie");
+        body.put("version", 3);
+
+        when(mediaRepository.updateOwned(any(), eq(testOwner.getId()), eq(3L)))
+                .thenReturn(new MutationResult(MutationResult.Status.FORBIDDEN, 0))
+                .thenReturn(new MutationResult(MutationResult.Status.CONFLICT, 0))
+                .thenReturn(new MutationResult(MutationResult.Status.APPLIED, 4));
+
+        assertThrows(SecurityException.class, () -> mediaService.update(id, testOwner.getId(), body));
+        assertThrows(VersionConflictException.class, () -> mediaService.update(id, testOwner.getId(), body));
+        assertEquals(4, mediaService.updateVersioned(id, testOwner.getId(), body));
+
+        // Ownership and version are checked by the statement, not by a prior read
+        verify(mediaRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Test 61: Media batch reports invalid items and inserts the rest in one batch")
+    @SuppressWarnings("unchecked")
+    void testCreateBatch_ValidatesPerItem() throws SQLException {
+        Map<String, Object> valid = Map.of("title", "Heat", "mediaType", "movie", "releaseYear", 1995);
+        Map<String, Object> noTitle = Map.of("mediaType", "movie");
+        Map<String, Object> badType = Map.of("title", "Heat", "mediaType", "book");
+        Map<String, Object> badYear = Map.of("title", "Heat", "mediaType", "movie", "releaseYear", "soon");
+
+        List<BatchItemResult> results = mediaService.createBatch(testOwner.getId(),
+                List.of(valid, noTitle, badType, badYear));
+
+        assertEquals(List.of("created", "invalid", "invalid", "invalid"),
+                results.stream().map(BatchItemResult::status).toList());
+        assertNotNull(results.get(0).id());
+        assertEquals("title is required", results.get(1).error());
+
+        ArgumentCaptor<List<MediaEntry>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(mediaRepository, times(1)).insertBatch(inserted.capture());
+        assertEquals(List.of(results.get(0).id()), inserted.getValue().stream().map(MediaEntry::getId).toList());
+        verify(mediaRepository, never()).insert(any());
+    }
+
+    @Test
+    @DisplayName("Test 105: A list query after a write does not join a page query started before it")
+    void testFilterAndSortPage_WriteStartsNewFlight() throws Exception {
+        // Arrange
+        UUID mediaId = UUID.randomUUID();
+        Page<MediaEntry> before = new Page<>(List.of(), null);
+        Page<MediaEntry> after = new Page<>(List.of(), null);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mediaRepository.findPage(any(), isNull()))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await();
+                    return before;
+                })
+                .thenReturn(after);
+        when(mediaRepository.deleteOwned(mediaId, testOwner.getId(), null))
+                .thenReturn(new MutationResult(MutationResult.Status.APPLIED, 1));
+
+        // Act
+        CompletableFuture<Page<MediaEntry>> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return mediaService.filterAndSortPage(Map.of(), null, null, 10, null);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        loading.await();
+        mediaService.delete(mediaId, testOwner.getId());
+        // Joining the running query would wait for it forever
+        Page<MediaEntry> afterWrite = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> mediaService.filterAndSortPage(Map.of(), null, null, 10, null));
+        release.countDown();
+
+        // Assert
+        assertSame(after, afterWrite);
+        assertSame(before, running.join());
+        verify(mediaRepository, times(2)).findPage(any(), isNull());
+    }
+}
@@ -1,6 +1,9 @@
 package at.fhtw.mrp.service;
 
+import at.fhtw.mrp.config.AppConfig;
 import at.fhtw.mrp.model.Rating;
+import at.fhtw.mrp.model.RatingStats;
+import at.fhtw.mrp.repo.MutationResult;
 import at.fhtw.mrp.repo.RatingRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -9,6 +12,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -147,4 +155,137 @@ class RatingServiceTest {
 
         verify(ratingRepository).insert(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test 32: Average score is read from aggregates without loading ratings")
+    void testGetAverageScore_UsesAggregates() throws SQLException {
+        // Arrange
+        UUID mediaId = UUID.randomUUID();
+        RatingStats stats = new RatingStats(3, 11, new int[]{0, 0, 1, 2, 0});
+        when(ratingRepository.findStatsByMediaId(mediaId)).thenReturn(Optional.of(stats));
+
+        // Act
+        double average = ratingService.getAverageScore(mediaId);
+
+        // Assert
+        assertEquals(11.0 / 3, average, 1e-9);
+        assertEquals(2, ratingService.getStats(mediaId).getDistribution().get(4));
+        verify(ratingRepository, never()).findByMediaIdApproved(any());
+    }
+
+    @Test
+    @DisplayName("Test 59: Rating edit and delete report missing, foreign and stale ratings")
+    void testUpdateAndDelete_MapMutationOutcome() throws SQLException {
+        // Arrange
+        UUID ratingId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(ratingRepository.updateOwned(ratingId, userId, 4, true, "better", 1L))
+                .thenReturn(new MutationResult(MutationResult.Status.CONFLICT, 0));
+        when(ratingRepository.deleteOwned(ratingId, userId, null))
+                .thenReturn(new MutationResult(MutationResult.Status.NOT_FOUND, 0))
+                .thenReturn(new MutationResult(MutationResult.Status.FORBIDDEN, 0));
+
+        // Act & Assert
+        Map<String, Object> body = Map.of("stars", 4, "comment", "better", "version", 1);
+        assertThrows(VersionConflictException.class, () -> ratingService.update(ratingId, userId, body));
+
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> ratingService.delete(ratingId, userId));
+        assertEquals("Rating not found", missing.getMessage());
+        SecurityException foreign = assertThrows(SecurityException.class,
+                () -> ratingService.delete(ratingId, userId));
+        assertEquals("You can only delete your own ratings", foreign.getMessage());
+        verify(ratingRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Test 62: Rating batch maps per-item outcomes back to request positions")
+    void testCreateBatch_MapsOutcomes() throws SQLException {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        List<Map<String, Object>> items = List.of(
+                Map.of("mediaId", UUID.randomUUID().toString(), "stars", 5),
+                Map.of("mediaId", UUID.randomUUID().toString(), "stars", 9),
+                Map.of("mediaId", "not-a-uuid", "stars", 3),
+                Map.of("mediaId", UUID.randomUUID().toString(), "stars", 4),
+                Map.of("mediaId", UUID.randomUUID().toString(), "stars", 2, "comment", "meh"));
+        when(ratingRepository.insertBatch(anyList())).thenReturn(List.of(
+                MutationResult.Status.APPLIED, MutationResult.Status.NOT_FOUND, MutationResult.Status.CONFLICT));
+
+        // Act
+        List<BatchItemResult> results = ratingService.createBatch(userId, items);
+
+        // Assert
+        assertEquals(List.of("created", "invalid", "invalid", "not_found", "duplicate"),
+                results.stream().map(BatchItemResult::status).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchItemResult::index).toList());
+        verify(ratingRepository, times(1)).insertBatch(argThat(list -> list.size() == 3));
+        verify(ratingRepository, never()).insert(any());
+    }
+
+    @Test
+    @DisplayName("Test 69: Claiming pending ratings uses the default page size and clamps the limit")
+    void testClaimPending_Limit() throws SQLException {
+        // Arrange
+        UUID moderatorId = UUID.randomUUID();
+        when(ratingRepository.claimPending(any(), anyInt(), anyLong())).thenReturn(List.of());
+
+        // Act
+        ratingService.claimPending(moderatorId, null);
+        ratingService.claimPending(moderatorId, 0);
+        ratingService.claimPending(moderatorId, Integer.MAX_VALUE);
+
+        // Assert
+        long lease = AppConfig.MODERATION_CLAIM_SECONDS;
+        verify(ratingRepository).claimPending(moderatorId, AppConfig.MODERATION_PAGE_SIZE, lease);
+        verify(ratingRepository).claimPending(moderatorId, 1, lease);
+        verify(ratingRepository).claimPending(moderatorId, AppConfig.MODERATION_MAX_IDS, lease);
+    }
+
+    @Test
+    @DisplayName("Test 70: Bulk approval decides each id once and reports the skipped ones")
+    void testApprovePending_DecidedAndSkipped() throws SQLException {
+        // Arrange
+        UUID moderatorId = UUID.randomUUID();
+        UUID pending = UUID.randomUUID();
+        UUID taken = UUID.randomUUID();
+        when(ratingRepository.decidePending(any(), eq(moderatorId), eq("approved"))).thenReturn(Set.of(pending));
+
+        // Act
+        RatingService.ModerationResult result =
+                ratingService.approvePending(moderatorId, List.of(pending, taken, pending));
+
+        // Assert
+        assertEquals(List.of(pending), result.decided());
+        assertEquals(List.of(taken), result.skipped());
+        verify(ratingRepository).decidePending(argThat(ids -> ids.size() == 2), eq(moderatorId), eq("approved"));
+
+        List<UUID> tooMany = new ArrayList<>();
+        for (int i = 0; i <= AppConfig.MODERATION_MAX_IDS; i++) tooMany.add(UUID.randomUUID());
+        assertThrows(IllegalArgumentException.class, () -> ratingService.rejectPending(moderatorId, tooMany));
+        assertThrows(IllegalArgumentException.class, () -> ratingService.rejectPending(moderatorId, List.of()));
+        verify(ratingRepository, never()).decidePending(any(), any(), eq("rejected"));
+    }
+
+    @Test
+    @DisplayName("Test 104: Single approve/reject passes the moderator and refuses ratings claimed by others")
+    void testApproveRating_RespectsClaims() throws SQLException {
+        // Arrange
+        UUID moderatorId = UUID.randomUUID();
+        UUID free = UUID.randomUUID();
+        UUID claimed = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        when(ratingRepository.decide(free, moderatorId, "approved")).thenReturn(MutationResult.Status.APPLIED);
+        when(ratingRepository.decide(claimed, moderatorId, "rejected")).thenReturn(MutationResult.Status.CONFLICT);
+        when(ratingRepository.decide(missing, moderatorId, "approved")).thenReturn(MutationResult.Status.NOT_FOUND);
+
+        // Act & Assert
+        ratingService.approveRating(free, moderatorId);
+        VersionConflictException taken = assertThrows(VersionConflictException.class,
+                () -> ratingService.rejectRating(claimed, moderatorId));
+        assertEquals("Rating is claimed by another moderator", taken.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ratingService.approveRating(missing, moderatorId));
+        verify(ratingRepository).decide(free, moderatorId, "approved");
+        verify(ratingRepository, never()).findById(any());
+    }
+}
@@ -0,0 +1,77 @@
+package at.fhtw.mrp.service;
+
+import at.fhtw.mrp.repo.RatingRepository;
+import at.fhtw.mrp.repo.UserStatisticsRepository;
+import at.fhtw.mrp.repo.UserStatisticsRepository.UserStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserProfileService
+ * Tests mapping of aggregated statistics to the profile payload
+ */
+class UserProfileServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private UserStatisticsRepository statisticsRepository;
+
+    private UserProfileService profileService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        profileService = new UserProfileService(ratingRepository, statisticsRepository);
+    }
+
+    @Test
+    @DisplayName("Test 34: Statistics come from one aggregate query without loading entities")
+    void testGetUserStatistics_UsesAggregateQuery() throws SQLException {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        when(statisticsRepository.getUserStatistics(userId)).thenReturn(
+                new UserStatistics(3, 11.0 / 3, 2, 4, 4.256, List.of("drama", "action")));
+
+        // Act
+        Map<String, Object> stats = profileService.getUserStatistics(userId);
+
+        // Assert
+        assertEquals(3, stats.get("totalRatingsGiven"));
+        assertEquals(3.67, stats.get("averageScoreGiven"));
+        assertEquals(2, stats.get("totalMediaCreated"));
+        assertEquals(4, stats.get("totalFavorites"));
+        assertEquals("drama", stats.get("favoriteGenre"));
+        assertEquals(List.of("drama", "action"), stats.get("topGenres"));
+        assertEquals(4.26, stats.get("averageRatingReceived"));
+        verifyNoInteractions(ratingRepository);
+    }
+
+    @Test
+    @DisplayName("Test 35: User without favorites has no favorite genre")
+    void testGetUserStatistics_NoFavorites() throws SQLException {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        when(statisticsRepository.getUserStatistics(userId)).thenReturn(
+                new UserStatistics(0, 0.0, 0, 0, 0.0, List.of()));
+
+        // Act
+        Map<String, Object> stats = profileService.getUserStatistics(userId);
+
+        // Assert
+        assertEquals("none", stats.get("favoriteGenre"));
+        assertEquals(0.0, stats.get("averageRatingReceived"));
+    }
+}
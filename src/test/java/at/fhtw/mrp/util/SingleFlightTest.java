@@ -0,0 +1,91 @@
+package at.fhtw.mrp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight
+ * Tests that concurrent identical reads share one load
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    // Starts CALLERS concurrent calls; the load blocks until all others have joined it
+    private List<Future<String>> callConcurrently(SingleFlight<String, String> flights,
+                                                  SingleFlight.Loader<String> loader,
+                                                  ExecutorService pool) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Loader<String> blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.load();
+        };
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> flights.execute("key", blocking)));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (flights.getCoalesced() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        return results;
+    }
+
+    @Test
+    @DisplayName("Test 53: Concurrent identical reads share one load and its result")
+    void testExecute_CoalescesConcurrentCalls() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = callConcurrently(flights,
+                    () -> "value-" + loads.incrementAndGet(), pool);
+
+            for (Future<String> result : results) {
+                assertEquals("value-1", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, flights.getExecutions());
+            assertEquals(CALLERS - 1, flights.getCoalesced());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Test 54: A failed load fails all waiters, the next call loads again")
+    void testExecute_PropagatesFailureAndReleasesKey() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = callConcurrently(flights,
+                    () -> { throw new SQLException("connection lost"); }, pool);
+
+            for (Future<String> result : results) {
+                Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(SQLException.class, e.getCause());
+            }
+            assertEquals("fresh", flights.execute("key", () -> "fresh"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package at.fhtw.mrp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TinyLfuCache
+ * Tests hit/miss counting, invalidation, bounds and frequency-aware admission
+ */
+class TinyLfuCacheTest {
+
+    @Test
+    @DisplayName("Test 48: Cached value is returned and counted as hit")
+    void testGet_HitAfterPut() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 60_000);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "A", cache.epoch("a"));
+
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    @DisplayName("Test 49: Load that raced with an invalidation is not cached")
+    void testPut_SkippedWhenInvalidatedDuringLoad() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 60_000);
+        cache.put("a", "old", cache.epoch("a"));
+
+        long epoch = cache.epoch("a");
+        cache.invalidate("a");            // update happens while "a" is loaded
+        cache.put("a", "stale", epoch);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    @DisplayName("Test 50: Cache never grows beyond maxEntries")
+    void testPut_RespectsMaxEntries() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(50, 60_000);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i, cache.epoch(i));
+        }
+
+        assertTrue(cache.size() <= 50);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    @DisplayName("Test 51: Frequently read entries survive a scan of one-off keys")
+    void testAdmission_HotEntriesSurviveScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 60_000);
+        for (int hot = 0; hot < 20; hot++) {
+            cache.put(hot, hot, cache.epoch(hot));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 0; hot < 20; hot++) {
+                cache.get(hot);
+            }
+        }
+
+        // Scan: 2000 keys that are each loaded once (miss, then put), while the hot keys
+        // are still read now and then - too rarely for plain LRU (200 new keys between two
+        // reads of the same hot key, capacity 100)
+        for (int key = 1_000; key < 3_000; key++) {
+            cache.get(key);
+            cache.put(key, key, cache.epoch(key));
+            if (key % 10 == 0) cache.get((key / 10) % 20);
+        }
+
+        int survivors = 0;
+        for (int hot = 0; hot < 20; hot++) {
+            if (cache.get(hot) != null) survivors++;
+        }
+        assertEquals(20, survivors, "Hot entries must not be flushed by a scan");
+    }
+
+    @Test
+    @DisplayName("Test 91: Invalidating one key does not discard a concurrent load of another")
+    void testPut_OtherKeyInvalidationDoesNotSkip() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 60_000);
+
+        long epoch = cache.epoch("a");
+        cache.invalidate("b");            // unrelated update while "a" is loaded
+        cache.put("a", "A", epoch);
+
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    @DisplayName("Test 92: Expired entry is a miss and is dropped by the read")
+    void testGet_ExpiredEntryDropped() throws InterruptedException {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 60_000);
+        cache.put("a", "A", 1, cache.epoch("a"));
+
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMisses());
+    }
+}
@@ -0,0 +1,98 @@
+package at.fhtw.mrp.util;
+
+import at.fhtw.mrp.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TokenCache
+ * Tests hit/miss counting, invalidation and bounds
+ */
+class TokenCacheTest {
+
+    private User user(String token) {
+        return new User(UUID.randomUUID(), "alice", "hash", token);
+    }
+
+    @Test
+    @DisplayName("Test 26: Cached token is returned and counted as hit")
+    void testGet_HitAfterPut() {
+        TokenCache cache = new TokenCache(60_000, 10);
+        User u = user("t1");
+
+        assertTrue(cache.get("t1").isEmpty());
+        cache.put("t1", u, cache.epoch(u.getId()));
+
+        assertEquals(u, cache.get("t1").orElseThrow());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Test 27: Invalidating a user removes their cached token")
+    void testInvalidateUser_RemovesToken() {
+        TokenCache cache = new TokenCache(60_000, 10);
+        User u = user("old");
+        cache.put("old", u, cache.epoch(u.getId()));
+
+        cache.invalidateUser(u.getId());
+
+        assertTrue(cache.get("old").isEmpty(), "Old token must not authenticate after login");
+    }
+
+    @Test
+    @DisplayName("Test 28: Lookup that raced with an invalidation is not cached")
+    void testPut_SkippedWhenInvalidatedDuringLoad() {
+        TokenCache cache = new TokenCache(60_000, 10);
+        User u = user("old");
+
+        long epoch = cache.epoch(u.getId());
+        cache.invalidateUser(u.getId());   // login happens while the user is loaded
+        cache.put("old", u, epoch);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Test 29: Expired entries are not returned")
+    void testGet_ExpiredEntry() throws InterruptedException {
+        TokenCache cache = new TokenCache(1, 10);
+        User u = user("t");
+        cache.put("t", u, cache.epoch(u.getId()));
+
+        Thread.sleep(5);
+
+        assertTrue(cache.get("t").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test 30: Cache never grows beyond maxEntries")
+    void testPut_RespectsMaxEntries() {
+        TokenCache cache = new TokenCache(60_000, 3);
+
+        for (int i = 0; i < 10; i++) {
+            User u = user("t" + i);
+            cache.put("t" + i, u, cache.epoch(u.getId()));
+        }
+
+        assertTrue(cache.size() <= 3);
+    }
+
+    @Test
+    @DisplayName("Test 76: Invalidating one user does not discard another user's concurrent load")
+    void testPut_OtherUserInvalidationDoesNotSkip() {
+        TokenCache cache = new TokenCache(60_000, 10);
+        User u = user("mine");
+        User other = user("theirs");
+
+        long epoch = cache.epoch(u.getId());
+        cache.invalidateUser(other.getId());   // someone else logs in meanwhile
+        cache.put("mine", u, epoch);
+
+        assertEquals(u, cache.get("mine").orElseThrow());
+    }
+}
@@ -0,0 +1,58 @@
+package at.fhtw.mrp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UuidV7
+ * Tests layout and ordering of generated IDs
+ */
+class UuidV7Test {
+
+    @Test
+    @DisplayName("Test 37: Generated IDs are version 7 with the current timestamp")
+    void testGenerate_VersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long ts = UuidV7.timestamp(id);
+        assertTrue(ts >= before && ts <= after + 1, "Timestamp should be the generation time");
+    }
+
+    @Test
+    @DisplayName("Test 38: IDs are unique and strictly increasing across threads")
+    void testGenerate_MonotonicAcrossThreads() throws InterruptedException {
+        ConcurrentLinkedQueue<List<UUID>> perThread = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                List<UUID> ids = new ArrayList<>();
+                for (int i = 0; i < 20_000; i++) ids.add(UuidV7.generate());
+                perThread.add(ids);
+            }));
+        }
+        for (Thread t : threads) t.join();
+
+        long distinct = perThread.stream().flatMap(List::stream).distinct().count();
+        assertEquals(80_000, distinct);
+
+        // Sequence bits order IDs within a millisecond; compare like PostgreSQL (unsigned bytes)
+        for (List<UUID> ids : perThread) {
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(Long.compareUnsigned(ids.get(i - 1).getMostSignificantBits(),
+                        ids.get(i).getMostSignificantBits()) < 0, "IDs must increase");
+            }
+        }
+    }
+}